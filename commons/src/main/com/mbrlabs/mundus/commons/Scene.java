@@ -26,6 +26,7 @@ import com.mbrlabs.mundus.commons.env.lights.DirectionalLight;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 import com.mbrlabs.mundus.commons.scene3d.SceneGraph;
 import com.mbrlabs.mundus.commons.skybox.Skybox;
+import com.mbrlabs.mundus.commons.terrain.TerrainStreamer;
 
 /**
  * @author Marcus Brummer
@@ -41,6 +42,8 @@ public class Scene implements Disposable {
     public Skybox skybox;
 
     public Array<TerrainAsset> terrains;
+    /** streams the terrain tiles of this scene, null if there are none */
+    public TerrainStreamer terrainStreamer;
     public GameObject currentSelection;
 
     public PerspectiveCamera cam;
@@ -88,5 +91,8 @@ public class Scene implements Disposable {
         if (skybox != null) {
             skybox.dispose();
         }
+        if (terrainStreamer != null) {
+            terrainStreamer.dispose();
+        }
     }
 }
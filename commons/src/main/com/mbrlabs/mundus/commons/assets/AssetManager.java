@@ -21,6 +21,7 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
 import com.mbrlabs.mundus.commons.assets.meta.MetaFileParseException;
+import com.mbrlabs.mundus.commons.terrain.TerrainStreamer;
 import com.mbrlabs.mundus.commons.assets.meta.MetaLoader;
 
 import java.io.File;
@@ -32,7 +33,7 @@ import java.util.Map;
  * Read-only asset manager.
  *
  * @author Marcus Brummer
- * @version 06-10-2016
+ * @version 17-10-2026
  */
 public class AssetManager implements Disposable {
 
@@ -43,6 +44,11 @@ public class AssetManager implements Disposable {
     protected Array<Asset> assets;
     protected Map<String, Asset> assetIndex;
 
+    /** keep 16 bit terrain heights quantized in memory */
+    protected boolean keepTerrainsQuantized = true;
+    /** build terrains in the compact vertex format */
+    protected boolean compactTerrainVertices = false;
+
     /**
      * Asset manager constructor.
      *
@@ -79,6 +85,24 @@ public class AssetManager implements Disposable {
         }
     }
 
+    /**
+     * @param keepTerrainsQuantized
+     *            if true, terrains stored with 16 bit heights keep them in
+     *            memory. Must be set before loading.
+     */
+    public void setKeepTerrainsQuantized(boolean keepTerrainsQuantized) {
+        this.keepTerrainsQuantized = keepTerrainsQuantized;
+    }
+
+    /**
+     * @param compactTerrainVertices
+     *            if true, terrains are built in the compact vertex format.
+     *            Must be set before loading.
+     */
+    public void setCompactTerrainVertices(boolean compactTerrainVertices) {
+        this.compactTerrainVertices = compactTerrainVertices;
+    }
+
     /**
      * Returns all assets.
      *
@@ -120,6 +144,18 @@ public class AssetManager implements Disposable {
         return terrains;
     }
 
+    /**
+     * Creates a streamer for the terrain tiles of a streamed world. Tiles are
+     * not loaded by {@link #loadAssets(AssetLoadingListener)}; call
+     * {@link TerrainStreamer#update(com.badlogic.gdx.math.Vector3)} every
+     * frame to load the tiles around the camera.
+     *
+     * @return streamer for all loaded tile assets or null if there are none
+     */
+    public TerrainStreamer createTerrainStreamer() {
+        return TerrainStreamer.create(getTerrainAssets());
+    }
+
     /**
      * Returns all assets of type MATERIAL.
      *
@@ -246,7 +282,12 @@ public class AssetManager implements Disposable {
 
     private TerrainAsset loadTerrainAsset(Meta meta, FileHandle assetFile) {
         TerrainAsset asset = new TerrainAsset(meta, assetFile);
-        asset.load();
+        asset.setKeepQuantized(keepTerrainsQuantized);
+        asset.setCompactVertices(compactTerrainVertices);
+        // tiles of a streamed world are loaded on demand by a TerrainStreamer
+        if (meta.getTerrain() == null || !meta.getTerrain().isTile()) {
+            asset.load();
+        }
         return asset;
     }
 
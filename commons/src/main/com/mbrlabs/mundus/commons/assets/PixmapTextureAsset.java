@@ -25,7 +25,7 @@ import java.util.Map;
 
 /**
  * @author Marcus Brummer
- * @version 02-10-2016
+ * @version 17-10-2026
  */
 public class PixmapTextureAsset extends Asset {
 
@@ -47,6 +47,20 @@ public class PixmapTextureAsset extends Asset {
     @Override
     public void load() {
         pixmap = new Pixmap(file);
+        if (pixmap.getFormat() != Pixmap.Format.RGBA8888) {
+            // splatmaps work on the raw RGBA bytes
+            final Pixmap rgba = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Pixmap.Format.RGBA8888);
+            // blending is a global setting, restore it for everybody else
+            final Pixmap.Blending blending = Pixmap.getBlending();
+            Pixmap.setBlending(Pixmap.Blending.None);
+            try {
+                rgba.drawPixmap(pixmap, 0, 0);
+            } finally {
+                Pixmap.setBlending(blending);
+            }
+            pixmap.dispose();
+            pixmap = rgba;
+        }
         texture = new Texture(pixmap);
     }
 
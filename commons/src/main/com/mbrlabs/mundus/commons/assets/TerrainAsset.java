@@ -16,23 +16,22 @@
 package com.mbrlabs.mundus.commons.assets;
 
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain;
+import com.mbrlabs.mundus.commons.terrain.QuantizedHeights;
 import com.mbrlabs.mundus.commons.terrain.SplatMap;
 import com.mbrlabs.mundus.commons.terrain.SplatTexture;
+import com.mbrlabs.mundus.commons.terrain.TerraFile;
 import com.mbrlabs.mundus.commons.terrain.Terrain;
 import com.mbrlabs.mundus.commons.terrain.TerrainTexture;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
-import java.io.IOException;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 
 /**
  * @author Marcus Brummer
- * @version 01-10-2016
+ * @version 17-10-2026
  */
 public class TerrainAsset extends Asset {
 
@@ -47,12 +46,20 @@ public class TerrainAsset extends Asset {
     private TextureAsset splatA;
 
     private Terrain terrain;
+    private Matrix4 transform;
+    private boolean keepQuantized;
+    private boolean compactVertices;
 
     public TerrainAsset(Meta meta, FileHandle assetFile) {
         super(meta, assetFile);
     }
 
+    /**
+     * @return current height data of the terrain, or the loaded data if the
+     *         terrain has not been created yet
+     */
     public float[] getData() {
+        if (terrain != null) return terrain.heightData;
         return data;
     }
 
@@ -142,27 +149,141 @@ public class TerrainAsset extends Asset {
 
     @Override
     public void load() {
-        // load height data from terra file
-        final FloatArray floatArray = new FloatArray();
+        final Terrain loaded = loadAsync();
+        if (loaded != null) {
+            loadSync(loaded);
+        }
+    }
 
-        DataInputStream is;
+    /**
+     * Reads the height data & builds the terrain vertices. Doesn't touch
+     * OpenGL, so it can be called from a background thread. Pass the result
+     * to {@link #loadSync(Terrain)} on the render thread afterwards.
+     *
+     * The asset itself is not modified. A terrain which is never passed to
+     * {@link #loadSync(Terrain)} owns no GPU resources and can simply be
+     * dropped.
+     *
+     * @return the built terrain or null if the height data can't be read
+     */
+    public Terrain loadAsync() {
+        // load height data from terra file
+        final Terrain terrain;
         try {
-            is = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file.read())));
-            while (is.available() > 0) {
-                floatArray.add(is.readFloat());
+            final TerraFile.Header header = new TerraFile.Header();
+            // only heights stored as UINT16 are kept quantized, float heights
+            // would lose precision
+            if (keepQuantized) {
+                TerraFile.readHeader(file, header);
+            }
+            if (keepQuantized && header.format == TerraFile.Format.UINT16) {
+                final QuantizedHeights heights = TerraFile.readQuantized(file, header);
+                terrain = new Terrain(meta.getTerrain().getSize(), heights);
+            } else {
+                terrain = new Terrain(meta.getTerrain().getSize(), TerraFile.read(file, header));
             }
-            is.close();
-        } catch (EOFException e) {
-            // e.printStackTrace();
-        } catch (IOException e) {
+        } catch (GdxRuntimeException e) {
             e.printStackTrace();
+            return null;
+        }
+
+        terrain.setCompactVertices(compactVertices);
+        terrain.build();
+        return terrain;
+    }
+
+    /**
+     * Uploads a terrain built by {@link #loadAsync()}. Must be called on the
+     * render thread.
+     *
+     * If the terrain has been loaded with {@link #load()} while the
+     * background load was running, the loaded terrain is kept: it may have
+     * been modified since. The terrain built in the background is dropped.
+     *
+     * @param loaded
+     *            terrain returned by {@link #loadAsync()}
+     */
+    public void loadSync(Terrain loaded) {
+        if (terrain != null) {
+            loaded.dispose();
             return;
         }
-        data = floatArray.toArray();
 
-        terrain = new Terrain(meta.getTerrain().getSize(), data);
-        terrain.init();
-        terrain.update();
+        loaded.upload();
+        if (transform != null) {
+            loaded.setTransform(transform);
+        } else {
+            transform = loaded.transform;
+        }
+        data = loaded.heightData;
+        terrain = loaded;
+        applyDependencies();
+    }
+
+    /**
+     * Frees the height data & the terrain mesh. Dependencies & the transform
+     * are kept, so the terrain can be loaded again later.
+     */
+    public void unload() {
+        if (terrain != null) {
+            terrain.dispose();
+            terrain = null;
+        }
+        data = null;
+    }
+
+    /**
+     * @param keepQuantized
+     *            if true, terrains stored with 16 bit heights keep them in
+     *            memory. Such terrains are read only.
+     */
+    public void setKeepQuantized(boolean keepQuantized) {
+        this.keepQuantized = keepQuantized;
+    }
+
+    public boolean isKeepQuantized() {
+        return keepQuantized;
+    }
+
+    /**
+     * @param compactVertices
+     *            if true, the terrain is built in the compact vertex format
+     * @see Terrain#setCompactVertices(boolean)
+     */
+    public void setCompactVertices(boolean compactVertices) {
+        this.compactVertices = compactVertices;
+    }
+
+    public boolean isCompactVertices() {
+        return compactVertices;
+    }
+
+    public boolean isLoaded() {
+        return terrain != null;
+    }
+
+    /**
+     * Sets the transform of the terrain. The transform survives unloading.
+     *
+     * @param transform
+     *            world transform
+     */
+    public void setTransform(Matrix4 transform) {
+        this.transform = transform;
+        if (terrain != null) {
+            terrain.setTransform(transform);
+        }
+    }
+
+    public Matrix4 getTransform() {
+        return transform;
+    }
+
+    /**
+     * @return approximate memory used by the loaded terrain in bytes
+     */
+    public long getMemoryUsage() {
+        return terrain == null ? 0 : terrain.getMemoryUsage();
     }
 
     @Override
@@ -206,6 +327,9 @@ public class TerrainAsset extends Asset {
 
     @Override
     public void applyDependencies() {
+        // not loaded yet, dependencies are applied in loadSync()
+        if (terrain == null) return;
+
         TerrainTexture terrainTexture = terrain.getTerrainTexture();
 
         if (splatmap == null) {
@@ -239,11 +363,12 @@ public class TerrainAsset extends Asset {
             terrainTexture.setSplatTexture(new SplatTexture(SplatTexture.Channel.A, splatA));
         }
 
-        terrain.update();
+        final MetaTerrain metaTerrain = meta.getTerrain();
+        terrainTexture.setAutoSplat(metaTerrain.isAutoSplatSculpting() ? metaTerrain.getAutoSplat() : null);
     }
 
     @Override
     public void dispose() {
-
+        unload();
     }
 }
@@ -20,11 +20,14 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.mbrlabs.mundus.commons.assets.AssetType;
+import com.mbrlabs.mundus.commons.terrain.AutoSplat;
+import com.mbrlabs.mundus.commons.terrain.SplatRule;
+import com.mbrlabs.mundus.commons.terrain.SplatTexture;
 
 /**
  *
  * @author Marcus Brummer
- * @version 26-10-2016
+ * @version 17-10-2026
  */
 public class MetaLoader {
 
@@ -63,10 +66,39 @@ public class MetaLoader {
         terrain.setSplatG(jsonTerrain.getString(MetaTerrain.JSON_SPLAT_G, null));
         terrain.setSplatB(jsonTerrain.getString(MetaTerrain.JSON_SPLAT_B, null));
         terrain.setSplatA(jsonTerrain.getString(MetaTerrain.JSON_SPLAT_A, null));
+        terrain.setHeightPrecision(jsonTerrain.getFloat(MetaTerrain.JSON_HEIGHT_PRECISION, 0));
+        if (jsonTerrain.has(MetaTerrain.JSON_TILE_X) && jsonTerrain.has(MetaTerrain.JSON_TILE_Z)) {
+            terrain.setTile(jsonTerrain.getInt(MetaTerrain.JSON_TILE_X), jsonTerrain.getInt(MetaTerrain.JSON_TILE_Z));
+        }
+        parseAutoSplat(terrain, jsonTerrain.get(MetaTerrain.JSON_AUTO_SPLAT));
 
         meta.setTerrain(terrain);
     }
 
+    private void parseAutoSplat(MetaTerrain terrain, JsonValue jsonAutoSplat) {
+        if(jsonAutoSplat == null) return;
+
+        final AutoSplat autoSplat = new AutoSplat();
+        final JsonValue rules = jsonAutoSplat.get(MetaTerrain.JSON_AUTO_SPLAT_RULES);
+        if(rules != null) {
+            for(final JsonValue jsonRule : rules) {
+                final SplatRule rule = new SplatRule(
+                        SplatTexture.Channel.valueOf(jsonRule.getString(MetaTerrain.JSON_RULE_CHANNEL)));
+                rule.strength(jsonRule.getFloat(MetaTerrain.JSON_RULE_STRENGTH, 1));
+                final float[] height = jsonRule.get(MetaTerrain.JSON_RULE_HEIGHT).asFloatArray();
+                final float[] slope = jsonRule.get(MetaTerrain.JSON_RULE_SLOPE).asFloatArray();
+                final float[] curvature = jsonRule.get(MetaTerrain.JSON_RULE_CURVATURE).asFloatArray();
+                rule.height(height[0], height[1], height[2]);
+                rule.slope(slope[0], slope[1], slope[2]);
+                rule.curvature(curvature[0], curvature[1], curvature[2]);
+                autoSplat.addRule(rule);
+            }
+        }
+
+        terrain.setAutoSplat(autoSplat);
+        terrain.setAutoSplatSculpting(jsonAutoSplat.getBoolean(MetaTerrain.JSON_AUTO_SPLAT_SCULPT, false));
+    }
+
     private void parseModel(Meta meta, JsonValue jsonModel) {
         if(jsonModel == null) return;
 
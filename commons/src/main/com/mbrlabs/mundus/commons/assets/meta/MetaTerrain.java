@@ -16,10 +16,12 @@
 
 package com.mbrlabs.mundus.commons.assets.meta;
 
+import com.mbrlabs.mundus.commons.terrain.AutoSplat;
+
 /**
  *
  * @author Marcus Brummer
- * @version 26-10-2016
+ * @version 17-10-2026
  */
 public class MetaTerrain {
 
@@ -30,6 +32,18 @@ public class MetaTerrain {
     public static final String JSON_SPLAT_G = "g";
     public static final String JSON_SPLAT_B = "b";
     public static final String JSON_SPLAT_A = "a";
+    public static final String JSON_HEIGHT_PRECISION = "hp";
+    public static final String JSON_TILE_X = "tx";
+    public static final String JSON_TILE_Z = "tz";
+    public static final String JSON_AUTO_SPLAT = "auto";
+    public static final String JSON_AUTO_SPLAT_SCULPT = "sculpt";
+    public static final String JSON_AUTO_SPLAT_RULES = "rules";
+    public static final String JSON_RULE_CHANNEL = "ch";
+    public static final String JSON_RULE_STRENGTH = "s";
+    // min, max & blend of a range
+    public static final String JSON_RULE_HEIGHT = "h";
+    public static final String JSON_RULE_SLOPE = "sl";
+    public static final String JSON_RULE_CURVATURE = "c";
 
     private int size;
     private String splatmap;
@@ -39,6 +53,19 @@ public class MetaTerrain {
     private String splatB;
     private String splatA;
 
+    // quantization step of the stored heights, 0 for float heights
+    private float heightPrecision;
+
+    // position in the world tile grid
+    private boolean tile;
+    private int tileX;
+    private int tileZ;
+
+    // splat rules, null if there are none
+    private AutoSplat autoSplat;
+    // true if the rules are applied while sculpting
+    private boolean autoSplatSculpting;
+
     public String getSplatmap() {
         return splatmap;
     }
@@ -87,6 +114,65 @@ public class MetaTerrain {
         this.splatA = splatA;
     }
 
+    /**
+     * @return quantization step of the stored heights or 0 if they are
+     *         stored as floats
+     */
+    public float getHeightPrecision() {
+        return heightPrecision;
+    }
+
+    public void setHeightPrecision(float heightPrecision) {
+        this.heightPrecision = heightPrecision;
+    }
+
+    /**
+     * @return true if the terrain is a tile of a streamed world
+     */
+    public boolean isTile() {
+        return tile;
+    }
+
+    public int getTileX() {
+        return tileX;
+    }
+
+    public int getTileZ() {
+        return tileZ;
+    }
+
+    public void setTile(int tileX, int tileZ) {
+        this.tile = true;
+        this.tileX = tileX;
+        this.tileZ = tileZ;
+    }
+
+    public void clearTile() {
+        this.tile = false;
+        this.tileX = 0;
+        this.tileZ = 0;
+    }
+
+    public AutoSplat getAutoSplat() {
+        return autoSplat;
+    }
+
+    public void setAutoSplat(AutoSplat autoSplat) {
+        this.autoSplat = autoSplat;
+    }
+
+    /**
+     * @return true if the splat rules are re-applied to the sculpted region
+     *         while sculpting
+     */
+    public boolean isAutoSplatSculpting() {
+        return autoSplatSculpting;
+    }
+
+    public void setAutoSplatSculpting(boolean autoSplatSculpting) {
+        this.autoSplatSculpting = autoSplatSculpting;
+    }
+
     public int getSize() {
         return size;
     }
@@ -105,6 +191,10 @@ public class MetaTerrain {
                 ", splatG='" + splatG + '\'' +
                 ", splatB='" + splatB + '\'' +
                 ", splatA='" + splatA + '\'' +
+                ", heightPrecision=" + heightPrecision +
+                ", tile=" + (tile ? tileX + "," + tileZ : "none") +
+                ", autoSplatRules=" + (autoSplat == null ? 0 : autoSplat.getRules().size) +
+                ", autoSplatSculpting=" + autoSplatSculpting +
                 '}';
     }
 }
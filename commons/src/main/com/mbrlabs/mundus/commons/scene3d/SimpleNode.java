@@ -21,26 +21,37 @@ import com.badlogic.gdx.math.Quaternion;
 import com.badlogic.gdx.math.Vector3;
 
 /**
- * Very simple and incredible inefficient implementation of a scene graph node.
+ * Simple implementation of a scene graph node.
  *
- * Inefficient, because each call to getTransform() multiplies all parent
- * transformation matrices without caching them.
+ * The local & world transformation matrices are cached. Changing the local
+ * transform or the parent marks the world transform of the node & all its
+ * descendants dirty; it is recomputed on the next read. Reading the transform
+ * of a node that didn't move is a lookup.
  *
  * @author Marcus Brummer
- * @version 09-06-2016
+ * @version 17-10-2026
  */
 public class SimpleNode<T extends SimpleNode> extends BaseNode<T> {
 
     static boolean WORLD_SPACE_TRANSFORM = true;
-    private static Matrix4 tempMat = new Matrix4();
 
     private Vector3 localPosition;
     private Quaternion localRotation;
     private Vector3 localScale;
 
+    // localPosition, localRotation & localScale as matrix
+    private final Matrix4 local = new Matrix4();
     // root * p0 * p1 * localMat = combined (absolute transfrom)
     private Matrix4 combined;
 
+    // true if the local matrix needs to be rebuilt
+    private boolean localDirty = true;
+    // true if combined needs to be recomputed. If a node is dirty, all its
+    // descendants are dirty as well.
+    private boolean worldDirty = true;
+    // incremented every time combined changes
+    private int transformVersion = 0;
+
     public SimpleNode(int id) {
         super(id);
         localPosition = new Vector3();
@@ -93,59 +104,118 @@ public class SimpleNode<T extends SimpleNode> extends BaseNode<T> {
         return getTransform().getScale(out);
     }
 
+    /**
+     * The returned matrix is cached & updated in place. Don't modify it.
+     */
     @Override
     public Matrix4 getTransform() {
+        if (!worldDirty) return combined;
+
+        if (localDirty) {
+            local.set(localPosition, localRotation, localScale);
+            localDirty = false;
+        }
         if (parent == null) {
-            return combined.set(localPosition, localRotation, localScale);
+            combined.set(local);
+        } else {
+            combined.set(parent.getTransform()).mul(local);
+        }
+        worldDirty = false;
+        transformVersion++;
+
+        return combined;
+    }
+
+    /**
+     * @return counter that changes every time the world transform of this
+     *         node has been recomputed. Can be used to skip work if a node
+     *         didn't move.
+     */
+    public int getTransformVersion() {
+        getTransform();
+        return transformVersion;
+    }
+
+    private void markLocalDirty() {
+        localDirty = true;
+        markWorldDirty();
+    }
+
+    private void markWorldDirty() {
+        // descendants of a dirty node are dirty already
+        if (worldDirty) return;
+        worldDirty = true;
+        if (children != null) {
+            for (int i = 0; i < children.size; i++) {
+                ((SimpleNode) children.get(i)).markWorldDirty();
+            }
         }
+    }
 
-        combined.set(localPosition, localRotation, localScale);
-        return combined.mulLeft(parent.getTransform());
+    @Override
+    public void setParent(T parent) {
+        super.setParent(parent);
+        markWorldDirty();
+    }
+
+    @Override
+    public void remove() {
+        super.remove();
+        markWorldDirty();
     }
 
     @Override
     public void translate(Vector3 v) {
         localPosition.add(v);
+        markLocalDirty();
     }
 
     @Override
     public void translate(float x, float y, float z) {
         localPosition.add(x, y, z);
+        markLocalDirty();
     }
 
     @Override
     public void rotate(Quaternion q) {
         localRotation.mulLeft(q);
+        markLocalDirty();
     }
 
     @Override
     public void rotate(float x, float y, float z, float w) {
         localRotation.mulLeft(x, y, z, w);
+        markLocalDirty();
     }
 
     @Override
     public void scale(Vector3 v) {
         localScale.scl(v);
+        markLocalDirty();
     }
 
     @Override
     public void scale(float x, float y, float z) {
         localScale.scl(x, y, z);
+        markLocalDirty();
     }
 
     @Override
     public void setLocalPosition(float x, float y, float z) {
         localPosition.set(x, y, z);
+        markLocalDirty();
     }
 
     @Override
     public void setLocalRotation(float x, float y, float z, float w) {
         localRotation.set(x, y, z, w);
+        markLocalDirty();
     }
 
     @Override
     public void setLocalScale(float x, float y, float z) {
         localScale.set(x, y, z);
+        markLocalDirty();
     }
 
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fills the splatmap of a terrain from height, slope & curvature.
+ *
+ * Every channel with a {@link SplatRule} gets the weight of its rules (the
+ * largest if a channel has several). Channels without a rule keep their
+ * painted weight. If the weights of a pixel sum up to more than 1, the rule
+ * weights are scaled down to fit next to the painted ones, the base texture
+ * gets what's left. Evaluating the same rules twice doesn't change the
+ * splatmap.
+ *
+ * Rows are evaluated in parallel straight into the pixmap. After sculpting,
+ * only the modified region needs to be evaluated again.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class AutoSplat {
+
+    private static final int ROWS_PER_TASK = 32;
+
+    private final Array<SplatRule> rules = new Array<SplatRule>(SplatRule.class);
+
+    public AutoSplat addRule(SplatRule rule) {
+        rules.add(rule);
+        return this;
+    }
+
+    public void removeRule(SplatRule rule) {
+        rules.removeValue(rule, true);
+    }
+
+    public Array<SplatRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Evaluates the rules for the whole splatmap.
+     */
+    public void apply(Terrain terrain, SplatMap splatmap) {
+        apply(terrain, splatmap, 0, 0, terrain.vertexResolution - 1, terrain.vertexResolution - 1);
+    }
+
+    /**
+     * Evaluates the rules for the part of the splatmap that is affected by a
+     * region of modified vertices. Marks that part dirty, upload it with
+     * {@link SplatMap#updateDirtyRegion()}.
+     *
+     * @param minX
+     *            first modified vertex on the x axis
+     * @param minZ
+     *            first modified vertex on the z axis
+     * @param maxX
+     *            last modified vertex on the x axis (inclusive)
+     * @param maxZ
+     *            last modified vertex on the z axis (inclusive)
+     */
+    public void apply(final Terrain terrain, SplatMap splatmap, int minX, int minZ, int maxX, int maxZ) {
+        final int[] pixelRegion = new int[4];
+        if (!getAffectedPixels(terrain, splatmap, minX, minZ, maxX, maxZ, pixelRegion)) return;
+
+        final int res = terrain.vertexResolution;
+        final int width = splatmap.getWidth();
+        final float pixelsPerVertexX = width / (float) (res - 1);
+        final float pixelsPerVertexZ = splatmap.getHeight() / (float) (res - 1);
+        final int fromX = pixelRegion[0];
+        final int fromY = pixelRegion[1];
+        final int toX = pixelRegion[2];
+        final int toY = pixelRegion[3];
+        splatmap.markDirty(fromX, fromY, toX - fromX + 1, toY - fromY + 1);
+
+        final SplatRule[] rules = this.rules.toArray();
+        final ByteBuffer pixels = splatmap.getPixmap().getPixels();
+
+        ParallelUtils.parallelFor(fromY, toY + 1, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    final float gz = (y + 0.5f) / pixelsPerVertexZ;
+                    for (int x = fromX; x <= toX; x++) {
+                        final float gx = (x + 0.5f) / pixelsPerVertexX;
+                        evaluate(terrain, rules, gx, gz, pixels, (y * width + x) * SplatMap.BYTES_PER_PIXEL);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes the pixels {@link #apply(Terrain, SplatMap, int, int, int, int)}
+     * writes for a region of modified vertices. Normals & curvature of the
+     * neighbouring vertices change as well, so the pixels reach 2 vertices
+     * beyond the region.
+     *
+     * @param out
+     *            receives the first pixel on the x & y axis and the last
+     *            pixel on the x & y axis (inclusive)
+     * @return false if there are no rules or no pixel is affected
+     */
+    public boolean getAffectedPixels(Terrain terrain, SplatMap splatmap, int minX, int minZ, int maxX, int maxZ,
+            int[] out) {
+        if (rules.size == 0) return false;
+
+        final int res = terrain.vertexResolution;
+        final int width = splatmap.getWidth();
+        final int height = splatmap.getHeight();
+        final float pixelsPerVertexX = width / (float) (res - 1);
+        final float pixelsPerVertexZ = height / (float) (res - 1);
+        out[0] = Math.max(0, MathUtils.floor((minX - 2) * pixelsPerVertexX - 0.5f));
+        out[1] = Math.max(0, MathUtils.floor((minZ - 2) * pixelsPerVertexZ - 0.5f));
+        out[2] = Math.min(width - 1, MathUtils.ceil((maxX + 2) * pixelsPerVertexX - 0.5f));
+        out[3] = Math.min(height - 1, MathUtils.ceil((maxZ + 2) * pixelsPerVertexZ - 0.5f));
+        return out[0] <= out[2] && out[1] <= out[3];
+    }
+
+    /**
+     * Writes the weights at grid position gx,gz into the pixel at byte index
+     * i.
+     */
+    private static void evaluate(Terrain terrain, SplatRule[] rules, float gx, float gz, ByteBuffer pixels, int i) {
+        final int res = terrain.vertexResolution;
+        final int x0 = Math.min((int) gx, res - 2);
+        final int z0 = Math.min((int) gz, res - 2);
+        final float fx = Math.min(1, gx - x0);
+        final float fz = Math.min(1, gz - z0);
+        final float w00 = (1 - fx) * (1 - fz);
+        final float w10 = fx * (1 - fz);
+        final float w01 = (1 - fx) * fz;
+        final float w11 = fx * fz;
+
+        final float h = w00 * terrain.height(z0 * res + x0) + w10 * terrain.height(z0 * res + x0 + 1)
+                + w01 * terrain.height((z0 + 1) * res + x0) + w11 * terrain.height((z0 + 1) * res + x0 + 1);
+
+        // gradient from the vertex normals, which are computed in grid units
+        final float nx = w00 * terrain.normalX(x0, z0) + w10 * terrain.normalX(x0 + 1, z0)
+                + w01 * terrain.normalX(x0, z0 + 1) + w11 * terrain.normalX(x0 + 1, z0 + 1);
+        final float nz = w00 * terrain.normalZ(x0, z0) + w10 * terrain.normalZ(x0 + 1, z0)
+                + w01 * terrain.normalZ(x0, z0 + 1) + w11 * terrain.normalZ(x0 + 1, z0 + 1);
+        final float dx = nx * (res - 1) / (2f * terrain.terrainWidth);
+        final float dz = nz * (res - 1) / (2f * terrain.terrainDepth);
+        final float slope = (float) Math.toDegrees(Math.atan(Math.sqrt(dx * dx + dz * dz)));
+
+        final float curvature = w00 * curvature(terrain, x0, z0) + w10 * curvature(terrain, x0 + 1, z0)
+                + w01 * curvature(terrain, x0, z0 + 1) + w11 * curvature(terrain, x0 + 1, z0 + 1);
+
+        // largest weight per channel, -1 for channels without a rule
+        float r = -1, g = -1, b = -1, a = -1;
+        for (SplatRule rule : rules) {
+            final float weight = rule.evaluate(h, slope, curvature);
+            switch (rule.channel) {
+            case R:
+                r = Math.max(r, weight);
+                break;
+            case G:
+                g = Math.max(g, weight);
+                break;
+            case B:
+                b = Math.max(b, weight);
+                break;
+            default:
+                a = Math.max(a, weight);
+                break;
+            }
+        }
+
+        // painted channels stay as they are, the rules get the remaining room
+        int painted = 0;
+        if (r < 0) painted += pixels.get(i) & 0xFF;
+        if (g < 0) painted += pixels.get(i + 1) & 0xFF;
+        if (b < 0) painted += pixels.get(i + 2) & 0xFF;
+        if (a < 0) painted += pixels.get(i + 3) & 0xFF;
+        final int room = Math.max(0, 255 - painted);
+        final int rb = toByte(r), gb = toByte(g), bb = toByte(b), ab = toByte(a);
+        final int ruled = rb + gb + bb + ab;
+        final int scale = Math.max(room, ruled);
+
+        if (r >= 0) pixels.put(i, fit(rb, room, scale));
+        if (g >= 0) pixels.put(i + 1, fit(gb, room, scale));
+        if (b >= 0) pixels.put(i + 2, fit(bb, room, scale));
+        if (a >= 0) pixels.put(i + 3, fit(ab, room, scale));
+    }
+
+    /**
+     * Scales a rule weight down by room / scale, scale being at least room.
+     */
+    private static byte fit(int weight, int room, int scale) {
+        return (byte) (scale == 0 ? 0 : weight * room / scale);
+    }
+
+    private static float curvature(Terrain terrain, int x, int z) {
+        final int res = terrain.vertexResolution;
+        final int xM1 = Math.max(0, x - 1);
+        final int xP1 = Math.min(res - 1, x + 1);
+        final int zM1 = Math.max(0, z - 1);
+        final int zP1 = Math.min(res - 1, z + 1);
+        final float neighbours = terrain.height(z * res + xM1) + terrain.height(z * res + xP1)
+                + terrain.height(zM1 * res + x) + terrain.height(zP1 * res + x);
+        return neighbours * 0.25f - terrain.height(z * res + x);
+    }
+
+    /**
+     * @return weight in [0, 255], 0 for channels without a rule
+     */
+    private static int toByte(float weight) {
+        return Math.max(0, Math.min(255, (int) (weight * 255)));
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+/**
+ * Height field stored as unsigned 16 bit values.
+ *
+ * A height is decoded as offset + value * step. The offset is the lowest
+ * height of the field, the step is chosen so that the whole height range fits
+ * into 65536 levels. The maximum error of a decoded height is half a step.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class QuantizedHeights {
+
+    /** highest quantized value */
+    public static final int MAX_VALUE = 0xFFFF;
+
+    private final short[] values;
+    private final float offset;
+    private final float step;
+
+    /**
+     * @param values
+     *            quantized heights, interpreted as unsigned
+     * @param offset
+     *            height of value 0
+     * @param step
+     *            height difference between two successive values
+     */
+    public QuantizedHeights(short[] values, float offset, float step) {
+        this.values = values;
+        this.offset = offset;
+        this.step = step;
+    }
+
+    /**
+     * Quantizes heights with the smallest step that covers their range.
+     *
+     * @param heights
+     *            heights to quantize
+     * @return quantized heights
+     */
+    public static QuantizedHeights encode(float[] heights) {
+        return encode(heights, 0);
+    }
+
+    /**
+     * Quantizes heights.
+     *
+     * @param heights
+     *            heights to quantize
+     * @param step
+     *            requested step between two levels. If the height range
+     *            doesn't fit into 65536 levels of this size, the smallest step
+     *            that fits is used instead. Use 0 for the best precision.
+     * @return quantized heights
+     */
+    public static QuantizedHeights encode(float[] heights, float step) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float h : heights) {
+            if (h < min) min = h;
+            if (h > max) max = h;
+        }
+        if (heights.length == 0) {
+            min = max = 0;
+        }
+
+        final float minStep = (max - min) / MAX_VALUE;
+        step = Math.max(step, minStep);
+        if (step <= 0) {
+            // flat terrain
+            step = 1;
+        }
+
+        final short[] values = new short[heights.length];
+        final float invStep = 1f / step;
+        for (int i = 0; i < heights.length; i++) {
+            final int value = Math.round((heights[i] - min) * invStep);
+            values[i] = (short) Math.min(value, MAX_VALUE);
+        }
+
+        return new QuantizedHeights(values, min, step);
+    }
+
+    public float get(int index) {
+        return offset + (values[index] & 0xFFFF) * step;
+    }
+
+    /**
+     * Decodes all heights.
+     *
+     * @param out
+     *            decoded heights, at least {@link #size()} long
+     * @return out
+     */
+    public float[] decode(float[] out) {
+        for (int i = 0; i < values.length; i++) {
+            out[i] = offset + (values[i] & 0xFFFF) * step;
+        }
+        return out;
+    }
+
+    public float[] decode() {
+        return decode(new float[values.length]);
+    }
+
+    /**
+     * Largest difference between a decoded height & the given original
+     * height.
+     *
+     * @param original
+     *            heights this field was encoded from
+     * @return measured error
+     */
+    public float getError(float[] original) {
+        float error = 0;
+        for (int i = 0; i < values.length; i++) {
+            error = Math.max(error, Math.abs(get(i) - original[i]));
+        }
+        return error;
+    }
+
+    /**
+     * @return upper bound of the quantization error, which is half a step
+     */
+    public float getMaxError() {
+        return step / 2f;
+    }
+
+    public short[] getValues() {
+        return values;
+    }
+
+    public float getOffset() {
+        return offset;
+    }
+
+    public float getStep() {
+        return step;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+}
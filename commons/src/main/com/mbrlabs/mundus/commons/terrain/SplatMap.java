@@ -16,25 +16,51 @@
 
 package com.mbrlabs.mundus.commons.terrain;
 
-import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.BufferUtils;
 import com.mbrlabs.mundus.commons.assets.PixmapTextureAsset;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+import java.nio.ByteBuffer;
 
 /**
+ * Weights of the 4 splat channels of a terrain, stored in a RGBA8888
+ * pixmap.
+ *
+ * The weight of the base texture is 1 minus the sum of the channels, so the
+ * channels of a pixel never sum up to more than 1. All operations work
+ * directly on the bytes of the pixmap. Bulk operations process the rows in
+ * parallel.
+ *
+ * Modified pixels are tracked in a dirty rectangle. Only that part of the
+ * texture is uploaded by {@link #updateDirtyRegion()}.
+ *
  * @author Marcus Brummer
- * @version 31-01-2016
+ * @version 17-10-2026
  */
 public class SplatMap {
 
     public static final int DEFAULT_SIZE = 512;
 
+    private static final int ROWS_PER_TASK = 64;
+    static final int BYTES_PER_PIXEL = 4;
+
     private int width;
     private int height;
 
     private PixmapTextureAsset pixmapAsset;
 
-    private final Color c0 = new Color();
+    // dirty rectangle, empty if minX > maxX
+    private int dirtyMinX = Integer.MAX_VALUE;
+    private int dirtyMinY = Integer.MAX_VALUE;
+    private int dirtyMaxX = -1;
+    private int dirtyMaxY = -1;
+
+    // rows of the dirty rectangle, packed for the upload
+    private ByteBuffer staging;
 
     public SplatMap(PixmapTextureAsset asset) {
         Pixmap.setBlending(Pixmap.Blending.None);
@@ -54,22 +80,56 @@ public class SplatMap {
     }
 
     public void clearChannel(SplatTexture.Channel channel) {
-        Pixmap pixmap = getPixmap();
-        for (int smX = 0; smX < pixmap.getWidth(); smX++) {
-            for (int smY = 0; smY < pixmap.getHeight(); smY++) {
-                c0.set(pixmap.getPixel(smX, smY));
-                if (channel == SplatTexture.Channel.R) {
-                    c0.set(0, c0.g, c0.b, c0.a);
-                } else if (channel == SplatTexture.Channel.G) {
-                    c0.set(c0.r, 0, c0.b, c0.a);
-                } else if (channel == SplatTexture.Channel.B) {
-                    c0.set(c0.r, c0.g, 0, c0.a);
-                } else if (channel == SplatTexture.Channel.A) {
-                    c0.set(c0.r, c0.g, c0.b, 0);
+        setChannel(channel, 0);
+    }
+
+    /**
+     * Sets a channel of all pixels. The set channel keeps its value, the
+     * other channels are scaled down where the sum would exceed 1. Does
+     * nothing for the base channel, which has no
+     * weight of its own.
+     *
+     * @param channel
+     *            channel to set
+     * @param value
+     *            weight from 0 to 1
+     */
+    public void setChannel(SplatTexture.Channel channel, float value) {
+        if (channel == SplatTexture.Channel.BASE) return;
+        markDirty(0, 0, width, height);
+
+        final ByteBuffer pixels = getPixmap().getPixels();
+        final int offset = channelOffset(channel);
+        final int weight = toByte(value);
+        ParallelUtils.parallelFor(0, height, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                final int end = to * width * BYTES_PER_PIXEL;
+                for (int i = from * width * BYTES_PER_PIXEL; i < end; i += BYTES_PER_PIXEL) {
+                    pixels.put(i + offset, (byte) weight);
+                    if (weight != 0) {
+                        normalizeOthers(pixels, i, offset);
+                    }
                 }
-                pixmap.drawPixel(smX, smY, Color.rgba8888(c0));
             }
-        }
+        });
+    }
+
+    /**
+     * Scales down all pixels whose channels sum up to more than 1.
+     */
+    public void normalize() {
+        markDirty(0, 0, width, height);
+        final ByteBuffer pixels = getPixmap().getPixels();
+        ParallelUtils.parallelFor(0, height, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                final int end = to * width * BYTES_PER_PIXEL;
+                for (int i = from * width * BYTES_PER_PIXEL; i < end; i += BYTES_PER_PIXEL) {
+                    normalize(pixels, i);
+                }
+            }
+        });
     }
 
     public void clear() {
@@ -79,8 +139,72 @@ public class SplatMap {
         updateTexture();
     }
 
+    /**
+     * Uploads the whole pixmap. Use this after modifying the pixmap directly.
+     */
     public void updateTexture() {
         getTexture().draw(getPixmap(), 0, 0);
+        clearDirty();
+    }
+
+    /**
+     * Uploads the pixels modified since the last upload.
+     */
+    public void updateDirtyRegion() {
+        if (dirtyMinX > dirtyMaxX || dirtyMinY > dirtyMaxY) return;
+
+        final int x = dirtyMinX;
+        final int y = dirtyMinY;
+        final int w = dirtyMaxX - dirtyMinX + 1;
+        final int h = dirtyMaxY - dirtyMinY + 1;
+        clearDirty();
+
+        final ByteBuffer pixels = getPixmap().getPixels();
+        final ByteBuffer data;
+        if (w == width) {
+            // whole rows are contiguous already
+            data = pixels.duplicate();
+            data.position(y * width * BYTES_PER_PIXEL);
+            data.limit((y + h) * width * BYTES_PER_PIXEL);
+        } else {
+            // GLES 2 can't skip bytes between rows, so pack the rows
+            final int rowBytes = w * BYTES_PER_PIXEL;
+            if (staging == null || staging.capacity() < rowBytes * h) {
+                staging = BufferUtils.newByteBuffer(rowBytes * h);
+            }
+            staging.clear();
+            final ByteBuffer src = pixels.duplicate();
+            for (int row = y; row < y + h; row++) {
+                final int start = (row * width + x) * BYTES_PER_PIXEL;
+                src.limit(start + rowBytes);
+                src.position(start);
+                staging.put(src);
+            }
+            staging.flip();
+            data = staging;
+        }
+
+        getTexture().bind();
+        Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+        Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, x, y, w, h, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, data);
+    }
+
+    /**
+     * Adds a rectangle to the region that is uploaded by
+     * {@link #updateDirtyRegion()}. Clipped to the splatmap.
+     */
+    public void markDirty(int x, int y, int w, int h) {
+        dirtyMinX = Math.max(0, Math.min(dirtyMinX, x));
+        dirtyMinY = Math.max(0, Math.min(dirtyMinY, y));
+        dirtyMaxX = Math.min(width - 1, Math.max(dirtyMaxX, x + w - 1));
+        dirtyMaxY = Math.min(height - 1, Math.max(dirtyMaxY, y + h - 1));
+    }
+
+    private void clearDirty() {
+        dirtyMinX = Integer.MAX_VALUE;
+        dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = -1;
+        dirtyMaxY = -1;
     }
 
     public int getHeight() {
@@ -91,31 +215,95 @@ public class SplatMap {
         return width;
     }
 
-    public int additiveBlend(int pixelColor, SplatTexture.Channel channel, float strength) {
-        c0.set(pixelColor);
+    /**
+     * Adds weight to a channel of a pixel. Adding to the base channel takes
+     * weight away from all other channels. If the channels sum up to more
+     * than 1 afterwards, they are scaled down.
+     *
+     * @param x
+     *            pixel column
+     * @param y
+     *            pixel row
+     * @param channel
+     *            painted channel
+     * @param strength
+     *            added weight from 0 to 1
+     */
+    public void additiveBlend(int x, int y, SplatTexture.Channel channel, float strength) {
+        markDirty(x, y, 1, 1);
+        additiveBlend(getPixmap().getPixels(), width, x, y, channel, strength);
+    }
+
+    /**
+     * Same as {@link #additiveBlend(int, int, SplatTexture.Channel, float)},
+     * but on a copy of the splatmap pixels.
+     *
+     * @param pixels
+     *            RGBA8888 pixels
+     * @param width
+     *            width of the splatmap in pixels
+     */
+    public static void additiveBlend(ByteBuffer pixels, int width, int x, int y, SplatTexture.Channel channel,
+            float strength) {
+        final int i = (y * width + x) * BYTES_PER_PIXEL;
+        final int delta = toByte(strength);
         if (channel == SplatTexture.Channel.BASE) {
-            c0.sub(strength, strength, strength, strength);
-        } else if (channel == SplatTexture.Channel.R) {
-            c0.add(strength, 0, 0, 0);
-        } else if (channel == SplatTexture.Channel.G) {
-            c0.add(0, strength, 0, 0);
-        } else if (channel == SplatTexture.Channel.B) {
-            c0.add(0, 0, strength, 0);
-        } else if (channel == SplatTexture.Channel.A) {
-            c0.add(0, 0, 0, strength);
+            for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+                pixels.put(i + c, (byte) Math.max(0, (pixels.get(i + c) & 0xFF) - delta));
+            }
+        } else {
+            final int index = i + channelOffset(channel);
+            pixels.put(index, (byte) Math.min(255, (pixels.get(index) & 0xFF) + delta));
+            normalize(pixels, i);
         }
+    }
+
+    /**
+     * Scales the channels of the pixel at byte index i down, if they sum up to
+     * more than 1.
+     */
+    static void normalize(ByteBuffer pixels, int i) {
+        final int r = pixels.get(i) & 0xFF;
+        final int g = pixels.get(i + 1) & 0xFF;
+        final int b = pixels.get(i + 2) & 0xFF;
+        final int a = pixels.get(i + 3) & 0xFF;
+        final int sum = r + g + b + a;
+        if (sum <= 255) return;
 
-        // prevent the sum to be greater than 1
-        final float sum = c0.r + c0.g + c0.b + c0.a;
-        if (sum > 1f) {
-            final float correction = 1f / sum;
-            c0.r *= correction;
-            c0.g *= correction;
-            c0.b *= correction;
-            c0.a *= correction;
+        pixels.put(i, (byte) (r * 255 / sum));
+        pixels.put(i + 1, (byte) (g * 255 / sum));
+        pixels.put(i + 2, (byte) (b * 255 / sum));
+        pixels.put(i + 3, (byte) (a * 255 / sum));
+    }
+
+    /**
+     * Scales the channels of the pixel at byte index i down, except the
+     * channel at the given offset, if all channels sum up to more than 1.
+     */
+    static void normalizeOthers(ByteBuffer pixels, int i, int keepOffset) {
+        final int keep = pixels.get(i + keepOffset) & 0xFF;
+        int others = 0;
+        for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+            if (c != keepOffset) others += pixels.get(i + c) & 0xFF;
         }
+        if (keep + others <= 255) return;
+
+        final int room = 255 - keep;
+        for (int c = 0; c < BYTES_PER_PIXEL; c++) {
+            if (c == keepOffset) continue;
+            pixels.put(i + c, (byte) ((pixels.get(i + c) & 0xFF) * room / others));
+        }
+    }
+
+    /**
+     * @return byte offset of a channel within a RGBA8888 pixel
+     */
+    static int channelOffset(SplatTexture.Channel channel) {
+        return channel.ordinal() - SplatTexture.Channel.R.ordinal();
+    }
 
-        return Color.rgba8888(c0);
+    private static int toByte(float value) {
+        return Math.max(0, Math.min(255, (int) (value * 255)));
     }
 
 }
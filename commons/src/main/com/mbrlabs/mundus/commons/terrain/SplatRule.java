@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Computes the weight of a splat channel from the shape of the terrain.
+ *
+ * The weight is 1 where height, slope & curvature are within their ranges
+ * and fades out smoothly over the blend distance of each range. Ranges are
+ * unbounded by default.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class SplatRule {
+
+    public final SplatTexture.Channel channel;
+
+    /** weight where all ranges match */
+    public float strength = 1;
+
+    public float minHeight = -Float.MAX_VALUE;
+    public float maxHeight = Float.MAX_VALUE;
+    public float heightBlend = 0;
+
+    /** slope in degrees, 0 is flat */
+    public float minSlope = 0;
+    public float maxSlope = 90;
+    public float slopeBlend = 0;
+
+    /**
+     * Curvature is the average height of the 4 neighbours of a vertex minus
+     * its own height. Positive in valleys, negative on ridges.
+     */
+    public float minCurvature = -Float.MAX_VALUE;
+    public float maxCurvature = Float.MAX_VALUE;
+    public float curvatureBlend = 0;
+
+    public SplatRule(SplatTexture.Channel channel) {
+        if (channel == SplatTexture.Channel.BASE) {
+            throw new GdxRuntimeException("The base channel gets the remaining weight & can't have a rule");
+        }
+        this.channel = channel;
+    }
+
+    public SplatRule strength(float strength) {
+        this.strength = strength;
+        return this;
+    }
+
+    public SplatRule height(float min, float max, float blend) {
+        this.minHeight = min;
+        this.maxHeight = max;
+        this.heightBlend = blend;
+        return this;
+    }
+
+    public SplatRule slope(float minDegrees, float maxDegrees, float blend) {
+        this.minSlope = minDegrees;
+        this.maxSlope = maxDegrees;
+        this.slopeBlend = blend;
+        return this;
+    }
+
+    public SplatRule curvature(float min, float max, float blend) {
+        this.minCurvature = min;
+        this.maxCurvature = max;
+        this.curvatureBlend = blend;
+        return this;
+    }
+
+    /**
+     * @param height
+     *            height of the terrain
+     * @param slope
+     *            slope in degrees
+     * @param curvature
+     *            curvature, see {@link #minCurvature}
+     * @return weight of the channel from 0 to strength
+     */
+    public float evaluate(float height, float slope, float curvature) {
+        return strength * range(height, minHeight, maxHeight, heightBlend)
+                * range(slope, minSlope, maxSlope, slopeBlend)
+                * range(curvature, minCurvature, maxCurvature, curvatureBlend);
+    }
+
+    private static float range(float value, float min, float max, float blend) {
+        if (value < min) return fade(min - value, blend);
+        if (value > max) return fade(value - max, blend);
+        return 1;
+    }
+
+    /**
+     * Smooth fade from 1 to 0 over the blend distance.
+     */
+    private static float fade(float distance, float blend) {
+        if (distance >= blend) return 0;
+        final float t = 1 - distance / blend;
+        return t * t * (3 - 2 * t);
+    }
+
+}
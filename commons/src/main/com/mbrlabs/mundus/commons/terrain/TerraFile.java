@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SharedLibraryLoader;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads & writes .terra files, which hold the height data of a terrain.
+ *
+ * Version 1 files are a gzipped stream of big endian floats without any
+ * header. They can still be read, but are never written.
+ *
+ * Version 2 files start with an uncompressed header followed by a chunk
+ * table and the chunks. Each chunk holds a band of rows of the height field.
+ * All values are little endian:
+ *
+ * <pre>
+ * byte[4]  magic "TERA"
+ * int      version
+ * int      vertex resolution
+ * int      terrain size
+ * float    min height
+ * float    max height
+ * int      compression (see {@link Compression})
+ * int      height format (see {@link Format})
+ * float    quantization step
+ * int      rows per chunk
+ * int      number of chunks
+ * int[2]   offset & length in bytes of every chunk
+ * ...      chunks
+ * </pre>
+ *
+ * Heights are stored either as floats or as unsigned shorts, which decode
+ * to min height + value * quantization step. Uncompressed files are memory
+ * mapped and copied straight into the height array. Compressed chunks are
+ * inflated in parallel.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerraFile {
+
+    public static final int VERSION = 2;
+
+    private static final byte[] MAGIC = { 'T', 'E', 'R', 'A' };
+    private static final int HEADER_SIZE = 44;
+    private static final int CHUNK_SIZE = 1 << 18;
+
+    /**
+     * Compression of the chunks.
+     */
+    public enum Compression {
+        NONE, DEFLATE
+    }
+
+    /**
+     * Storage format of a single height.
+     */
+    public enum Format {
+        FLOAT32(4), UINT16(2);
+
+        private final int bytes;
+
+        Format(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Header of a .terra file.
+     */
+    public static class Header {
+        public int version;
+        public int resolution;
+        public int size;
+        public float minHeight;
+        public float maxHeight;
+        public Compression compression;
+        public Format format;
+        /** quantization step of UINT16 heights */
+        public float step;
+    }
+
+    /**
+     * Reads the height data of a .terra file.
+     *
+     * @param file
+     *            .terra file, version 1 or 2
+     * @return height data
+     */
+    public static float[] read(FileHandle file) {
+        return read(file, new Header());
+    }
+
+    /**
+     * Reads the height data of a .terra file. Quantized heights are decoded.
+     *
+     * @param file
+     *            .terra file, version 1 or 2
+     * @param header
+     *            filled with the header of the file. For version 1 files only
+     *            version, resolution and min/max height are known.
+     * @return height data
+     */
+    public static float[] read(FileHandle file, Header header) {
+        final Object heights = readHeights(file, header);
+        if (heights instanceof short[]) {
+            return new QuantizedHeights((short[]) heights, header.minHeight, header.step).decode();
+        }
+        return (float[]) heights;
+    }
+
+    /**
+     * Reads the height data of a .terra file as 16 bit heights. Float heights
+     * are quantized with the best possible precision.
+     *
+     * @param file
+     *            .terra file, version 1 or 2
+     * @param header
+     *            filled with the header of the file
+     * @return quantized height data
+     */
+    public static QuantizedHeights readQuantized(FileHandle file, Header header) {
+        final Object heights = readHeights(file, header);
+        if (heights instanceof short[]) {
+            return new QuantizedHeights((short[]) heights, header.minHeight, header.step);
+        }
+        return QuantizedHeights.encode((float[]) heights);
+    }
+
+    /**
+     * Reads only the header of a .terra file. Version 1 files have no
+     * header, for them only version, compression and format are filled in.
+     *
+     * @param file
+     *            .terra file, version 1 or 2
+     * @param header
+     *            filled with the header of the file
+     */
+    public static void readHeader(FileHandle file, Header header) {
+        try {
+            final ByteBuffer buffer = open(file);
+            if (!hasMagic(buffer)) {
+                header.version = 1;
+                header.compression = Compression.DEFLATE;
+                header.format = Format.FLOAT32;
+                return;
+            }
+            readHeader(buffer, header);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to read terra file: " + file.path(), e);
+        }
+    }
+
+    /**
+     * @return float[] or short[], depending on the format of the file
+     */
+    private static Object readHeights(FileHandle file, Header header) {
+        try {
+            final ByteBuffer buffer = open(file);
+            if (!hasMagic(buffer)) {
+                return readVersion1(file, header);
+            }
+            return readChunked(buffer, header);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to read terra file: " + file.path(), e);
+        }
+    }
+
+    /**
+     * Writes float heights as .terra file.
+     *
+     * @param file
+     *            target file
+     * @param heights
+     *            height data of a square terrain
+     * @param size
+     *            terrain size
+     * @param compression
+     *            compression of the chunks
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static void write(File file, float[] heights, int size, Compression compression) throws IOException {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float h : heights) {
+            min = Math.min(min, h);
+            max = Math.max(max, h);
+        }
+        if (heights.length == 0) {
+            min = max = 0;
+        }
+        write(file, heights, heights.length, Format.FLOAT32, min, max, 0, size, compression);
+    }
+
+    /**
+     * Writes quantized heights as .terra file. This halves the file size
+     * compared to float heights.
+     *
+     * @param file
+     *            target file
+     * @param heights
+     *            quantized height data of a square terrain
+     * @param size
+     *            terrain size
+     * @param compression
+     *            compression of the chunks
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static void write(File file, QuantizedHeights heights, int size, Compression compression)
+            throws IOException {
+        int max = 0;
+        for (short value : heights.getValues()) {
+            max = Math.max(max, value & 0xFFFF);
+        }
+        write(file, heights.getValues(), heights.size(), Format.UINT16, heights.getOffset(),
+                heights.getOffset() + max * heights.getStep(), heights.getStep(), size, compression);
+    }
+
+    private static void write(File file, final Object heights, final int count, final Format format, float min,
+            float max, float step, int size, final Compression compression) throws IOException {
+        final int resolution = (int) Math.sqrt(count);
+        final int rowsPerChunk = Math.max(1, CHUNK_SIZE / (resolution * format.bytes));
+        final int chunkCount = (resolution + rowsPerChunk - 1) / rowsPerChunk;
+
+        // encode chunks
+        final byte[][] chunks = new byte[chunkCount][];
+        ParallelUtils.parallelFor(0, chunkCount, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    final int start = i * rowsPerChunk * resolution;
+                    final int end = Math.min(count, start + rowsPerChunk * resolution);
+                    chunks[i] = encodeChunk(heights, format, start, end - start, compression);
+                }
+            }
+        });
+
+        // header & chunk table
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + chunkCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(resolution);
+        header.putInt(size);
+        header.putFloat(min);
+        header.putFloat(max);
+        header.putInt(compression.ordinal());
+        header.putInt(format.ordinal());
+        header.putFloat(step);
+        header.putInt(rowsPerChunk);
+        header.putInt(chunkCount);
+        int offset = header.capacity();
+        for (byte[] chunk : chunks) {
+            header.putInt(offset);
+            header.putInt(chunk.length);
+            offset += chunk.length;
+        }
+        header.flip();
+
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            final FileChannel channel = out.getChannel();
+            channel.write(header);
+            for (byte[] chunk : chunks) {
+                channel.write(ByteBuffer.wrap(chunk));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] encodeChunk(Object heights, Format format, int start, int count,
+            Compression compression) {
+        final ByteBuffer raw = ByteBuffer.allocate(count * format.bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (format == Format.FLOAT32) {
+            raw.asFloatBuffer().put((float[]) heights, start, count);
+        } else {
+            raw.asShortBuffer().put((short[]) heights, start, count);
+        }
+        if (compression == Compression.NONE) {
+            return raw.array();
+        }
+
+        final Deflater deflater = new Deflater();
+        deflater.setInput(raw.array());
+        deflater.finish();
+        int length = 0;
+        byte[] out = new byte[raw.capacity() + 64];
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                final byte[] bigger = new byte[out.length * 2];
+                System.arraycopy(out, 0, bigger, 0, length);
+                out = bigger;
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        deflater.end();
+
+        final byte[] result = new byte[length];
+        System.arraycopy(out, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Maps the file into memory if it is a regular file. Otherwise (e.g.
+     * classpath or android assets) the whole file is read into a buffer.
+     */
+    private static ByteBuffer open(FileHandle file) throws IOException {
+        File f = null;
+        try {
+            f = file.file();
+        } catch (GdxRuntimeException e) {
+            // not backed by a file
+        }
+
+        // Windows keeps mapped files locked until the buffer is garbage
+        // collected, which would make saving the terrain fail
+        if (f != null && f.isFile() && !SharedLibraryLoader.isWindows) {
+            final RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } finally {
+                raf.close();
+            }
+        }
+
+        return ByteBuffer.wrap(file.readBytes());
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the fixed part of a version 2 header. Leaves the buffer
+     * positioned at rows per chunk.
+     */
+    private static void readHeader(ByteBuffer buffer, Header header) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(MAGIC.length);
+        header.version = buffer.getInt();
+        if (header.version != VERSION) {
+            throw new IOException("Unsupported terra file version: " + header.version);
+        }
+        header.resolution = buffer.getInt();
+        header.size = buffer.getInt();
+        header.minHeight = buffer.getFloat();
+        header.maxHeight = buffer.getFloat();
+        final int compressionIndex = buffer.getInt();
+        if (compressionIndex < 0 || compressionIndex >= Compression.values().length) {
+            throw new IOException("Corrupt terra file, unsupported compression: " + compressionIndex);
+        }
+        header.compression = Compression.values()[compressionIndex];
+        final int formatIndex = buffer.getInt();
+        if (formatIndex < 0 || formatIndex >= Format.values().length) {
+            throw new IOException("Corrupt terra file, unsupported height format: " + formatIndex);
+        }
+        header.format = Format.values()[formatIndex];
+        header.step = buffer.getFloat();
+    }
+
+    private static Object readChunked(final ByteBuffer buffer, Header header) throws IOException {
+        readHeader(buffer, header);
+        final int rowsPerChunk = buffer.getInt();
+        final int chunkCount = buffer.getInt();
+        if (header.resolution < 0 || rowsPerChunk <= 0 || chunkCount < 0
+                || (long) chunkCount * 8 > buffer.limit() - HEADER_SIZE) {
+            throw new IOException("Corrupt terra file header");
+        }
+        if ((long) header.resolution * header.resolution * header.format.bytes > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt terra file, resolution too large: " + header.resolution);
+        }
+        // every chunk but the last one holds exactly rowsPerChunk rows
+        final long expectedChunks = ((long) header.resolution + rowsPerChunk - 1) / rowsPerChunk;
+        if (chunkCount != expectedChunks) {
+            throw new IOException("Corrupt terra file, " + chunkCount + " chunks instead of " + expectedChunks);
+        }
+
+        final int[] offsets = new int[chunkCount];
+        final int[] lengths = new int[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            offsets[i] = buffer.getInt();
+            lengths[i] = buffer.getInt();
+            if (offsets[i] < 0 || lengths[i] < 0 || (long) offsets[i] + lengths[i] > buffer.limit()) {
+                throw new IOException("Corrupt terra file, chunk " + i + " is out of bounds");
+            }
+        }
+
+        final int count = header.resolution * header.resolution;
+        final Object heights = header.format == Format.FLOAT32 ? new float[count] : new short[count];
+        final int resolution = header.resolution;
+        final Format format = header.format;
+        final Compression compression = header.compression;
+        ParallelUtils.parallelFor(0, chunkCount, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                // every task needs its own view of the buffer
+                final ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = from; i < to; i++) {
+                    final long start = (long) i * rowsPerChunk * resolution;
+                    final int length = (int) (Math.min(count, start + (long) rowsPerChunk * resolution) - start);
+                    view.limit(offsets[i] + lengths[i]);
+                    view.position(offsets[i]);
+                    decodeChunk(view, heights, format, (int) start, length, compression);
+                }
+            }
+        });
+
+        return heights;
+    }
+
+    private static void decodeChunk(ByteBuffer chunk, Object heights, Format format, int start, int count,
+            Compression compression) {
+        ByteBuffer raw;
+        if (compression == Compression.NONE) {
+            if (chunk.remaining() < count * format.bytes) {
+                throw new GdxRuntimeException("Corrupt terra file chunk, truncated");
+            }
+            raw = chunk.slice();
+        } else {
+            final byte[] input = new byte[chunk.remaining()];
+            chunk.get(input);
+            final byte[] output = new byte[count * format.bytes];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(input);
+                int length = 0;
+                while (length < output.length && !inflater.finished()) {
+                    final int inflated = inflater.inflate(output, length, output.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new GdxRuntimeException("Corrupt terra file chunk, truncated");
+                    }
+                    length += inflated;
+                }
+                if (length != output.length) {
+                    throw new GdxRuntimeException("Corrupt terra file chunk, " + length + " of " + output.length
+                            + " bytes");
+                }
+            } catch (DataFormatException e) {
+                throw new GdxRuntimeException("Corrupt terra file chunk", e);
+            } finally {
+                inflater.end();
+            }
+            raw = ByteBuffer.wrap(output);
+        }
+
+        raw.order(ByteOrder.LITTLE_ENDIAN);
+        if (format == Format.FLOAT32) {
+            raw.asFloatBuffer().get((float[]) heights, start, count);
+        } else {
+            raw.asShortBuffer().get((short[]) heights, start, count);
+        }
+    }
+
+    private static float[] readVersion1(FileHandle file, Header header) throws IOException {
+        InputStream is = null;
+        final byte[] bytes;
+        try {
+            is = new GZIPInputStream(file.read());
+            bytes = StreamUtils.copyStreamToByteArray(is, (int) file.length() * 4);
+        } finally {
+            StreamUtils.closeQuietly(is);
+        }
+
+        final float[] heights = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).asFloatBuffer().get(heights);
+
+        header.version = 1;
+        header.resolution = (int) Math.sqrt(heights.length);
+        header.compression = Compression.DEFLATE;
+        header.format = Format.FLOAT32;
+        header.minHeight = Float.MAX_VALUE;
+        header.maxHeight = -Float.MAX_VALUE;
+        for (float h : heights) {
+            header.minHeight = Math.min(header.minHeight, h);
+            header.maxHeight = Math.max(header.maxHeight, h);
+        }
+        return heights;
+    }
+
+}
@@ -16,43 +16,46 @@
 
 package com.mbrlabs.mundus.commons.terrain;
 
-import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.VertexAttribute;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g3d.Material;
-import com.badlogic.gdx.graphics.g3d.Model;
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
 import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.graphics.g3d.RenderableProvider;
-import com.badlogic.gdx.graphics.g3d.model.MeshPart;
 import com.badlogic.gdx.graphics.g3d.utils.MeshBuilder;
-import com.badlogic.gdx.graphics.g3d.utils.MeshPartBuilder;
-import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.math.collision.Ray;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Pool;
-import com.mbrlabs.mundus.commons.utils.MathUtils;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
 
 /**
+ * Heightfield terrain.
+ *
+ * The grid is split into patches of patchSize x patchSize quads, each with its
+ * own mesh. If a camera is set, patches outside of the view frustum are
+ * skipped and every visible patch is rendered at a level of detail, which
+ * depends on its distance to the camera. See {@link TerrainPatch}.
+ *
  * @author Marcus Brummer
- * @version 30-11-2015
+ * @version 17-10-2026
  */
 public class Terrain implements RenderableProvider, Disposable {
 
     public static final int DEFAULT_SIZE = 1600;
     public static final int DEFAULT_VERTEX_RESOLUTION = 100;
+    public static final int DEFAULT_PATCH_SIZE = 64;
 
-    private static final MeshPartBuilder.VertexInfo tempVertexInfo = new MeshPartBuilder.VertexInfo();
-    private static final Vector3 c00 = new Vector3();
-    private static final Vector3 c01 = new Vector3();
-    private static final Vector3 c10 = new Vector3();
-    private static final Vector3 c11 = new Vector3();
+    /** skirts end this far below the lowest vertex of a patch */
+    private static final float SKIRT_MARGIN = 1f;
 
     public Matrix4 transform;
+    /** editable heights, null if the terrain is quantized */
     public float[] heightData;
     public int terrainWidth = 1200;
     public int terrainDepth = 1200;
@@ -61,32 +64,42 @@ public class Terrain implements RenderableProvider, Disposable {
     // used for building the mesh
     private VertexAttributes attribs;
     private final Vector2 uvScale = new Vector2(60, 60);
-    private float vertices[];
     private int stride;
     private int posPos;
     private int norPos;
     private int uvPos;
+    private int heightPos;
+    private boolean compactVertices;
 
     // Textures
     private TerrainTexture terrainTexture;
     private final Material material;
 
-    // Mesh
-    private Model model;
-    public ModelInstance modelInstance;
-    private Mesh mesh;
+    // read only 16 bit heights, used instead of heightData
+    private QuantizedHeights quantizedHeights;
 
-    private Terrain(int vertexResolution) {
-        this.transform = new Matrix4();
-        this.attribs = MeshBuilder.createAttributes(VertexAttributes.Usage.Position | VertexAttributes.Usage.Normal
-                | VertexAttributes.Usage.TextureCoordinates);
-        this.posPos = attribs.getOffset(VertexAttributes.Usage.Position, -1);
-        this.norPos = attribs.getOffset(VertexAttributes.Usage.Normal, -1);
-        this.uvPos = attribs.getOffset(VertexAttributes.Usage.TextureCoordinates, -1);
-        this.stride = attribs.vertexSize / 4;
+    // Patches
+    private final int patchSize;
+    private final Array<TerrainPatch> patches = new Array<TerrainPatch>();
 
+    // Ray picking
+    private final TerrainRaycaster raycaster;
+    private final TerrainRaycaster.Hit tmpHit = new TerrainRaycaster.Hit();
+
+    // Level of detail
+    private Camera camera;
+    private float lodDistance;
+    private final BoundingBox tmpBounds = new BoundingBox();
+
+    private Terrain(int vertexResolution, int patchSize) {
+        if (patchSize < 1 || patchSize > TerrainPatch.MAX_SIZE) {
+            throw new IllegalArgumentException("Patch size must be between 1 and " + TerrainPatch.MAX_SIZE);
+        }
+        this.transform = new Matrix4();
         this.vertexResolution = vertexResolution;
+        this.patchSize = patchSize;
         this.heightData = new float[vertexResolution * vertexResolution];
+        this.raycaster = new TerrainRaycaster(this);
 
         this.terrainTexture = new TerrainTexture();
         this.terrainTexture.setTerrain(this);
@@ -95,163 +108,478 @@ public class Terrain implements RenderableProvider, Disposable {
     }
 
     public Terrain(int size, float[] heightData) {
-        this((int) Math.sqrt(heightData.length));
+        this(size, heightData, DEFAULT_PATCH_SIZE);
+    }
+
+    /**
+     * @param patchSize
+     *            quads per patch side, from 1 to
+     *            {@link TerrainPatch#MAX_SIZE}
+     */
+    public Terrain(int size, float[] heightData, int patchSize) {
+        this((int) Math.sqrt(heightData.length), patchSize);
         this.terrainWidth = size;
         this.terrainDepth = size;
         this.heightData = heightData;
     }
 
+    /**
+     * Creates a read only terrain, which keeps its heights quantized in
+     * memory. Call {@link #dequantize()} before modifying it.
+     */
+    public Terrain(int size, QuantizedHeights heights) {
+        this((int) Math.sqrt(heights.size()), DEFAULT_PATCH_SIZE);
+        this.terrainWidth = size;
+        this.terrainDepth = size;
+        this.heightData = null;
+        this.quantizedHeights = heights;
+    }
+
     public void setTransform(Matrix4 transform) {
         this.transform = transform;
-        modelInstance.transform = this.transform;
     }
 
+    /**
+     * Creates & uploads the terrain mesh. Must be called on the render
+     * thread.
+     */
     public void init() {
-        final int numVertices = this.vertexResolution * vertexResolution;
-        final int numIndices = (this.vertexResolution - 1) * (vertexResolution - 1) * 6;
+        build();
+        upload();
+    }
+
+    /**
+     * Creates the patches & builds their vertices. Doesn't touch OpenGL, so
+     * it can be called from a background thread. {@link #upload()} must be
+     * called on the render thread afterwards.
+     */
+    public void build() {
+        createAttributes();
+        final int quads = vertexResolution - 1;
+        for (int z = 0; z < quads; z += patchSize) {
+            for (int x = 0; x < quads; x += patchSize) {
+                int skirts = 0;
+                if (z > 0) skirts |= TerrainPatch.SKIRT_TOP;
+                if (z + patchSize < quads) skirts |= TerrainPatch.SKIRT_BOTTOM;
+                if (x > 0) skirts |= TerrainPatch.SKIRT_LEFT;
+                if (x + patchSize < quads) skirts |= TerrainPatch.SKIRT_RIGHT;
+
+                TerrainPatch patch = new TerrainPatch(x, z, Math.min(patchSize, quads - x),
+                        Math.min(patchSize, quads - z), skirts);
+                patch.init(attribs);
+                patches.add(patch);
+            }
+        }
+
+        if (lodDistance <= 0) {
+            lodDistance = 2f * patchSize * terrainWidth / (float) quads;
+        }
 
-        mesh = new Mesh(true, numVertices, numIndices, attribs);
-        this.vertices = new float[numVertices * stride];
-        mesh.setIndices(buildIndices());
         buildVertices();
-        mesh.setVertices(vertices);
+    }
+
+    private void createAttributes() {
+        if (compactVertices) {
+            attribs = new VertexAttributes(new VertexAttribute(VertexAttributes.Usage.Generic, 1, "a_height"),
+                    new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, "a_packed"));
+            posPos = -1;
+            norPos = -1;
+            uvPos = -1;
+            heightPos = 0;
+        } else {
+            attribs = MeshBuilder.createAttributes(VertexAttributes.Usage.Position | VertexAttributes.Usage.Normal
+                    | VertexAttributes.Usage.TextureCoordinates);
+            posPos = attribs.getOffset(VertexAttributes.Usage.Position, -1);
+            norPos = attribs.getOffset(VertexAttributes.Usage.Normal, -1);
+            uvPos = attribs.getOffset(VertexAttributes.Usage.TextureCoordinates, -1);
+            heightPos = posPos + 1;
+        }
+        stride = attribs.vertexSize / 4;
+    }
+
+    /**
+     * Switches between the standard & the compact vertex format. Must be
+     * called before the terrain is built.
+     *
+     * The standard format stores position, normal & uv (32 bytes per vertex)
+     * and works with every shader. The compact format stores only the height
+     * & a packed vertex, holding an octahedral encoded normal & the position
+     * of the vertex in its patch (8 bytes per vertex). Position & uv are
+     * reconstructed by the {@link TerrainShader}.
+     *
+     * @param compactVertices
+     *            true for the compact format
+     */
+    public void setCompactVertices(boolean compactVertices) {
+        if (patches.size > 0) {
+            throw new GdxRuntimeException("Vertex format can't be changed after the terrain has been built");
+        }
+        if (compactVertices && patchSize > TerrainPatch.MAX_COMPACT_SIZE) {
+            throw new GdxRuntimeException("Compact vertices need a patch size <= " + TerrainPatch.MAX_COMPACT_SIZE);
+        }
+        this.compactVertices = compactVertices;
+    }
 
-        MeshPart meshPart = new MeshPart(null, mesh, 0, numIndices, GL20.GL_TRIANGLES);
-        meshPart.update();
-        ModelBuilder mb = new ModelBuilder();
-        mb.begin();
-        mb.part(meshPart, material);
-        model = mb.end();
-        modelInstance = new ModelInstance(model);
-        modelInstance.transform = transform;
+    public boolean isCompactVertices() {
+        return compactVertices;
+    }
+
+    public Vector2 getUvScale() {
+        return uvScale;
+    }
+
+    /**
+     * Uploads the vertices built by {@link #build()} to the GPU.
+     */
+    public void upload() {
+        for (TerrainPatch patch : patches) {
+            patch.upload();
+        }
+    }
+
+    public boolean isUploaded() {
+        return patches.size > 0 && patches.first().isUploaded();
+    }
+
+    /**
+     * @return approximate memory used by the height data & vertex buffers in
+     *         bytes. The vertices are counted twice, once on the heap and
+     *         once on the GPU.
+     */
+    public long getMemoryUsage() {
+        long bytes = quantizedHeights != null ? quantizedHeights.size() * 2L : heightData.length * 4L;
+        for (TerrainPatch patch : patches) {
+            bytes += patch.getMemoryUsage();
+            if (patch.isUploaded()) bytes += patch.vertices.length * 4L;
+        }
+        return bytes;
+    }
+
+    /**
+     * Replaces the float heights with 16 bit heights, which halves their
+     * memory. The terrain becomes read only until {@link #dequantize()} is
+     * called. The mesh is not rebuilt, call {@link #update()} to see the
+     * quantized result.
+     *
+     * @param step
+     *            requested precision, see
+     *            {@link QuantizedHeights#encode(float[], float)}
+     * @return quantized heights; their max error tells the precision loss
+     */
+    public QuantizedHeights quantize(float step) {
+        if (quantizedHeights == null) {
+            quantizedHeights = QuantizedHeights.encode(heightData, step);
+            heightData = null;
+        }
+        return quantizedHeights;
+    }
+
+    /**
+     * Decodes quantized heights into heightData, so the terrain can be
+     * modified again.
+     */
+    public void dequantize() {
+        if (quantizedHeights != null) {
+            heightData = quantizedHeights.decode();
+            quantizedHeights = null;
+        }
+    }
+
+    public boolean isQuantized() {
+        return quantizedHeights != null;
+    }
+
+    /**
+     * @return quantized heights or null if the terrain is not quantized
+     */
+    public QuantizedHeights getQuantizedHeights() {
+        return quantizedHeights;
+    }
+
+    /**
+     * Height of the grid vertex at x,z.
+     */
+    public float getHeight(int x, int z) {
+        return height(z * vertexResolution + x);
+    }
+
+    float height(int index) {
+        return quantizedHeights != null ? quantizedHeights.get(index) : heightData[index];
     }
 
     public Vector3 getVertexPosition(Vector3 out, int x, int z) {
         final float dx = (float) x / (float) (vertexResolution - 1);
         final float dz = (float) z / (float) (vertexResolution - 1);
-        final float height = heightData[z * vertexResolution + x];
+        final float height = height(z * vertexResolution + x);
         out.set(dx * this.terrainWidth, height, dz * this.terrainDepth);
         return out;
     }
 
+    /**
+     * Returns the height of the terrain surface at world coordinates. The
+     * height is interpolated on the same triangles the mesh is made of.
+     *
+     * Sampling does not allocate & does not use shared temporary objects. It
+     * can be called from multiple threads, as long as the terrain is not
+     * modified at the same time.
+     *
+     * @param worldX
+     *            the x coord in world
+     * @param worldZ
+     *            the z coord in world
+     * @return height at that point or 0 if the point is not on the terrain
+     */
     public float getHeightAtWorldCoord(float worldX, float worldZ) {
-        transform.getTranslation(c00);
-        float terrainX = worldX - c00.x;
-        float terrainZ = worldZ - c00.z;
-
-        float gridSquareSize = terrainWidth / ((float) vertexResolution - 1);
-        int gridX = (int) Math.floor(terrainX / gridSquareSize);
-        int gridZ = (int) Math.floor(terrainZ / gridSquareSize);
-
-        if (gridX >= vertexResolution - 1 || gridZ >= vertexResolution - 1 || gridX < 0 || gridZ < 0) {
+        final int res = vertexResolution;
+        final float gridX = (worldX - transform.val[Matrix4.M03]) / terrainWidth * (res - 1);
+        final float gridZ = (worldZ - transform.val[Matrix4.M23]) / terrainDepth * (res - 1);
+        if (gridX < 0 || gridZ < 0 || gridX > res - 1 || gridZ > res - 1) {
             return 0;
         }
 
-        float xCoord = (terrainX % gridSquareSize) / gridSquareSize;
-        float zCoord = (terrainZ % gridSquareSize) / gridSquareSize;
+        final int x = Math.min((int) gridX, res - 2);
+        final int z = Math.min((int) gridZ, res - 2);
+        final float fx = gridX - x;
+        final float fz = gridZ - z;
+
+        final float h00 = height(z * res + x);
+        final float h11 = height((z + 1) * res + x + 1);
+        // the diagonal of every quad goes from c00 to c11
+        if (fx >= fz) {
+            final float h10 = height(z * res + x + 1);
+            return h00 + fx * (h10 - h00) + fz * (h11 - h10);
+        }
+        final float h01 = height((z + 1) * res + x);
+        return h00 + fz * (h01 - h00) + fx * (h11 - h01);
+    }
 
-        c01.set(1, heightData[(gridZ + 1) * vertexResolution + gridX], 0);
-        c10.set(0, heightData[gridZ * vertexResolution + gridX + 1], 1);
+    /**
+     * Samples the terrain height at many points at once.
+     *
+     * @param xs
+     *            x coords in world
+     * @param zs
+     *            z coords in world
+     * @param out
+     *            used for storing the heights; points outside of the terrain
+     *            get a height of 0
+     */
+    public void sampleHeights(float[] xs, float[] zs, float[] out) {
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = getHeightAtWorldCoord(xs[i], zs[i]);
+        }
+    }
+
+    /**
+     * Samples the terrain normal at many points at once.
+     *
+     * @param xs
+     *            x coords in world
+     * @param zs
+     *            z coords in world
+     * @param out
+     *            used for storing the normals as x, y, z triples; must be at
+     *            least 3 times as long as xs
+     * @see #getNormalAtWorldCoord(float, float, Vector3)
+     */
+    public void sampleNormals(float[] xs, float[] zs, float[] out) {
+        final int res = vertexResolution;
+        final float offsetX = transform.val[Matrix4.M03];
+        final float offsetZ = transform.val[Matrix4.M23];
+
+        for (int i = 0; i < xs.length; i++) {
+            final float gridX = (xs[i] - offsetX) / terrainWidth * (res - 1);
+            final float gridZ = (zs[i] - offsetZ) / terrainDepth * (res - 1);
+            final int o = i * 3;
+            if (gridX < 0 || gridZ < 0 || gridX > res - 1 || gridZ > res - 1) {
+                out[o] = 0;
+                out[o + 1] = 1;
+                out[o + 2] = 0;
+                continue;
+            }
 
-        // we are in upper left triangle of the square
-        if (xCoord <= (1 - zCoord)) {
-            c00.set(0, heightData[gridZ * vertexResolution + gridX], 0);
-            return MathUtils.barryCentric(c00, c10, c01, new Vector2(zCoord, xCoord));
+            final int x = Math.min((int) gridX, res - 2);
+            final int z = Math.min((int) gridZ, res - 2);
+            final float fx = gridX - x;
+            final float fz = gridZ - z;
+
+            // bilinear blend of the unnormalized vertex normals
+            final float w00 = (1 - fx) * (1 - fz);
+            final float w10 = fx * (1 - fz);
+            final float w01 = (1 - fx) * fz;
+            final float w11 = fx * fz;
+            float nx = w00 * normalX(x, z) + w10 * normalX(x + 1, z)
+                    + w01 * normalX(x, z + 1) + w11 * normalX(x + 1, z + 1);
+            float nz = w00 * normalZ(x, z) + w10 * normalZ(x + 1, z)
+                    + w01 * normalZ(x, z + 1) + w11 * normalZ(x + 1, z + 1);
+            float ny = 2;
+
+            final float len = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            out[o] = nx / len;
+            out[o + 1] = ny / len;
+            out[o + 2] = nz / len;
         }
-        // bottom right triangle
-        c11.set(1, heightData[(gridZ + 1) * vertexResolution + gridX + 1], 1);
-        return MathUtils.barryCentric(c10, c11, c01, new Vector2(zCoord, xCoord));
     }
 
+    /**
+     * Intersects a ray with the terrain.
+     *
+     * @param out
+     *            used for storing the intersection point
+     * @param ray
+     *            ray in world space
+     * @return out or null if the ray misses the terrain. In that case out is
+     *         not modified.
+     */
     public Vector3 getRayIntersection(Vector3 out, Ray ray) {
-        // TODO improve performance. use binary search
-        float curDistance = 2;
-        int rounds = 0;
+        if (!raycaster.intersect(ray, tmpHit)) return null;
+        return out.set(tmpHit.position);
+    }
 
-        ray.getEndPoint(out, curDistance);
-        boolean isUnder = isUnderTerrain(out);
+    /**
+     * Intersects a ray with the terrain.
+     *
+     * @param ray
+     *            ray in world space
+     * @param out
+     *            used for storing distance, position & normal of the
+     *            intersection
+     * @return true if the ray hits the terrain, false otherwise
+     */
+    public boolean getRayIntersection(Ray ray, TerrainRaycaster.Hit out) {
+        return raycaster.intersect(ray, out);
+    }
 
-        while (true) {
-            rounds++;
-            ray.getEndPoint(out, curDistance);
+    public TerrainRaycaster getRaycaster() {
+        return raycaster;
+    }
 
-            boolean u = isUnderTerrain(out);
-            if (u != isUnder || rounds == 10000) {
-                return out;
+    /**
+     * Rebuilds the vertices of all patches on the worker threads of
+     * {@link ParallelUtils}.
+     */
+    private void buildVertices() {
+        ParallelUtils.parallelFor(0, patches.size, 1, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    final TerrainPatch patch = patches.get(i);
+                    patch.minHeight = Float.MAX_VALUE;
+                    patch.maxHeight = -Float.MAX_VALUE;
+                    buildVertices(patch, 0, 0, patch.width, patch.depth);
+                    buildSkirts(patch);
+                }
             }
-            curDistance += u ? -0.1f : 0.1f;
-        }
-
+        });
     }
 
-    private short[] buildIndices() {
-        final int w = vertexResolution - 1;
-        final int h = vertexResolution - 1;
-        short indices[] = new short[w * h * 6];
-        int i = -1;
-        for (int y = 0; y < h; ++y) {
-            for (int x = 0; x < w; ++x) {
-                final int c00 = y * vertexResolution + x;
-                final int c10 = c00 + 1;
-                final int c01 = c00 + vertexResolution;
-                final int c11 = c10 + vertexResolution;
-                indices[++i] = (short) c11;
-                indices[++i] = (short) c10;
-                indices[++i] = (short) c00;
-                indices[++i] = (short) c00;
-                indices[++i] = (short) c01;
-                indices[++i] = (short) c11;
+    /**
+     * Rebuilds the vertices of a patch in the given range (patch space,
+     * inclusive). The height range of the patch only grows here, so the
+     * skirts & bounds stay conservative until the next full rebuild.
+     *
+     * Only writes to the given patch, so different patches can be built in
+     * parallel.
+     */
+    private void buildVertices(TerrainPatch patch, int minX, int minZ, int maxX, int maxZ) {
+        float minHeight = patch.minHeight;
+        float maxHeight = patch.maxHeight;
+
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                final int gridX = patch.gridX + x;
+                final int gridZ = patch.gridZ + z;
+                if (compactVertices) {
+                    setCompactVertex(patch.vertices, patch.gridVertex(x, z), x, z, gridX, gridZ);
+                } else {
+                    setVertex(patch.vertices, patch.gridVertex(x, z), gridX, gridZ);
+                }
+
+                final float height = height(gridZ * vertexResolution + gridX);
+                minHeight = Math.min(minHeight, height);
+                maxHeight = Math.max(maxHeight, height);
             }
         }
-        return indices;
+
+        patch.minHeight = minHeight;
+        patch.maxHeight = maxHeight;
     }
 
-    private void buildVertices() {
-        for (int x = 0; x < vertexResolution; x++) {
-            for (int z = 0; z < vertexResolution; z++) {
-                calculateVertexAt(tempVertexInfo, x, z);
-                calculateNormalAt(tempVertexInfo, x, z);
-                setVertex(z * vertexResolution + x, tempVertexInfo);
-            }
+    private void buildSkirts(TerrainPatch patch) {
+        final float skirtHeight = patch.minHeight - SKIRT_MARGIN;
+        for (int x = 0; x <= patch.width; x++) {
+            setSkirtVertex(patch, patch.gridVertex(x, 0), patch.skirtVertex(TerrainPatch.SKIRT_TOP, x), skirtHeight);
+            setSkirtVertex(patch, patch.gridVertex(x, patch.depth), patch.skirtVertex(TerrainPatch.SKIRT_BOTTOM, x),
+                    skirtHeight);
+        }
+        for (int z = 0; z <= patch.depth; z++) {
+            setSkirtVertex(patch, patch.gridVertex(0, z), patch.skirtVertex(TerrainPatch.SKIRT_LEFT, z), skirtHeight);
+            setSkirtVertex(patch, patch.gridVertex(patch.width, z), patch.skirtVertex(TerrainPatch.SKIRT_RIGHT, z),
+                    skirtHeight);
         }
+
+        final float quads = vertexResolution - 1;
+        final BoundingBox bounds = patch.bounds;
+        bounds.min.set(patch.gridX / quads * terrainWidth, skirtHeight, patch.gridZ / quads * terrainDepth);
+        bounds.max.set((patch.gridX + patch.width) / quads * terrainWidth, patch.maxHeight,
+                (patch.gridZ + patch.depth) / quads * terrainDepth);
+        bounds.set(bounds.min, bounds.max);
+    }
+
+    private void setSkirtVertex(TerrainPatch patch, int gridVertex, int skirtVertex, float height) {
+        System.arraycopy(patch.vertices, gridVertex * stride, patch.vertices, skirtVertex * stride, stride);
+        patch.vertices[skirtVertex * stride + heightPos] = height;
     }
 
-    private void setVertex(int index, MeshPartBuilder.VertexInfo info) {
+    /**
+     * Computes position, uv & normal of the grid vertex at x,z and writes it
+     * to the vertex array.
+     */
+    private void setVertex(float[] vertices, int index, int x, int z) {
+        final float dx = (float) x / (float) (vertexResolution - 1);
+        final float dz = (float) z / (float) (vertexResolution - 1);
         index *= stride;
+
         if (posPos >= 0) {
-            vertices[index + posPos] = info.position.x;
-            vertices[index + posPos + 1] = info.position.y;
-            vertices[index + posPos + 2] = info.position.z;
+            vertices[index + posPos] = dx * terrainWidth;
+            vertices[index + posPos + 1] = height(z * vertexResolution + x);
+            vertices[index + posPos + 2] = dz * terrainDepth;
         }
         if (uvPos >= 0) {
-            vertices[index + uvPos] = info.uv.x;
-            vertices[index + uvPos + 1] = info.uv.y;
+            vertices[index + uvPos] = dx * uvScale.x;
+            vertices[index + uvPos + 1] = dz * uvScale.y;
         }
         if (norPos >= 0) {
-            vertices[index + norPos] = info.normal.x;
-            vertices[index + norPos + 1] = info.normal.y;
-            vertices[index + norPos + 2] = info.normal.z;
+            final float nx = normalX(x, z);
+            final float nz = normalZ(x, z);
+            final float len = (float) Math.sqrt(nx * nx + 4 + nz * nz);
+            vertices[index + norPos] = nx / len;
+            vertices[index + norPos + 1] = 2 / len;
+            vertices[index + norPos + 2] = nz / len;
         }
     }
 
-    private MeshPartBuilder.VertexInfo calculateVertexAt(MeshPartBuilder.VertexInfo out, int x, int z) {
-        final float dx = (float) x / (float) (vertexResolution - 1);
-        final float dz = (float) z / (float) (vertexResolution - 1);
-        final float height = heightData[z * vertexResolution + x];
-
-        out.position.set(dx * this.terrainWidth, height, dz * this.terrainDepth);
-        out.uv.set(dx, dz).scl(uvScale);
-
-        return out;
-    }
-
     /**
-     * Calculates normal of a vertex at x,y based on the verticesOnZ of the
-     * surrounding vertices
+     * Writes height & packed vertex of the grid vertex at x,z in the compact
+     * format. The normal is octahedral encoded on the upper hemisphere, which
+     * is enough for a height field.
+     *
+     * The packed vertex ends up in a float slot of the vertex array, like
+     * libGDX packs colors. The patch position lives in the upper bytes & is
+     * always smaller than 128, so the bits never form a NaN that could get
+     * altered on the way to the GPU.
      */
-    private MeshPartBuilder.VertexInfo calculateNormalAt(MeshPartBuilder.VertexInfo out, int x, int y) {
-        out.normal.set(getNormalAt(x, y));
-        return out;
+    private void setCompactVertex(float[] vertices, int index, int patchX, int patchZ, int x, int z) {
+        index *= stride;
+        final float nx = normalX(x, z);
+        final float nz = normalZ(x, z);
+        // y is 2, so the l1 norm is never 0
+        final float l1 = Math.abs(nx) + 2 + Math.abs(nz);
+        final int octX = Math.round((nx / l1 * 0.5f + 0.5f) * 255);
+        final int octZ = Math.round((nz / l1 * 0.5f + 0.5f) * 255);
+
+        vertices[index] = height(z * vertexResolution + x);
+        vertices[index + 1] = Float.intBitsToFloat(octX | (octZ << 8) | (patchX << 16) | (patchZ << 24));
     }
 
     /**
@@ -268,19 +596,48 @@ public class Terrain implements RenderableProvider, Disposable {
      *         returns default <code>Vector.Y<code> normal.
      */
     public Vector3 getNormalAtWordCoordinate(float worldX, float worldZ) {
-        transform.getTranslation(c00);
-        float terrainX = worldX - c00.x;
-        float terrainZ = worldZ - c00.z;
-
-        float gridSquareSize = terrainWidth / ((float) vertexResolution - 1);
-        int gridX = (int) Math.floor(terrainX / gridSquareSize);
-        int gridZ = (int) Math.floor(terrainZ / gridSquareSize);
+        return getNormalAtWorldCoord(worldX, worldZ, new Vector3());
+    }
 
-        if (gridX >= vertexResolution - 1 || gridZ >= vertexResolution - 1 || gridX < 0 || gridZ < 0) {
-            return Vector3.Y.cpy();
+    /**
+     * Get normal at world coordinates. The normals of the surrounding vertices
+     * are interpolated bilinearly.
+     *
+     * Like {@link #getHeightAtWorldCoord(float, float)} this is safe to call
+     * from multiple threads.
+     *
+     * @param worldX
+     *            the x coord in world
+     * @param worldZ
+     *            the z coord in world
+     * @param out
+     *            used for storing the result
+     * @return out, set to <code>Vector.Y<code> if the point is not on the
+     *         terrain
+     */
+    public Vector3 getNormalAtWorldCoord(float worldX, float worldZ, Vector3 out) {
+        final int res = vertexResolution;
+        final float gridX = (worldX - transform.val[Matrix4.M03]) / terrainWidth * (res - 1);
+        final float gridZ = (worldZ - transform.val[Matrix4.M23]) / terrainDepth * (res - 1);
+        if (gridX < 0 || gridZ < 0 || gridX > res - 1 || gridZ > res - 1) {
+            return out.set(Vector3.Y);
         }
 
-        return getNormalAt(gridX, gridZ);
+        final int x = Math.min((int) gridX, res - 2);
+        final int z = Math.min((int) gridZ, res - 2);
+        final float fx = gridX - x;
+        final float fz = gridZ - z;
+
+        final float w00 = (1 - fx) * (1 - fz);
+        final float w10 = fx * (1 - fz);
+        final float w01 = (1 - fx) * fz;
+        final float w11 = fx * fz;
+        out.x = w00 * normalX(x, z) + w10 * normalX(x + 1, z)
+                + w01 * normalX(x, z + 1) + w11 * normalX(x + 1, z + 1);
+        out.y = 2;
+        out.z = w00 * normalZ(x, z) + w10 * normalZ(x + 1, z)
+                + w01 * normalZ(x, z + 1) + w11 * normalZ(x + 1, z + 1);
+        return out.nor();
     }
 
     /**
@@ -293,22 +650,42 @@ public class Terrain implements RenderableProvider, Disposable {
      * @return the normal at the point of terrain
      */
     public Vector3 getNormalAt(int x, int y) {
-        Vector3 out = new Vector3();
-        // handle edges of terrain
-        int xP1 = (x + 1 >= vertexResolution) ? vertexResolution - 1 : x + 1;
-        int yP1 = (y + 1 >= vertexResolution) ? vertexResolution - 1 : y + 1;
-        int xM1 = (x - 1 < 0) ? 0 : x - 1;
-        int yM1 = (y - 1 < 0) ? 0 : y - 1;
-
-        float hL = heightData[y * vertexResolution + xM1];
-        float hR = heightData[y * vertexResolution + xP1];
-        float hD = heightData[yM1 * vertexResolution + x];
-        float hU = heightData[yP1 * vertexResolution + x];
-        out.x = hL - hR;
+        return getNormalAt(x, y, new Vector3());
+    }
+
+    /**
+     * Get Normal at x,y point of terrain
+     *
+     * @param x
+     *            the x coord on terrain
+     * @param y
+     *            the y coord on terrain( actual z)
+     * @param out
+     *            used for storing the result
+     * @return out
+     */
+    public Vector3 getNormalAt(int x, int y, Vector3 out) {
+        out.x = normalX(x, y);
         out.y = 2;
-        out.z = hD - hU;
-        out.nor();
-        return out;
+        out.z = normalZ(x, y);
+        return out.nor();
+    }
+
+    // x component of the unnormalized vertex normal, with y = 2. Handles the
+    // edges of the terrain.
+    float normalX(int x, int z) {
+        final int res = vertexResolution;
+        final int xP1 = (x + 1 >= res) ? res - 1 : x + 1;
+        final int xM1 = (x - 1 < 0) ? 0 : x - 1;
+        return height(z * res + xM1) - height(z * res + xP1);
+    }
+
+    // z component of the unnormalized vertex normal, with y = 2
+    float normalZ(int x, int z) {
+        final int res = vertexResolution;
+        final int zP1 = (z + 1 >= res) ? res - 1 : z + 1;
+        final int zM1 = (z - 1 < 0) ? 0 : z - 1;
+        return height(zM1 * res + x) - height(zP1 * res + x);
     }
 
     public boolean isUnderTerrain(Vector3 worldCoords) {
@@ -317,8 +694,9 @@ public class Terrain implements RenderableProvider, Disposable {
     }
 
     public boolean isOnTerrain(float worldX, float worldZ) {
-        transform.getTranslation(c00);
-        return worldX >= c00.x && worldX <= c00.x + terrainWidth && worldZ >= c00.z && worldZ <= c00.z + terrainDepth;
+        final float x = transform.val[Matrix4.M03];
+        final float z = transform.val[Matrix4.M23];
+        return worldX >= x && worldX <= x + terrainWidth && worldZ >= z && worldZ <= z + terrainDepth;
     }
 
     public Vector3 getPosition(Vector3 out) {
@@ -339,19 +717,133 @@ public class Terrain implements RenderableProvider, Disposable {
         material.set(new TerrainTextureAttribute(TerrainTextureAttribute.ATTRIBUTE_SPLAT0, this.terrainTexture));
     }
 
+    public Material getMaterial() {
+        return material;
+    }
+
+    public Array<TerrainPatch> getPatches() {
+        return patches;
+    }
+
+    /**
+     * Sets the camera used for frustum culling & level of detail selection.
+     *
+     * @param camera
+     *            camera or null to render all patches at full detail
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    public float getLodDistance() {
+        return lodDistance;
+    }
+
+    /**
+     * Sets the distance up to which patches are rendered at full detail. The
+     * level of detail decreases by one every time the distance doubles.
+     *
+     * @param lodDistance
+     *            distance in world units
+     */
+    public void setLodDistance(float lodDistance) {
+        this.lodDistance = lodDistance;
+    }
+
     public void update() {
         buildVertices();
-        mesh.setVertices(vertices);
+        upload();
+        raycaster.invalidate();
+    }
+
+    /**
+     * Updates only the vertices of the given grid region. Normals of the
+     * vertices bordering the region depend on the changed heights, so the
+     * region is grown by one vertex in every direction.
+     *
+     * @param minX
+     *            first modified vertex on the x axis
+     * @param minZ
+     *            first modified vertex on the z axis
+     * @param maxX
+     *            last modified vertex on the x axis (inclusive)
+     * @param maxZ
+     *            last modified vertex on the z axis (inclusive)
+     */
+    public void update(int minX, int minZ, int maxX, int maxZ) {
+        minX = Math.max(0, minX - 1);
+        minZ = Math.max(0, minZ - 1);
+        maxX = Math.min(vertexResolution - 1, maxX + 1);
+        maxZ = Math.min(vertexResolution - 1, maxZ + 1);
+        if (minX > maxX || minZ > maxZ) return;
+        raycaster.update(minX, minZ, maxX, maxZ);
+
+        for (TerrainPatch patch : patches) {
+            final int x0 = Math.max(minX - patch.gridX, 0);
+            final int z0 = Math.max(minZ - patch.gridZ, 0);
+            final int x1 = Math.min(maxX - patch.gridX, patch.width);
+            final int z1 = Math.min(maxZ - patch.gridZ, patch.depth);
+            if (x0 > x1 || z0 > z1) continue;
+
+            buildVertices(patch, x0, z0, x1, z1);
+            buildSkirts(patch);
+
+            // the rows of the region are one contiguous range in the vertex
+            // array, the skirts follow right after the grid
+            final int first = patch.gridVertex(x0, z0);
+            patch.upload(first, patch.gridVertex(x1, z1) - first + 1);
+            final int skirts = patch.skirtVertex(TerrainPatch.SKIRT_TOP, 0);
+            patch.upload(skirts, patch.numVertices - skirts);
+        }
     }
 
     @Override
     public void getRenderables(Array<Renderable> renderables, Pool<Renderable> pool) {
-        modelInstance.getRenderables(renderables, pool);
+        for (TerrainPatch patch : patches) {
+            int lod = 0;
+            if (camera != null) {
+                tmpBounds.set(patch.bounds).mul(transform);
+                if (!camera.frustum.boundsInFrustum(tmpBounds)) continue;
+                lod = selectLod(tmpBounds, camera.position, lodDistance, patch.getLodLevels());
+            }
+
+            Renderable renderable = pool.obtain();
+            renderable.material = material;
+            renderable.meshPart.set(patch.getMeshPart(lod));
+            renderable.worldTransform.set(transform);
+            renderable.environment = null;
+            renderable.bones = null;
+            renderable.shader = null;
+            // the shader needs the patch position to decode compact vertices
+            renderable.userData = patch;
+            renderables.add(renderable);
+        }
+    }
+
+    /**
+     * Level of detail of a patch with the given world space bounds.
+     */
+    static int selectLod(BoundingBox bounds, Vector3 camPos, float lodDistance, int lodLevels) {
+        final float dx = Math.max(0, Math.max(bounds.min.x - camPos.x, camPos.x - bounds.max.x));
+        final float dy = Math.max(0, Math.max(bounds.min.y - camPos.y, camPos.y - bounds.max.y));
+        final float dz = Math.max(0, Math.max(bounds.min.z - camPos.z, camPos.z - bounds.max.z));
+        final float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        int lod = 0;
+        float threshold = lodDistance;
+        while (lod < lodLevels - 1 && distance > threshold) {
+            lod++;
+            threshold *= 2;
+        }
+        return lod;
     }
 
     @Override
     public void dispose() {
-
+        for (TerrainPatch patch : patches) {
+            patch.dispose();
+        }
+        patches.clear();
     }
 
 }
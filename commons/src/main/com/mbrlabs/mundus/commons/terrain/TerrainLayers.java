@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.assets.TextureAsset;
+
+/**
+ * Up to 16 terrain textures in one texture array, blended by weight maps.
+ *
+ * The weight of layer i is stored in channel i % 4 (RGBA) of weight map
+ * i / 4. Layer 0 additionally gets the weight that is left over. Per
+ * fragment, only the layers with the largest weights are sampled.
+ *
+ * Texture arrays need GLES 3.0 / OpenGL 3.2. The {@link TerrainShader} falls
+ * back to the 4 channel splatmap of the {@link TerrainTexture} without it.
+ * All layer textures must have the same size.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerrainLayers implements Disposable {
+
+    public static final int MAX_LAYERS = 16;
+    public static final int MAX_SAMPLED_LAYERS = 4;
+
+    private final Array<TextureAsset> layers = new Array<TextureAsset>();
+    private final Array<SplatMap> weightMaps = new Array<SplatMap>();
+    private TextureArray textureArray;
+    private int sampledLayers = 3;
+
+    public void addLayer(TextureAsset texture) {
+        if (layers.size == MAX_LAYERS) {
+            throw new GdxRuntimeException("A terrain can't have more than " + MAX_LAYERS + " layers");
+        }
+        layers.add(texture);
+    }
+
+    public Array<TextureAsset> getLayers() {
+        return layers;
+    }
+
+    public int getLayerCount() {
+        return layers.size;
+    }
+
+    /**
+     * @param weightMap
+     *            weights of the next 4 layers
+     */
+    public void addWeightMap(SplatMap weightMap) {
+        weightMaps.add(weightMap);
+    }
+
+    public Array<SplatMap> getWeightMaps() {
+        return weightMaps;
+    }
+
+    public int getSampledLayers() {
+        return Math.min(sampledLayers, layers.size);
+    }
+
+    /**
+     * @param sampledLayers
+     *            number of layers with the largest weights that are sampled
+     *            per fragment, from 1 to 4
+     */
+    public void setSampledLayers(int sampledLayers) {
+        this.sampledLayers = Math.max(1, Math.min(MAX_SAMPLED_LAYERS, sampledLayers));
+    }
+
+    /**
+     * Creates the texture array from the layer textures. Must be called on
+     * the render thread after the layers have been changed.
+     */
+    public void build() {
+        if (layers.size == 0) throw new GdxRuntimeException("Terrain layers without textures");
+        if (weightMaps.size * 4 < layers.size) {
+            throw new GdxRuntimeException(layers.size + " layers need " + (layers.size + 3) / 4 + " weight maps");
+        }
+
+        final FileHandle[] files = new FileHandle[layers.size];
+        for (int i = 0; i < layers.size; i++) {
+            files[i] = layers.get(i).getFile();
+        }
+
+        if (textureArray != null) textureArray.dispose();
+        textureArray = new TextureArray(false, Pixmap.Format.RGBA8888, files);
+        textureArray.bind();
+        Gdx.gl.glGenerateMipmap(GL30.GL_TEXTURE_2D_ARRAY);
+        textureArray.setFilter(Texture.TextureFilter.MipMapLinearLinear, Texture.TextureFilter.Linear);
+        textureArray.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
+    }
+
+    public boolean isBuilt() {
+        return textureArray != null;
+    }
+
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+
+    @Override
+    public void dispose() {
+        if (textureArray != null) {
+            textureArray.dispose();
+            textureArray = null;
+        }
+    }
+
+}
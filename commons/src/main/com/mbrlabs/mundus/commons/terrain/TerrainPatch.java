@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ShortArray;
+
+/**
+ * A rectangular section of the terrain grid with its own mesh.
+ *
+ * The index buffer of a patch holds one triangle list for every level of
+ * detail. Level n uses every 2^n-th vertex of the grid. Patch borders that
+ * touch a neighbour patch get a skirt, which hangs down from the border and
+ * hides the cracks between patches rendered at different levels of detail.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerrainPatch implements Disposable {
+
+    public static final int MAX_LOD_LEVELS = 4;
+    /** max patch size, vertices incl. skirts must fit into short indices */
+    public static final int MAX_SIZE = 252;
+    /** max patch size in the compact vertex format */
+    public static final int MAX_COMPACT_SIZE = 126;
+
+    // skirt flags
+    static final int SKIRT_TOP = 1;
+    static final int SKIRT_BOTTOM = 1 << 1;
+    static final int SKIRT_LEFT = 1 << 2;
+    static final int SKIRT_RIGHT = 1 << 3;
+
+    /** position of the first vertex in the terrain grid */
+    public final int gridX;
+    public final int gridZ;
+    /** number of quads in x & z direction */
+    public final int width;
+    public final int depth;
+    /** bounding box in terrain space */
+    public final BoundingBox bounds = new BoundingBox();
+
+    final int lodLevels;
+    final int skirts;
+    final int numVertices;
+    float[] vertices;
+    float minHeight;
+    float maxHeight;
+
+    private VertexAttributes attribs;
+    private Mesh mesh;
+    private MeshPart[] parts;
+    private int stride;
+
+    TerrainPatch(int gridX, int gridZ, int width, int depth, int skirts) {
+        this.gridX = gridX;
+        this.gridZ = gridZ;
+        this.width = width;
+        this.depth = depth;
+        this.skirts = skirts;
+        this.lodLevels = lodLevels(width, depth);
+        this.numVertices = (width + 1) * (depth + 1) + 2 * (width + 1) + 2 * (depth + 1);
+    }
+
+    /**
+     * Allocates the vertex array. Doesn't touch OpenGL, so it can be called
+     * from any thread.
+     */
+    void init(VertexAttributes attribs) {
+        this.attribs = attribs;
+        stride = attribs.vertexSize / 4;
+        vertices = new float[numVertices * stride];
+    }
+
+    /**
+     * Uploads the vertices to the GPU. Creates the mesh on the first call.
+     */
+    void upload() {
+        if (mesh == null) {
+            createMesh();
+        }
+        mesh.setVertices(vertices);
+    }
+
+    /**
+     * Uploads a range of vertices to the GPU.
+     *
+     * @param first
+     *            index of the first vertex
+     * @param count
+     *            number of vertices
+     */
+    void upload(int first, int count) {
+        mesh.updateVertices(first * stride, vertices, first * stride, count * stride);
+    }
+
+    boolean isUploaded() {
+        return mesh != null;
+    }
+
+    /**
+     * @return approximate size of the vertex & index data in bytes
+     */
+    long getMemoryUsage() {
+        return vertices.length * 4L + (mesh == null ? 0 : mesh.getMaxIndices() * 2L);
+    }
+
+    private void createMesh() {
+        final short[] indices = buildIndices(width, depth, lodLevels, skirts);
+        final int[] lodOffsets = lodOffsets(width, depth, lodLevels, skirts);
+
+        mesh = new Mesh(true, numVertices, indices.length, attribs);
+        mesh.setIndices(indices);
+
+        parts = new MeshPart[lodLevels];
+        for (int lod = 0; lod < lodLevels; lod++) {
+            final int end = (lod == lodLevels - 1) ? indices.length : lodOffsets[lod + 1];
+            parts[lod] = new MeshPart(null, mesh, lodOffsets[lod], end - lodOffsets[lod], GL20.GL_TRIANGLES);
+        }
+    }
+
+    public MeshPart getMeshPart(int lod) {
+        return parts[Math.min(lod, lodLevels - 1)];
+    }
+
+    public int getLodLevels() {
+        return lodLevels;
+    }
+
+    /**
+     * Index of a grid vertex inside this patch.
+     */
+    int gridVertex(int x, int z) {
+        return z * (width + 1) + x;
+    }
+
+    /**
+     * Index of the skirt vertex below the grid vertex at the given border
+     * position.
+     */
+    int skirtVertex(int skirt, int i) {
+        return skirtVertex(width, depth, skirt, i);
+    }
+
+    @Override
+    public void dispose() {
+        if (mesh != null) {
+            mesh.dispose();
+            mesh = null;
+        }
+    }
+
+    static int lodLevels(int width, int depth) {
+        int levels = 1;
+        while (levels < MAX_LOD_LEVELS && (1 << levels) <= Math.min(width, depth)) {
+            levels++;
+        }
+        return levels;
+    }
+
+    static int skirtVertex(int width, int depth, int skirt, int i) {
+        final int base = (width + 1) * (depth + 1);
+        switch (skirt) {
+        case SKIRT_TOP:
+            return base + i;
+        case SKIRT_BOTTOM:
+            return base + (width + 1) + i;
+        case SKIRT_LEFT:
+            return base + 2 * (width + 1) + i;
+        default:
+            return base + 2 * (width + 1) + (depth + 1) + i;
+        }
+    }
+
+    /**
+     * Grid coordinates used by a level of detail: every step-th vertex plus
+     * the last one, so that the patch border always stays closed.
+     */
+    static int[] lodCoordinates(int quads, int step) {
+        final int count = (quads + step - 1) / step + 1;
+        final int[] coords = new int[count];
+        for (int i = 0; i < count - 1; i++) {
+            coords[i] = i * step;
+        }
+        coords[count - 1] = quads;
+        return coords;
+    }
+
+    static int[] lodOffsets(int width, int depth, int lodLevels, int skirts) {
+        final int[] offsets = new int[lodLevels];
+        int offset = 0;
+        for (int lod = 0; lod < lodLevels; lod++) {
+            offsets[lod] = offset;
+            final int xs = lodCoordinates(width, 1 << lod).length - 1;
+            final int zs = lodCoordinates(depth, 1 << lod).length - 1;
+            offset += xs * zs * 6;
+            if ((skirts & SKIRT_TOP) != 0) offset += xs * 12;
+            if ((skirts & SKIRT_BOTTOM) != 0) offset += xs * 12;
+            if ((skirts & SKIRT_LEFT) != 0) offset += zs * 12;
+            if ((skirts & SKIRT_RIGHT) != 0) offset += zs * 12;
+        }
+        return offsets;
+    }
+
+    static short[] buildIndices(int width, int depth, int lodLevels, int skirts) {
+        final ShortArray indices = new ShortArray();
+        final int row = width + 1;
+
+        for (int lod = 0; lod < lodLevels; lod++) {
+            final int[] xs = lodCoordinates(width, 1 << lod);
+            final int[] zs = lodCoordinates(depth, 1 << lod);
+
+            // grid
+            for (int z = 0; z < zs.length - 1; z++) {
+                for (int x = 0; x < xs.length - 1; x++) {
+                    final int c00 = zs[z] * row + xs[x];
+                    final int c10 = zs[z] * row + xs[x + 1];
+                    final int c01 = zs[z + 1] * row + xs[x];
+                    final int c11 = zs[z + 1] * row + xs[x + 1];
+                    indices.add((short) c11);
+                    indices.add((short) c10);
+                    indices.add((short) c00);
+                    indices.add((short) c00);
+                    indices.add((short) c01);
+                    indices.add((short) c11);
+                }
+            }
+
+            // skirts
+            for (int x = 0; x < xs.length - 1; x++) {
+                if ((skirts & SKIRT_TOP) != 0) {
+                    addSkirtQuad(indices, xs[x], xs[x + 1],
+                            skirtVertex(width, depth, SKIRT_TOP, xs[x]),
+                            skirtVertex(width, depth, SKIRT_TOP, xs[x + 1]));
+                }
+                if ((skirts & SKIRT_BOTTOM) != 0) {
+                    addSkirtQuad(indices, depth * row + xs[x], depth * row + xs[x + 1],
+                            skirtVertex(width, depth, SKIRT_BOTTOM, xs[x]),
+                            skirtVertex(width, depth, SKIRT_BOTTOM, xs[x + 1]));
+                }
+            }
+            for (int z = 0; z < zs.length - 1; z++) {
+                if ((skirts & SKIRT_LEFT) != 0) {
+                    addSkirtQuad(indices, zs[z] * row, zs[z + 1] * row,
+                            skirtVertex(width, depth, SKIRT_LEFT, zs[z]),
+                            skirtVertex(width, depth, SKIRT_LEFT, zs[z + 1]));
+                }
+                if ((skirts & SKIRT_RIGHT) != 0) {
+                    addSkirtQuad(indices, zs[z] * row + width, zs[z + 1] * row + width,
+                            skirtVertex(width, depth, SKIRT_RIGHT, zs[z]),
+                            skirtVertex(width, depth, SKIRT_RIGHT, zs[z + 1]));
+                }
+            }
+        }
+
+        return indices.toArray();
+    }
+
+    /**
+     * Adds a skirt quad with both windings, so it is never culled no matter
+     * from which side the camera looks at it.
+     */
+    private static void addSkirtQuad(ShortArray indices, int a, int b, int sa, int sb) {
+        indices.add((short) a);
+        indices.add((short) b);
+        indices.add((short) sb);
+        indices.add((short) sb);
+        indices.add((short) sa);
+        indices.add((short) a);
+
+        indices.add((short) sb);
+        indices.add((short) b);
+        indices.add((short) a);
+        indices.add((short) a);
+        indices.add((short) sa);
+        indices.add((short) sb);
+    }
+
+}
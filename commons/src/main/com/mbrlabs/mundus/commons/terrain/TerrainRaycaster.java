@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+
+/**
+ * Exact ray/heightfield intersection.
+ *
+ * The ray is walked cell by cell through the terrain grid (2D DDA) and tested
+ * against the two triangles of every cell it crosses, which are the same
+ * triangles the mesh is made of. If acceleration is enabled, a min/max height
+ * pyramid over the cells is used to skip whole blocks of cells, which the ray
+ * passes above or below.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerrainRaycaster {
+
+    private static final float EPSILON = 0.000001f;
+
+    /**
+     * Result of an intersection test.
+     */
+    public static class Hit {
+        /** distance from the ray origin */
+        public float distance;
+        /** intersection point in world space */
+        public final Vector3 position = new Vector3();
+        /** normal of the hit triangle, always facing up */
+        public final Vector3 normal = new Vector3();
+    }
+
+    private final Terrain terrain;
+    private boolean accelerated = true;
+
+    // min/max height pyramid. Level 0 holds one value per grid cell, every
+    // further level halves the resolution.
+    private float[][] minHeights;
+    private float[][] maxHeights;
+    private int[] levelSizes;
+    private boolean dirty = true;
+
+    private final Vector3 terrainPos = new Vector3();
+
+    public TerrainRaycaster(Terrain terrain) {
+        this.terrain = terrain;
+    }
+
+    public boolean isAccelerated() {
+        return accelerated;
+    }
+
+    /**
+     * Enables or disables the min/max height pyramid. Without it, every cell
+     * along the ray is tested.
+     *
+     * @param accelerated
+     *            true to skip empty space using the height pyramid
+     */
+    public void setAccelerated(boolean accelerated) {
+        this.accelerated = accelerated;
+    }
+
+    /**
+     * Marks the whole height pyramid as outdated. It is rebuilt with the next
+     * intersection test.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Updates the height pyramid for a region of modified vertices.
+     */
+    public void update(int minX, int minZ, int maxX, int maxZ) {
+        if (dirty || levelSizes == null) return;
+        final int cells = terrain.vertexResolution - 1;
+        if (levelSizes[0] != cells) {
+            dirty = true;
+            return;
+        }
+
+        // cells touching the modified vertices
+        minX = Math.max(0, minX - 1);
+        minZ = Math.max(0, minZ - 1);
+        maxX = Math.min(cells - 1, maxX);
+        maxZ = Math.min(cells - 1, maxZ);
+        if (minX > maxX || minZ > maxZ) return;
+
+        updateCells(minX, minZ, maxX, maxZ);
+        for (int level = 1; level < levelSizes.length; level++) {
+            minX >>= 1;
+            minZ >>= 1;
+            maxX >>= 1;
+            maxZ >>= 1;
+            updateLevel(level, minX, minZ, maxX, maxZ);
+        }
+    }
+
+    /**
+     * Intersects the ray with the terrain.
+     *
+     * @param ray
+     *            ray in world space
+     * @param out
+     *            filled with the nearest intersection, if any
+     * @return true if the ray hits the terrain, false otherwise
+     */
+    public boolean intersect(Ray ray, Hit out) {
+        final int res = terrain.vertexResolution;
+        final int cells = res - 1;
+        if (cells < 1) return false;
+        if (dirty) build();
+
+        terrain.getPosition(terrainPos);
+        final float ox = ray.origin.x - terrainPos.x;
+        final float oy = ray.origin.y - terrainPos.y;
+        final float oz = ray.origin.z - terrainPos.z;
+        final float dx = ray.direction.x;
+        final float dy = ray.direction.y;
+        final float dz = ray.direction.z;
+        final float cellWidth = terrain.terrainWidth / (float) cells;
+        final float cellDepth = terrain.terrainDepth / (float) cells;
+        final int top = levelSizes.length - 1;
+
+        // clip the ray against the bounding box of the heightfield
+        float tMin = 0;
+        float tMax = Float.MAX_VALUE;
+        tMin = Math.max(tMin, slabEnter(ox, dx, 0, terrain.terrainWidth));
+        tMax = Math.min(tMax, slabExit(ox, dx, 0, terrain.terrainWidth));
+        tMin = Math.max(tMin, slabEnter(oy, dy, minHeights[top][0], maxHeights[top][0]));
+        tMax = Math.min(tMax, slabExit(oy, dy, minHeights[top][0], maxHeights[top][0]));
+        tMin = Math.max(tMin, slabEnter(oz, dz, 0, terrain.terrainDepth));
+        tMax = Math.min(tMax, slabExit(oz, dz, 0, terrain.terrainDepth));
+        if (tMin > tMax) return false;
+
+        int cx = clamp((int) Math.floor((ox + dx * tMin) / cellWidth), 0, cells - 1);
+        int cz = clamp((int) Math.floor((oz + dz * tMin) / cellDepth), 0, cells - 1);
+        int level = accelerated ? top : 0;
+        float t = tMin;
+
+        while (true) {
+            // extent of the current node in cells
+            final int nx = cx >> level;
+            final int nz = cz >> level;
+            final int x0 = nx << level;
+            final int z0 = nz << level;
+            final int x1 = Math.min(x0 + (1 << level), cells);
+            final int z1 = Math.min(z0 + (1 << level), cells);
+
+            // where the ray leaves the node
+            final float tx = dx > 0 ? (x1 * cellWidth - ox) / dx
+                    : (dx < 0 ? (x0 * cellWidth - ox) / dx : Float.MAX_VALUE);
+            final float tz = dz > 0 ? (z1 * cellDepth - oz) / dz
+                    : (dz < 0 ? (z0 * cellDepth - oz) / dz : Float.MAX_VALUE);
+            final float tExit = Math.min(Math.min(tx, tz), tMax);
+
+            // does the ray overlap the height range of the node?
+            final float y0 = oy + dy * t;
+            final float y1 = oy + dy * tExit;
+            final int index = nz * levelSizes[level] + nx;
+            if (Math.min(y0, y1) <= maxHeights[level][index] && Math.max(y0, y1) >= minHeights[level][index]) {
+                if (level > 0) {
+                    level--;
+                    continue;
+                }
+                if (intersectCell(ray, cx, cz, cellWidth, cellDepth, ox, oy, oz, out)) {
+                    return true;
+                }
+            }
+
+            // step into the neighbouring node
+            if (tExit >= tMax) return false;
+            t = tExit;
+            if (tx <= tz) {
+                cx = dx > 0 ? x1 : x0 - 1;
+                cz = clamp((int) Math.floor((oz + dz * t) / cellDepth), z0, z1 - 1);
+            } else {
+                cz = dz > 0 ? z1 : z0 - 1;
+                cx = clamp((int) Math.floor((ox + dx * t) / cellWidth), x0, x1 - 1);
+            }
+            if (cx < 0 || cz < 0 || cx >= cells || cz >= cells) return false;
+            if (level < top && accelerated) level++;
+        }
+    }
+
+    /**
+     * Tests the two triangles of a cell. The triangulation matches the one of
+     * the terrain mesh.
+     */
+    private boolean intersectCell(Ray ray, int cx, int cz, float cellWidth, float cellDepth, float ox, float oy,
+            float oz, Hit out) {
+        final int res = terrain.vertexResolution;
+
+        final float x0 = cx * cellWidth;
+        final float x1 = (cx + 1) * cellWidth;
+        final float z0 = cz * cellDepth;
+        final float z1 = (cz + 1) * cellDepth;
+        final float h00 = terrain.height(cz * res + cx);
+        final float h10 = terrain.height(cz * res + cx + 1);
+        final float h01 = terrain.height((cz + 1) * res + cx);
+        final float h11 = terrain.height((cz + 1) * res + cx + 1);
+
+        final float dx = ray.direction.x;
+        final float dy = ray.direction.y;
+        final float dz = ray.direction.z;
+
+        // triangle c11, c10, c00
+        final float t0 = intersectTriangle(ox, oy, oz, dx, dy, dz, x1, h11, z1, x1, h10, z0, x0, h00, z0);
+        // triangle c00, c01, c11
+        final float t1 = intersectTriangle(ox, oy, oz, dx, dy, dz, x0, h00, z0, x0, h01, z1, x1, h11, z1);
+
+        final boolean first;
+        if (t0 >= 0 && (t1 < 0 || t0 <= t1)) {
+            first = true;
+        } else if (t1 >= 0) {
+            first = false;
+        } else {
+            return false;
+        }
+
+        out.distance = first ? t0 : t1;
+        ray.getEndPoint(out.position, out.distance);
+        if (first) {
+            // (c10 - c11) x (c00 - c11)
+            out.normal.set(0, h10 - h11, z0 - z1).crs(x0 - x1, h00 - h11, z0 - z1);
+        } else {
+            // (c01 - c00) x (c11 - c00)
+            out.normal.set(0, h01 - h00, z1 - z0).crs(x1 - x0, h11 - h00, z1 - z0);
+        }
+        if (out.normal.y < 0) out.normal.scl(-1);
+        out.normal.nor();
+
+        return true;
+    }
+
+    /**
+     * Two sided Moeller-Trumbore ray/triangle intersection.
+     *
+     * @return distance along the ray or -1 if there is no intersection
+     */
+    static float intersectTriangle(float ox, float oy, float oz, float dx, float dy, float dz, float ax, float ay,
+            float az, float bx, float by, float bz, float cx, float cy, float cz) {
+        final float e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+        final float e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+
+        // p = d x e2
+        final float px = dy * e2z - dz * e2y;
+        final float py = dz * e2x - dx * e2z;
+        final float pz = dx * e2y - dy * e2x;
+        final float det = e1x * px + e1y * py + e1z * pz;
+        if (det > -EPSILON && det < EPSILON) return -1;
+        final float invDet = 1f / det;
+
+        final float sx = ox - ax, sy = oy - ay, sz = oz - az;
+        final float u = (sx * px + sy * py + sz * pz) * invDet;
+        if (u < -EPSILON || u > 1 + EPSILON) return -1;
+
+        // q = s x e1
+        final float qx = sy * e1z - sz * e1y;
+        final float qy = sz * e1x - sx * e1z;
+        final float qz = sx * e1y - sy * e1x;
+        final float v = (dx * qx + dy * qy + dz * qz) * invDet;
+        if (v < -EPSILON || u + v > 1 + EPSILON) return -1;
+
+        final float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+        return t >= 0 ? t : -1;
+    }
+
+    private void build() {
+        final int cells = terrain.vertexResolution - 1;
+
+        int levels = 1;
+        while ((1 << (levels - 1)) < cells) {
+            levels++;
+        }
+
+        levelSizes = new int[levels];
+        minHeights = new float[levels][];
+        maxHeights = new float[levels][];
+        for (int level = 0; level < levels; level++) {
+            final int size = (cells + (1 << level) - 1) >> level;
+            levelSizes[level] = size;
+            minHeights[level] = new float[size * size];
+            maxHeights[level] = new float[size * size];
+        }
+
+        updateCells(0, 0, cells - 1, cells - 1);
+        for (int level = 1; level < levels; level++) {
+            updateLevel(level, 0, 0, levelSizes[level] - 1, levelSizes[level] - 1);
+        }
+
+        dirty = false;
+    }
+
+    private void updateCells(int minX, int minZ, int maxX, int maxZ) {
+        final int res = terrain.vertexResolution;
+        final int size = levelSizes[0];
+        final float[] min = minHeights[0];
+        final float[] max = maxHeights[0];
+
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                final float h00 = terrain.height(z * res + x);
+                final float h10 = terrain.height(z * res + x + 1);
+                final float h01 = terrain.height((z + 1) * res + x);
+                final float h11 = terrain.height((z + 1) * res + x + 1);
+                min[z * size + x] = Math.min(Math.min(h00, h10), Math.min(h01, h11));
+                max[z * size + x] = Math.max(Math.max(h00, h10), Math.max(h01, h11));
+            }
+        }
+    }
+
+    private void updateLevel(int level, int minX, int minZ, int maxX, int maxZ) {
+        final int size = levelSizes[level];
+        final int childSize = levelSizes[level - 1];
+        final float[] childMin = minHeights[level - 1];
+        final float[] childMax = maxHeights[level - 1];
+
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                float min = Float.MAX_VALUE;
+                float max = -Float.MAX_VALUE;
+                for (int cz = 2 * z; cz <= Math.min(2 * z + 1, childSize - 1); cz++) {
+                    for (int cx = 2 * x; cx <= Math.min(2 * x + 1, childSize - 1); cx++) {
+                        min = Math.min(min, childMin[cz * childSize + cx]);
+                        max = Math.max(max, childMax[cz * childSize + cx]);
+                    }
+                }
+                minHeights[level][z * size + x] = min;
+                maxHeights[level][z * size + x] = max;
+            }
+        }
+    }
+
+    private static float slabEnter(float origin, float dir, float min, float max) {
+        if (dir == 0) return (origin >= min && origin <= max) ? -Float.MAX_VALUE : Float.MAX_VALUE;
+        final float t0 = (min - origin) / dir;
+        final float t1 = (max - origin) / dir;
+        return Math.min(t0, t1);
+    }
+
+    private static float slabExit(float origin, float dir, float min, float max) {
+        if (dir == 0) return (origin >= min && origin <= max) ? Float.MAX_VALUE : -Float.MAX_VALUE;
+        final float t0 = (min - origin) / dir;
+        final float t1 = (max - origin) / dir;
+        return Math.max(t0, t1);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+}
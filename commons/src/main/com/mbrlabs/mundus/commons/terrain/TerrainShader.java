@@ -16,15 +16,21 @@
 
 package com.mbrlabs.mundus.commons.terrain;
 
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.graphics.g3d.Shader;
-import com.badlogic.gdx.graphics.g3d.shaders.BaseShader;
 import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
 import com.mbrlabs.mundus.commons.env.Fog;
 import com.mbrlabs.mundus.commons.env.MundusEnvironment;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLight;
@@ -32,53 +38,78 @@ import com.mbrlabs.mundus.commons.env.lights.DirectionalLightsAttribute;
 import com.mbrlabs.mundus.commons.utils.ShaderUtils;
 
 /**
+ * Renders terrains.
+ *
+ * The shader source is compiled into variants, each containing only the
+ * code for the textures a terrain actually uses & its vertex format. The
+ * variant is chosen per renderable & compiled on first use.
+ *
+ * Terrains with {@link TerrainLayers} are rendered from a texture array
+ * where GLES 3.0 is available. Only the layers with the largest weights are
+ * sampled per fragment.
+ *
  * @author Marcus Brummer
- * @version 22-11-2015
+ * @version 17-10-2026
  */
-public class TerrainShader extends BaseShader {
+public class TerrainShader implements Shader {
 
     private static final String VERTEX_SHADER = "com/mbrlabs/mundus/commons/terrain/terrain.vert.glsl";
     private static final String FRAGMENT_SHADER = "com/mbrlabs/mundus/commons/terrain/terrain.frag.glsl";
 
-    // ============================ MATRICES & CAM POSITION ============================
-    protected final int UNIFORM_PROJ_VIEW_MATRIX = register(new Uniform("u_projViewMatrix"));
-    protected final int UNIFORM_TRANS_MATRIX = register(new Uniform("u_transMatrix"));
-    protected final int UNIFORM_CAM_POS = register(new Uniform("u_camPos"));
-
-    // ============================ LIGHTS ============================
-    protected final int UNIFORM_AMBIENT_LIGHT_COLOR = register(new Uniform("u_ambientLight.color"));
-    protected final int UNIFORM_AMBIENT_LIGHT_INTENSITY = register(new Uniform("u_ambientLight.intensity"));
-    protected final int UNIFORM_DIRECTIONAL_LIGHT_COLOR = register(new Uniform("u_directionalLight.color"));
-    protected final int UNIFORM_DIRECTIONAL_LIGHT_DIR = register(new Uniform("u_directionalLight.direction"));
-    protected final int UNIFORM_DIRECTIONAL_LIGHT_INTENSITY = register(new Uniform("u_directionalLight.intensity"));
-
-    // ============================ TEXTURE SPLATTING ============================
-    protected final int UNIFORM_TERRAIN_SIZE = register(new Uniform("u_terrainSize"));
-    protected final int UNIFORM_TEXTURE_BASE = register(new Uniform("u_texture_base"));
-    protected final int UNIFORM_TEXTURE_R = register(new Uniform("u_texture_r"));
-    protected final int UNIFORM_TEXTURE_G = register(new Uniform("u_texture_g"));
-    protected final int UNIFORM_TEXTURE_B = register(new Uniform("u_texture_b"));
-    protected final int UNIFORM_TEXTURE_A = register(new Uniform("u_texture_a"));
-    protected final int UNIFORM_TEXTURE_SPLAT = register(new Uniform("u_texture_splat"));
-    protected final int UNIFORM_TEXTURE_HAS_SPLATMAP = register(new Uniform("u_texture_has_splatmap"));
-    protected final int UNIFORM_TEXTURE_HAS_DIFFUSE = register(new Uniform("u_texture_has_diffuse"));
-
-    // ============================ FOG ============================
-    protected final int UNIFORM_FOG_DENSITY = register(new Uniform("u_fogDensity"));
-    protected final int UNIFORM_FOG_GRADIENT = register(new Uniform("u_fogGradient"));
-    protected final int UNIFORM_FOG_COLOR = register(new Uniform("u_fogColor"));
-
-    private Vector2 terrainSize = new Vector2();
-
-    private final ShaderProgram program;
-
-    public TerrainShader() {
-        program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER, true);
-    }
+    // ============================ VARIANT FLAGS ============================
+    private static final int DIFFUSE = 1;
+    private static final int SPLATMAP = 1 << 1;
+    private static final int SPLAT_R = 1 << 2;
+    private static final int SPLAT_G = 1 << 3;
+    private static final int SPLAT_B = 1 << 4;
+    private static final int SPLAT_A = 1 << 5;
+    private static final int COMPACT = 1 << 6;
+    private static final int LAYERS = 1 << 7;
+    // number of layers & sampled layers of texture array variants
+    private static final int LAYER_COUNT_SHIFT = 8;
+    private static final int SAMPLED_LAYERS_SHIFT = 13;
+
+    // ============================ UNIFORMS ============================
+    private static final String[] UNIFORMS = { "u_projViewMatrix", "u_transMatrix", "u_camPos",
+            "u_ambientLight.color", "u_ambientLight.intensity", "u_directionalLight.color",
+            "u_directionalLight.direction", "u_directionalLight.intensity", "u_terrainSize", "u_texture_base",
+            "u_texture_r", "u_texture_g", "u_texture_b", "u_texture_a", "u_texture_splat", "u_fogDensity",
+            "u_fogGradient", "u_fogColor", "u_gridOffset", "u_gridSpacing", "u_uvStep", "u_layers", "u_weights0",
+            "u_weights1", "u_weights2", "u_weights3" };
+
+    private static final int UNIFORM_PROJ_VIEW_MATRIX = 0;
+    private static final int UNIFORM_TRANS_MATRIX = 1;
+    private static final int UNIFORM_CAM_POS = 2;
+    private static final int UNIFORM_AMBIENT_LIGHT_COLOR = 3;
+    private static final int UNIFORM_AMBIENT_LIGHT_INTENSITY = 4;
+    private static final int UNIFORM_DIRECTIONAL_LIGHT_COLOR = 5;
+    private static final int UNIFORM_DIRECTIONAL_LIGHT_DIR = 6;
+    private static final int UNIFORM_DIRECTIONAL_LIGHT_INTENSITY = 7;
+    private static final int UNIFORM_TERRAIN_SIZE = 8;
+    private static final int UNIFORM_TEXTURE_BASE = 9;
+    private static final int UNIFORM_TEXTURE_R = 10;
+    private static final int UNIFORM_TEXTURE_G = 11;
+    private static final int UNIFORM_TEXTURE_B = 12;
+    private static final int UNIFORM_TEXTURE_A = 13;
+    private static final int UNIFORM_TEXTURE_SPLAT = 14;
+    private static final int UNIFORM_FOG_DENSITY = 15;
+    private static final int UNIFORM_FOG_GRADIENT = 16;
+    private static final int UNIFORM_FOG_COLOR = 17;
+    private static final int UNIFORM_GRID_OFFSET = 18;
+    private static final int UNIFORM_GRID_SPACING = 19;
+    private static final int UNIFORM_UV_STEP = 20;
+    private static final int UNIFORM_LAYERS = 21;
+    private static final int UNIFORM_WEIGHTS0 = 22;
+
+    private final IntMap<Variant> variants = new IntMap<Variant>();
+
+    private Camera camera;
+    private RenderContext context;
+    private Variant current;
 
     @Override
     public void init() {
-        super.init(program, null);
+        // variants are compiled on first use
     }
 
     @Override
@@ -88,51 +119,87 @@ public class TerrainShader extends BaseShader {
 
     @Override
     public boolean canRender(Renderable instance) {
-        return true;
+        return instance.material.has(TerrainTextureAttribute.ATTRIBUTE_SPLAT0);
     }
 
     @Override
     public void begin(Camera camera, RenderContext context) {
+        this.camera = camera;
         this.context = context;
         context.begin();
         context.setCullFace(GL20.GL_BACK);
 
         this.context.setDepthTest(GL20.GL_LEQUAL, 0f, 1f);
         this.context.setDepthMask(true);
-
-        program.begin();
-
-        set(UNIFORM_PROJ_VIEW_MATRIX, camera.combined);
-        set(UNIFORM_CAM_POS, camera.position);
+        current = null;
     }
 
     @Override
     public void render(Renderable renderable) {
-        final MundusEnvironment env = (MundusEnvironment) renderable.environment;
+        final TerrainTextureAttribute splatAttrib = (TerrainTextureAttribute) renderable.material
+                .get(TerrainTextureAttribute.ATTRIBUTE_SPLAT0);
+        final TerrainTexture terrainTexture = splatAttrib.terrainTexture;
+        final int flags = getFlags(renderable, terrainTexture);
+
+        Variant variant = variants.get(flags);
+        if (variant == null) {
+            variant = new Variant(flags);
+            variants.put(flags, variant);
+        }
+        if (variant != current) {
+            variant.program.begin();
+            variant.set(UNIFORM_PROJ_VIEW_MATRIX, camera.combined);
+            variant.set(UNIFORM_CAM_POS, camera.position);
+            current = variant;
+        }
 
-        setLights(env);
-        setTerrainSplatTextures(renderable);
-        set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
+        final MundusEnvironment env = (MundusEnvironment) renderable.environment;
+        setLights(variant, env);
+        setTerrainTextures(variant, renderable, terrainTexture);
+        variant.set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
 
         // Fog
         final Fog fog = env.getFog();
         if (fog == null) {
-            set(UNIFORM_FOG_DENSITY, 0f);
-            set(UNIFORM_FOG_GRADIENT, 0f);
+            variant.set(UNIFORM_FOG_DENSITY, 0f);
+            variant.set(UNIFORM_FOG_GRADIENT, 0f);
         } else {
-            set(UNIFORM_FOG_DENSITY, fog.density);
-            set(UNIFORM_FOG_GRADIENT, fog.gradient);
-            set(UNIFORM_FOG_COLOR, fog.color);
+            variant.set(UNIFORM_FOG_DENSITY, fog.density);
+            variant.set(UNIFORM_FOG_GRADIENT, fog.gradient);
+            variant.set(UNIFORM_FOG_COLOR, fog.color);
         }
 
         // bind attributes, bind mesh & render; then unbinds everything
-        renderable.meshPart.render(program);
+        renderable.meshPart.render(variant.program);
+    }
+
+    private static int getFlags(Renderable renderable, TerrainTexture terrainTexture) {
+        int flags = 0;
+        if (renderable.meshPart.mesh.getVertexAttribute(VertexAttributes.Usage.Position) == null) {
+            flags |= COMPACT;
+        }
+
+        final TerrainLayers layers = terrainTexture.getLayers();
+        if (layers != null && layers.isBuilt() && Gdx.gl30 != null) {
+            return flags | LAYERS | (layers.getLayerCount() << LAYER_COUNT_SHIFT)
+                    | (layers.getSampledLayers() << SAMPLED_LAYERS_SHIFT);
+        }
+
+        if (terrainTexture.getTexture(SplatTexture.Channel.BASE) != null) flags |= DIFFUSE;
+        if (terrainTexture.getSplatmap() != null) {
+            flags |= SPLATMAP;
+            if (terrainTexture.getTexture(SplatTexture.Channel.R) != null) flags |= SPLAT_R;
+            if (terrainTexture.getTexture(SplatTexture.Channel.G) != null) flags |= SPLAT_G;
+            if (terrainTexture.getTexture(SplatTexture.Channel.B) != null) flags |= SPLAT_B;
+            if (terrainTexture.getTexture(SplatTexture.Channel.A) != null) flags |= SPLAT_A;
+        }
+        return flags;
     }
 
-    private void setLights(MundusEnvironment env) {
+    private void setLights(Variant variant, MundusEnvironment env) {
         // ambient
-        set(UNIFORM_AMBIENT_LIGHT_COLOR, env.getAmbientLight().color);
-        set(UNIFORM_AMBIENT_LIGHT_INTENSITY, env.getAmbientLight().intensity);
+        variant.set(UNIFORM_AMBIENT_LIGHT_COLOR, env.getAmbientLight().color);
+        variant.set(UNIFORM_AMBIENT_LIGHT_INTENSITY, env.getAmbientLight().intensity);
 
         // TODO light array for each light type
 
@@ -142,59 +209,132 @@ public class TerrainShader extends BaseShader {
         final Array<DirectionalLight> dirLights = dirLightAttribs == null ? null : dirLightAttribs.lights;
         if (dirLights != null && dirLights.size > 0) {
             final DirectionalLight light = dirLights.first();
-            set(UNIFORM_DIRECTIONAL_LIGHT_COLOR, light.color);
-            set(UNIFORM_DIRECTIONAL_LIGHT_DIR, light.direction);
-            set(UNIFORM_DIRECTIONAL_LIGHT_INTENSITY, light.intensity);
+            variant.set(UNIFORM_DIRECTIONAL_LIGHT_COLOR, light.color);
+            variant.set(UNIFORM_DIRECTIONAL_LIGHT_DIR, light.direction);
+            variant.set(UNIFORM_DIRECTIONAL_LIGHT_INTENSITY, light.intensity);
         }
 
         // TODO point lights, spot lights
     }
 
-    private void setTerrainSplatTextures(Renderable renderable) {
-        final TerrainTextureAttribute splatAttrib = (TerrainTextureAttribute) renderable.material
-                .get(TerrainTextureAttribute.ATTRIBUTE_SPLAT0);
-        final TerrainTexture terrainTexture = splatAttrib.terrainTexture;
-
-        // base texture
-        SplatTexture st = terrainTexture.getTexture(SplatTexture.Channel.BASE);
-        if (st != null) {
-            set(UNIFORM_TEXTURE_BASE, st.texture.getTexture());
-            set(UNIFORM_TEXTURE_HAS_DIFFUSE, 1);
+    private void setTerrainTextures(Variant variant, Renderable renderable, TerrainTexture terrainTexture) {
+        if ((variant.flags & LAYERS) != 0) {
+            final TerrainLayers layers = terrainTexture.getLayers();
+            variant.set(UNIFORM_LAYERS, layers.getTextureArray());
+            final int maps = (layers.getLayerCount() + 3) / 4;
+            for (int i = 0; i < maps; i++) {
+                variant.set(UNIFORM_WEIGHTS0 + i, layers.getWeightMaps().get(i).getTexture());
+            }
         } else {
-            set(UNIFORM_TEXTURE_HAS_DIFFUSE, 0);
+            setSplatTexture(variant, UNIFORM_TEXTURE_BASE, terrainTexture, SplatTexture.Channel.BASE);
+            if (terrainTexture.getSplatmap() != null) {
+                variant.set(UNIFORM_TEXTURE_SPLAT, terrainTexture.getSplatmap().getTexture());
+                setSplatTexture(variant, UNIFORM_TEXTURE_R, terrainTexture, SplatTexture.Channel.R);
+                setSplatTexture(variant, UNIFORM_TEXTURE_G, terrainTexture, SplatTexture.Channel.G);
+                setSplatTexture(variant, UNIFORM_TEXTURE_B, terrainTexture, SplatTexture.Channel.B);
+                setSplatTexture(variant, UNIFORM_TEXTURE_A, terrainTexture, SplatTexture.Channel.A);
+            }
         }
 
-        // splat textures
-        if (terrainTexture.getSplatmap() != null) {
-            set(UNIFORM_TEXTURE_HAS_SPLATMAP, 1);
-            set(UNIFORM_TEXTURE_SPLAT, terrainTexture.getSplatmap().getTexture());
-            st = terrainTexture.getTexture(SplatTexture.Channel.R);
-            if (st != null) set(UNIFORM_TEXTURE_R, st.texture.getTexture());
-            st = terrainTexture.getTexture(SplatTexture.Channel.G);
-            if (st != null) set(UNIFORM_TEXTURE_G, st.texture.getTexture());
-            st = terrainTexture.getTexture(SplatTexture.Channel.B);
-            if (st != null) set(UNIFORM_TEXTURE_B, st.texture.getTexture());
-            st = terrainTexture.getTexture(SplatTexture.Channel.A);
-            if (st != null) set(UNIFORM_TEXTURE_A, st.texture.getTexture());
-        } else {
-            set(UNIFORM_TEXTURE_HAS_SPLATMAP, 0);
+        // set terrain world size
+        final Terrain terrain = terrainTexture.getTerrain();
+        variant.set(UNIFORM_TERRAIN_SIZE, terrain.terrainWidth, terrain.terrainDepth);
+
+        // grid of compact vertices
+        if ((variant.flags & COMPACT) != 0) {
+            final TerrainPatch patch = (TerrainPatch) renderable.userData;
+            final float quads = terrain.vertexResolution - 1;
+            variant.set(UNIFORM_GRID_OFFSET, patch.gridX, patch.gridZ);
+            variant.set(UNIFORM_GRID_SPACING, terrain.terrainWidth / quads, terrain.terrainDepth / quads);
+            variant.set(UNIFORM_UV_STEP, terrain.getUvScale().x / quads, terrain.getUvScale().y / quads);
         }
+    }
 
-        // set terrain world size
-        terrainSize.x = terrainTexture.getTerrain().terrainWidth;
-        terrainSize.y = terrainTexture.getTerrain().terrainDepth;
-        set(UNIFORM_TERRAIN_SIZE, terrainSize);
+    private static void setSplatTexture(Variant variant, int uniform, TerrainTexture terrainTexture,
+            SplatTexture.Channel channel) {
+        final SplatTexture st = terrainTexture.getTexture(channel);
+        if (st != null) variant.set(uniform, st.texture.getTexture());
     }
 
     @Override
     public void end() {
+        if (current != null) {
+            current.program.end();
+            current = null;
+        }
         context.end();
-        program.end();
     }
 
     @Override
     public void dispose() {
-        program.dispose();
+        for (Variant variant : variants.values()) {
+            variant.program.dispose();
+        }
+        variants.clear();
+    }
+
+    /**
+     * One compiled variant of the terrain shader.
+     */
+    private class Variant {
+
+        final int flags;
+        final ShaderProgram program;
+        final int[] locations = new int[UNIFORMS.length];
+
+        Variant(int flags) {
+            this.flags = flags;
+
+            final StringBuilder defines = new StringBuilder();
+            if ((flags & COMPACT) != 0) defines.append("#define compactFlag\n");
+            if ((flags & DIFFUSE) != 0) defines.append("#define diffuseTextureFlag\n");
+            if ((flags & SPLATMAP) != 0) defines.append("#define splatFlag\n");
+            if ((flags & SPLAT_R) != 0) defines.append("#define splatRFlag\n");
+            if ((flags & SPLAT_G) != 0) defines.append("#define splatGFlag\n");
+            if ((flags & SPLAT_B) != 0) defines.append("#define splatBFlag\n");
+            if ((flags & SPLAT_A) != 0) defines.append("#define splatAFlag\n");
+
+            String version = "";
+            if ((flags & LAYERS) != 0) {
+                // texture arrays need GLSL 3
+                version = Gdx.app.getType() == Application.ApplicationType.Desktop ? "#version 150\n"
+                        : "#version 300 es\n";
+                defines.append("#define glsl3Flag\n");
+                defines.append("#define layersFlag\n");
+                defines.append("#define layerCount ").append((flags >> LAYER_COUNT_SHIFT) & 31).append('\n');
+                defines.append("#define sampledLayers ").append((flags >> SAMPLED_LAYERS_SHIFT) & 7).append('\n');
+            }
+
+            final String prefix = version + defines;
+            program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER, true, prefix, prefix);
+            for (int i = 0; i < UNIFORMS.length; i++) {
+                locations[i] = program.fetchUniformLocation(UNIFORMS[i], false);
+            }
+        }
+
+        void set(int uniform, Matrix4 value) {
+            if (locations[uniform] >= 0) program.setUniformMatrix(locations[uniform], value);
+        }
+
+        void set(int uniform, Vector3 value) {
+            if (locations[uniform] >= 0) program.setUniformf(locations[uniform], value);
+        }
+
+        void set(int uniform, Color value) {
+            if (locations[uniform] >= 0) program.setUniformf(locations[uniform], value);
+        }
+
+        void set(int uniform, float value) {
+            if (locations[uniform] >= 0) program.setUniformf(locations[uniform], value);
+        }
+
+        void set(int uniform, float x, float y) {
+            if (locations[uniform] >= 0) program.setUniformf(locations[uniform], x, y);
+        }
+
+        void set(int uniform, GLTexture texture) {
+            if (locations[uniform] >= 0) program.setUniformi(locations[uniform], context.textureBinder.bind(texture));
+        }
     }
 
 }
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.assets.TerrainAsset;
+import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain;
+
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pages the tiles of a terrain grid in & out depending on the camera
+ * position.
+ *
+ * Every tile is a {@link TerrainAsset} at a grid coordinate. Tiles within the
+ * load distance are read & built on a background thread, the GPU upload
+ * happens in {@link #update(Vector3)} on the render thread. Tiles beyond the
+ * unload distance are evicted, and if the loaded tiles exceed the memory
+ * budget the farthest ones are evicted first. Distances are measured from the
+ * current transform of each tile, so tiles can be moved after they have been
+ * added.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerrainStreamer implements Disposable {
+
+    private static final String TAG = TerrainStreamer.class.getSimpleName();
+
+    /**
+     * Informs about loaded & evicted tiles.
+     */
+    public interface Listener {
+        /**
+         * Called on the render thread after a tile has been uploaded.
+         */
+        void onLoaded(TerrainAsset tile);
+
+        /**
+         * Called on the render thread before a tile is evicted.
+         *
+         * @return false to keep the tile loaded, e.g. because it has unsaved
+         *         changes
+         */
+        boolean canUnload(TerrainAsset tile);
+
+        /**
+         * Called on the render thread right before a tile is evicted.
+         */
+        void onUnload(TerrainAsset tile);
+    }
+
+    private static class Tile {
+        final TerrainAsset asset;
+        Future<Terrain> loading;
+        boolean failed;
+        float distance;
+
+        Tile(TerrainAsset asset) {
+            this.asset = asset;
+        }
+    }
+
+    private static final Comparator<Tile> NEAREST_FIRST = new Comparator<Tile>() {
+        @Override
+        public int compare(Tile a, Tile b) {
+            return Float.compare(a.distance, b.distance);
+        }
+    };
+
+    private final float tileSize;
+    private final Vector3 origin = new Vector3();
+    private final Vector3 tempV3 = new Vector3();
+    private final Array<Tile> tiles = new Array<Tile>();
+    private final ExecutorService executor;
+
+    private float loadDistance;
+    private float unloadDistance;
+    private long memoryBudget = Long.MAX_VALUE;
+    private int maxUploadsPerFrame = 1;
+    private Listener listener;
+
+    /**
+     * @param tileSize
+     *            world size of one tile. All tiles must have the same size.
+     */
+    public TerrainStreamer(float tileSize) {
+        this.tileSize = tileSize;
+        this.loadDistance = tileSize;
+        this.unloadDistance = tileSize * 2;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Creates a streamer for all tiles of a streamed world in the given
+     * terrains. Terrains which are not tiles are ignored.
+     *
+     * @param terrains
+     *            terrains of a scene or project
+     * @return streamer or null if there are no tiles
+     */
+    public static TerrainStreamer create(Array<TerrainAsset> terrains) {
+        TerrainStreamer streamer = null;
+        for (int i = 0; i < terrains.size; i++) {
+            final TerrainAsset terrain = terrains.get(i);
+            final MetaTerrain meta = terrain.getMeta().getTerrain();
+            if (meta == null || !meta.isTile()) continue;
+            if (streamer == null) {
+                final float size = meta.getSize();
+                streamer = new TerrainStreamer(size);
+                streamer.setDistances(size * 1.5f, size * 2.5f);
+            }
+            streamer.add(terrain);
+        }
+        return streamer;
+    }
+
+    /**
+     * Adds a tile at the grid position stored in its meta file.
+     *
+     * @param asset
+     *            terrain tile
+     */
+    public void add(TerrainAsset asset) {
+        final MetaTerrain meta = asset.getMeta().getTerrain();
+        if (meta == null || !meta.isTile()) {
+            throw new GdxRuntimeException("Terrain is not a tile: " + asset);
+        }
+        add(asset, meta.getTileX(), meta.getTileZ());
+    }
+
+    /**
+     * Adds a tile at the given grid position. If the tile has no transform
+     * yet, it is placed at its grid position.
+     *
+     * @param asset
+     *            terrain tile
+     * @param tileX
+     *            grid position on the x axis
+     * @param tileZ
+     *            grid position on the z axis
+     */
+    public void add(TerrainAsset asset, int tileX, int tileZ) {
+        if (asset.getTransform() == null) {
+            asset.setTransform(new Matrix4().setToTranslation(origin.x + tileX * tileSize, origin.y,
+                    origin.z + tileZ * tileSize));
+        }
+        tiles.add(new Tile(asset));
+    }
+
+    public void remove(TerrainAsset asset) {
+        for (int i = 0; i < tiles.size; i++) {
+            final Tile tile = tiles.get(i);
+            if (tile.asset == asset) {
+                // the terrain built by a running load lives only in the
+                // future, dropping it drops the terrain
+                if (tile.loading != null) tile.loading.cancel(false);
+                tile.loading = null;
+                tiles.removeIndex(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Uploads finished tiles, schedules tiles that came into range & evicts
+     * tiles that are out of range. Must be called on the render thread,
+     * usually once per frame.
+     *
+     * @param camPos
+     *            position of the camera
+     */
+    public void update(Vector3 camPos) {
+        for (Tile tile : tiles) {
+            tile.distance = distance(tile, camPos);
+        }
+        tiles.sort(NEAREST_FIRST);
+
+        // upload tiles built in the background
+        int uploads = 0;
+        for (Tile tile : tiles) {
+            if (tile.loading == null || !tile.loading.isDone()) continue;
+            if (uploads == maxUploadsPerFrame) break;
+            finishLoading(tile);
+            uploads++;
+        }
+
+        // evict tiles out of range
+        long resident = 0;
+        int loaded = 0;
+        for (Tile tile : tiles) {
+            if (!tile.asset.isLoaded()) continue;
+            if (tile.distance > unloadDistance && evict(tile)) continue;
+            resident += tile.asset.getMemoryUsage();
+            loaded++;
+        }
+
+        // evict the farthest tiles until we are within budget. The nearest
+        // tile always stays.
+        for (int i = tiles.size - 1; i > 0 && resident > memoryBudget; i--) {
+            final Tile tile = tiles.get(i);
+            if (!tile.asset.isLoaded()) continue;
+            final long usage = tile.asset.getMemoryUsage();
+            if (evict(tile)) {
+                resident -= usage;
+                loaded--;
+            }
+        }
+
+        // schedule tiles in range, nearest first, as long as they are
+        // expected to fit into the budget
+        final long average = loaded == 0 ? 0 : resident / loaded;
+        for (Tile tile : tiles) {
+            if (tile.distance > loadDistance) break;
+            if (tile.asset.isLoaded() || tile.failed) continue;
+            if (tile.loading != null) {
+                resident += average;
+                continue;
+            }
+            if (loaded > 0 && resident + average > memoryBudget) break;
+            schedule(tile);
+            resident += average;
+        }
+    }
+
+    private void schedule(final Tile tile) {
+        tile.loading = executor.submit(new Callable<Terrain>() {
+            @Override
+            public Terrain call() {
+                return tile.asset.loadAsync();
+            }
+        });
+    }
+
+    private void finishLoading(Tile tile) {
+        final Future<Terrain> loading = tile.loading;
+        tile.loading = null;
+        final Terrain terrain;
+        try {
+            terrain = loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            Gdx.app.error(TAG, "Failed to load terrain tile: " + tile.asset, e.getCause());
+            tile.failed = true;
+            return;
+        }
+
+        if (terrain == null) {
+            // don't retry broken tiles every frame
+            tile.failed = true;
+            return;
+        }
+
+        if (tile.asset.isLoaded()) {
+            // loaded synchronously in the meantime, e.g. by an undo. Drops
+            // the terrain read in the background & keeps the loaded one.
+            terrain.dispose();
+            return;
+        }
+
+        if (tile.distance > unloadDistance) {
+            // went out of range while loading
+            terrain.dispose();
+            return;
+        }
+
+        tile.asset.loadSync(terrain);
+        if (listener != null) {
+            listener.onLoaded(tile.asset);
+        }
+    }
+
+    /**
+     * @return true if the tile has been evicted, false if the listener wants
+     *         to keep it
+     */
+    private boolean evict(Tile tile) {
+        if (listener != null) {
+            if (!listener.canUnload(tile.asset)) return false;
+            listener.onUnload(tile.asset);
+        }
+        tile.asset.unload();
+        return true;
+    }
+
+    /**
+     * Distance on the xz plane between a position & a tile.
+     */
+    private float distance(Tile tile, Vector3 pos) {
+        tile.asset.getTransform().getTranslation(tempV3);
+        final float minX = tempV3.x;
+        final float minZ = tempV3.z;
+        final float dx = Math.max(0, Math.max(minX - pos.x, pos.x - minX - tileSize));
+        final float dz = Math.max(0, Math.max(minZ - pos.z, pos.z - minZ - tileSize));
+        return (float) Math.sqrt(dx * dx + dz * dz);
+    }
+
+    /**
+     * @return approximate memory used by all loaded tiles in bytes
+     */
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for (Tile tile : tiles) {
+            bytes += tile.asset.getMemoryUsage();
+        }
+        return bytes;
+    }
+
+    public int getLoadedCount() {
+        int count = 0;
+        for (Tile tile : tiles) {
+            if (tile.asset.isLoaded()) count++;
+        }
+        return count;
+    }
+
+    public float getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * World position of the tile at grid position (0, 0). Only applies to
+     * tiles added afterwards.
+     */
+    public Vector3 getOrigin() {
+        return origin;
+    }
+
+    public float getLoadDistance() {
+        return loadDistance;
+    }
+
+    /**
+     * Sets the distances at which tiles are loaded & evicted. The unload
+     * distance should be larger than the load distance, so that tiles at the
+     * border are not loaded & evicted over and over again.
+     *
+     * @param loadDistance
+     *            tiles closer than this are loaded
+     * @param unloadDistance
+     *            tiles farther away than this are evicted
+     */
+    public void setDistances(float loadDistance, float unloadDistance) {
+        this.loadDistance = loadDistance;
+        this.unloadDistance = Math.max(loadDistance, unloadDistance);
+    }
+
+    public float getUnloadDistance() {
+        return unloadDistance;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget
+     *            maximum memory in bytes the loaded tiles may use
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @param maxUploadsPerFrame
+     *            maximum number of tiles uploaded per call to update()
+     */
+    public void setMaxUploadsPerFrame(int maxUploadsPerFrame) {
+        this.maxUploadsPerFrame = Math.max(1, maxUploadsPerFrame);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        for (Tile tile : tiles) {
+            if (tile.loading != null) {
+                tile.loading.cancel(true);
+                tile.loading = null;
+            }
+        }
+        tiles.clear();
+    }
+
+}
@@ -21,12 +21,14 @@ import java.util.Map;
 
 /**
  * @author Marcus Brummer
- * @version 28-01-2016
+ * @version 17-10-2026
  */
 public class TerrainTexture {
 
     private Map<SplatTexture.Channel, SplatTexture> textures;
     private SplatMap splatmap;
+    private AutoSplat autoSplat;
+    private TerrainLayers layers;
     private Terrain terrain;
 
     public TerrainTexture() {
@@ -85,6 +87,32 @@ public class TerrainTexture {
         this.splatmap = splatmap;
     }
 
+    public AutoSplat getAutoSplat() {
+        return autoSplat;
+    }
+
+    /**
+     * @param autoSplat
+     *            rules that are applied to the splatmap after the terrain
+     *            has been sculpted, or null
+     */
+    public void setAutoSplat(AutoSplat autoSplat) {
+        this.autoSplat = autoSplat;
+    }
+
+    public TerrainLayers getLayers() {
+        return layers;
+    }
+
+    /**
+     * @param layers
+     *            texture array layers, used instead of the splat textures
+     *            where texture arrays are supported. May be null.
+     */
+    public void setLayers(TerrainLayers layers) {
+        this.layers = layers;
+    }
+
     public Terrain getTerrain() {
         return terrain;
     }
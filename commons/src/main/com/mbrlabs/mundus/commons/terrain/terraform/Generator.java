@@ -21,13 +21,27 @@ import com.mbrlabs.mundus.commons.terrain.Terrain;
 /**
  *
  * @author Marcus Brummer
- * @version 20-06-2016
+ * @version 17-10-2026
  */
 public abstract class Generator<T extends Generator<T>> {
 
+    /**
+     * Informs about the progress of long running generators.
+     */
+    public interface ProgressListener {
+        /**
+         * Called on the thread that called terraform().
+         *
+         * @param progress
+         *            done fraction of the work, from 0 to 1
+         */
+        void onProgress(float progress);
+    }
+
     protected Terrain terrain;
     protected float minHeight = 0;
     protected float maxHeight = 50;
+    protected ProgressListener progressListener;
 
     Generator(Terrain terrain) {
         this.terrain = terrain;
@@ -43,6 +57,17 @@ public abstract class Generator<T extends Generator<T>> {
         return (T) this;
     }
 
+    public T progress(ProgressListener listener) {
+        this.progressListener = listener;
+        return (T) this;
+    }
+
+    protected void reportProgress(float progress) {
+        if (progressListener != null) {
+            progressListener.onProgress(progress);
+        }
+    }
+
     public abstract void terraform();
 
 }
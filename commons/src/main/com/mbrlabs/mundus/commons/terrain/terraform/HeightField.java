@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+/**
+ * Grid of heights that can be imported by the {@link HeightMapGenerator}.
+ *
+ * Implementations must allow concurrent calls to {@link #get(int, int)}.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public interface HeightField {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * @param x
+     *            column, from 0 to width - 1
+     * @param y
+     *            row, from 0 to height - 1
+     * @return height normalized to [0, 1]
+     */
+    float get(int x, int y);
+
+}
@@ -17,67 +17,123 @@
 package com.mbrlabs.mundus.commons.terrain.terraform;
 
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.mbrlabs.mundus.commons.terrain.Terrain;
-
-import java.nio.ByteBuffer;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
 
 /**
+ * Imports a {@link HeightField} of any size.
+ *
+ * The field is resampled to the vertex resolution of the terrain & its
+ * normalized heights are mapped to [minHeight, maxHeight]. Rows are
+ * resampled in parallel.
  *
  * @author Marcus Brummer
- * @version 20-06-2016
+ * @version 17-10-2026
  */
 public class HeightMapGenerator extends Generator<HeightMapGenerator> {
 
-    private Pixmap map;
+    private static final int ROWS_PER_TASK = 16;
+
+    /**
+     * Resampling filter.
+     */
+    public enum Filter {
+        BILINEAR, BICUBIC
+    }
+
+    private HeightField map;
+    private Filter filter = Filter.BILINEAR;
 
     HeightMapGenerator(Terrain terrain) {
         super(terrain);
     }
 
-    public HeightMapGenerator map(Pixmap map) {
+    public HeightMapGenerator map(HeightField map) {
         this.map = map;
         return this;
     }
 
+    public HeightMapGenerator map(Pixmap map) {
+        return map(new PixmapHeightField(map));
+    }
+
+    public HeightMapGenerator filter(Filter filter) {
+        this.filter = filter;
+        return this;
+    }
+
     @Override
     public void terraform() {
-        if (map.getWidth() != terrain.vertexResolution || map.getHeight() != terrain.vertexResolution) {
-            throw new GdxRuntimeException("Incorrect map size");
-        }
-        terrain.heightData = heightColorsToMap(map.getPixels(), map.getFormat(), terrain.vertexResolution,
-                terrain.vertexResolution, maxHeight);
+        terrain.dequantize();
+
+        final HeightField map = this.map;
+        final float[] heights = terrain.heightData;
+        final int res = terrain.vertexResolution;
+        final int width = map.getWidth();
+        final int height = map.getHeight();
+
+        // first & last vertex map to the first & last pixel
+        final float scaleX = res > 1 ? (width - 1) / (float) (res - 1) : 0;
+        final float scaleY = res > 1 ? (height - 1) / (float) (res - 1) : 0;
+        final boolean bicubic = filter == Filter.BICUBIC;
+
+        ParallelUtils.parallelFor(0, res, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int z = from; z < to; z++) {
+                    final float y = z * scaleY;
+                    for (int x = 0; x < res; x++) {
+                        final float value = bicubic ? bicubic(map, x * scaleX, y) : bilinear(map, x * scaleX, y);
+                        heights[z * res + x] = minHeight + (maxHeight - minHeight) * value;
+                    }
+                }
+            }
+        });
+
         terrain.update();
     }
 
-    // Simply creates an array containing only all the red components of the
-    // heightData.
-    private float[] heightColorsToMap(final ByteBuffer data, final Pixmap.Format format, int width, int height,
-            float maxHeight) {
-        final int bytesPerColor = (format == Pixmap.Format.RGB888 ? 3 : (format == Pixmap.Format.RGBA8888 ? 4 : 0));
-        if (bytesPerColor == 0) throw new GdxRuntimeException("Unsupported format, should be either RGB8 or RGBA8");
-        if (data.remaining() < (width * height * bytesPerColor)) throw new GdxRuntimeException("Incorrect map size");
-
-        final int startPos = data.position();
-        byte[] source = null;
-        int sourceOffset = 0;
-        if (data.hasArray() && !data.isReadOnly()) {
-            source = data.array();
-            sourceOffset = data.arrayOffset() + startPos;
-        } else {
-            source = new byte[width * height * bytesPerColor];
-            data.get(source);
-            data.position(startPos);
-        }
-
-        float[] dest = new float[width * height];
-        for (int i = 0; i < dest.length; ++i) {
-            int v = source[sourceOffset + i * bytesPerColor];
-            v = v < 0 ? 256 + v : v;
-            dest[i] = maxHeight * ((float) v / 255f);
-        }
-
-        return dest;
+    private static float bilinear(HeightField map, float x, float y) {
+        final int x0 = Math.min((int) x, map.getWidth() - 1);
+        final int y0 = Math.min((int) y, map.getHeight() - 1);
+        final int x1 = Math.min(x0 + 1, map.getWidth() - 1);
+        final int y1 = Math.min(y0 + 1, map.getHeight() - 1);
+        final float fx = x - x0;
+        final float fy = y - y0;
+
+        final float top = map.get(x0, y0) * (1 - fx) + map.get(x1, y0) * fx;
+        final float bottom = map.get(x0, y1) * (1 - fx) + map.get(x1, y1) * fx;
+        return top * (1 - fy) + bottom * fy;
+    }
+
+    /**
+     * Catmull-Rom interpolation of the 4x4 surrounding pixels. Clamped, since
+     * the spline overshoots at steep edges.
+     */
+    private static float bicubic(HeightField map, float x, float y) {
+        final int maxX = map.getWidth() - 1;
+        final int maxY = map.getHeight() - 1;
+        final int ix = Math.min((int) x, maxX);
+        final int iy = Math.min((int) y, maxY);
+        final float fx = x - ix;
+        final float fy = y - iy;
+
+        final int x0 = Math.max(ix - 1, 0);
+        final int x2 = Math.min(ix + 1, maxX);
+        final int x3 = Math.min(ix + 2, maxX);
+
+        final float value = catmullRom(row(map, x0, ix, x2, x3, Math.max(iy - 1, 0), fx),
+                row(map, x0, ix, x2, x3, iy, fx), row(map, x0, ix, x2, x3, Math.min(iy + 1, maxY), fx),
+                row(map, x0, ix, x2, x3, Math.min(iy + 2, maxY), fx), fy);
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static float row(HeightField map, int x0, int x1, int x2, int x3, int y, float t) {
+        return catmullRom(map.get(x0, y), map.get(x1, y), map.get(x2, y), map.get(x3, y), t);
+    }
+
+    private static float catmullRom(float p0, float p1, float p2, float p3, float t) {
+        return p1 + 0.5f * t * (p2 - p0 + t * (2 * p0 - 5 * p1 + 4 * p2 - p3 + t * (3 * (p1 - p2) + p3 - p0)));
     }
 
 }
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+/**
+ * Particle based hydraulic erosion.
+ *
+ * Water droplets are spawned at random positions and run downhill. On their
+ * way they pick up sediment where they speed up and drop it where they slow
+ * down or their capacity is exceeded.
+ *
+ * The height field is split into square tiles. Droplets of a tile stay within
+ * half a tile of it, so tiles of the same checkerboard color never touch the
+ * same heights and are simulated in parallel. Every tile has its own random
+ * generator, derived from the seed, the tile & the round. This makes the
+ * result independent of the number of cores.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class HydraulicErosionGenerator extends Generator<HydraulicErosionGenerator> {
+
+    // droplets are spread over several rounds, so that no tile gets eroded
+    // all at once before its neighbours
+    private static final int ROUNDS = 8;
+    private static final int MIN_TILE_SIZE = 64;
+
+    private long seed = 0;
+    private int droplets = 100000;
+    private int maxLifetime = 30;
+    private int radius = 3;
+    private float inertia = 0.05f;
+    private float capacity = 4f;
+    private float minCapacity = 0.01f;
+    private float erosion = 0.3f;
+    private float deposition = 0.3f;
+    private float evaporation = 0.01f;
+    private float gravity = 4f;
+
+    // erosion brush
+    private int[] brushX;
+    private int[] brushZ;
+    private float[] brushWeights;
+
+    HydraulicErosionGenerator(Terrain terrain) {
+        super(terrain);
+    }
+
+    public HydraulicErosionGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param droplets
+     *            total number of simulated droplets
+     */
+    public HydraulicErosionGenerator droplets(int droplets) {
+        this.droplets = Math.max(0, droplets);
+        return this;
+    }
+
+    /**
+     * @param maxLifetime
+     *            maximum number of steps of a droplet
+     */
+    public HydraulicErosionGenerator maxLifetime(int maxLifetime) {
+        this.maxLifetime = Math.max(1, maxLifetime);
+        return this;
+    }
+
+    /**
+     * @param radius
+     *            radius in vertices around a droplet that gets eroded
+     */
+    public HydraulicErosionGenerator radius(int radius) {
+        this.radius = Math.max(1, radius);
+        return this;
+    }
+
+    /**
+     * @param inertia
+     *            0 means droplets always follow the slope, 1 means they never
+     *            change direction
+     */
+    public HydraulicErosionGenerator inertia(float inertia) {
+        this.inertia = inertia;
+        return this;
+    }
+
+    /**
+     * @param capacity
+     *            amount of sediment a droplet can carry, relative to its
+     *            speed, water & the slope
+     */
+    public HydraulicErosionGenerator capacity(float capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * @param erosion
+     *            fraction of the free capacity that is eroded per step
+     */
+    public HydraulicErosionGenerator erosion(float erosion) {
+        this.erosion = erosion;
+        return this;
+    }
+
+    /**
+     * @param deposition
+     *            fraction of the surplus sediment that is deposited per step
+     */
+    public HydraulicErosionGenerator deposition(float deposition) {
+        this.deposition = deposition;
+        return this;
+    }
+
+    /**
+     * @param evaporation
+     *            fraction of the water that evaporates per step
+     */
+    public HydraulicErosionGenerator evaporation(float evaporation) {
+        this.evaporation = evaporation;
+        return this;
+    }
+
+    public HydraulicErosionGenerator gravity(float gravity) {
+        this.gravity = gravity;
+        return this;
+    }
+
+    @Override
+    public void terraform() {
+        terrain.dequantize();
+        createBrush();
+
+        final float[] heights = terrain.heightData;
+        final int res = terrain.vertexResolution;
+
+        // simulate in vertex units, so that the parameters don't depend on the
+        // terrain size
+        final float cellSize = terrain.terrainWidth / (float) Math.max(1, res - 1);
+        scale(heights, 1f / cellSize);
+
+        final int tileSize = Math.max(MIN_TILE_SIZE, 4 * radius + 8);
+        final int tiles = (res + tileSize - 1) / tileSize;
+        final float dropletsPerCell = droplets / (float) ROUNDS / ((float) res * res);
+
+        final int phases = ROUNDS * 4;
+        for (int phase = 0; phase < phases; phase++) {
+            final int round = phase / 4;
+            final int colorX = phase & 1;
+            final int colorZ = (phase >> 1) & 1;
+            final int tilesX = (tiles - colorX + 1) / 2;
+            final int tilesZ = (tiles - colorZ + 1) / 2;
+
+            ParallelUtils.parallelFor(0, tilesX * tilesZ, 1, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    for (int i = from; i < to; i++) {
+                        final int tileX = (i % tilesX) * 2 + colorX;
+                        final int tileZ = (i / tilesX) * 2 + colorZ;
+                        erodeTile(heights, res, tileX, tileZ, tileSize, tiles, round, dropletsPerCell);
+                    }
+                }
+            });
+            reportProgress((phase + 1) / (float) phases);
+        }
+
+        scale(heights, cellSize);
+        terrain.update();
+    }
+
+    private void erodeTile(float[] heights, int res, int tileX, int tileZ, int tileSize, int tiles, int round,
+            float dropletsPerCell) {
+        final int coreMinX = tileX * tileSize;
+        final int coreMinZ = tileZ * tileSize;
+        final int coreMaxX = Math.min(res - 1, coreMinX + tileSize);
+        final int coreMaxZ = Math.min(res - 1, coreMinZ + tileSize);
+        if (coreMaxX <= coreMinX || coreMaxZ <= coreMinZ) return;
+
+        // region the droplets of this tile may touch. Half a tile on each side
+        // minus a gap, so it never overlaps with tiles of the same color.
+        final int reserve = tileSize / 2 - 1;
+        final Droplet d = new Droplet(heights, res);
+        d.minX = Math.max(0, coreMinX - reserve) + radius;
+        d.minZ = Math.max(0, coreMinZ - reserve) + radius;
+        d.maxX = Math.min(res - 2, coreMaxX + reserve - 1) - radius;
+        d.maxZ = Math.min(res - 2, coreMaxZ + reserve - 1) - radius;
+
+        final long stream = ((long) round * tiles + tileZ) * tiles + tileX;
+        final RandomXS128 random = new RandomXS128(seed * 0x9E3779B97F4A7C15L + stream);
+        final int count = Math.round((coreMaxX - coreMinX) * (coreMaxZ - coreMinZ) * dropletsPerCell);
+        for (int i = 0; i < count; i++) {
+            d.x = coreMinX + random.nextFloat() * (coreMaxX - coreMinX);
+            d.z = coreMinZ + random.nextFloat() * (coreMaxZ - coreMinZ);
+            simulate(d);
+        }
+    }
+
+    private void simulate(Droplet d) {
+        final float[] heights = d.heights;
+        final int res = d.res;
+
+        float dirX = 0;
+        float dirZ = 0;
+        float speed = 1;
+        float water = 1;
+        float sediment = 0;
+
+        int nodeX = (int) d.x;
+        int nodeZ = (int) d.z;
+        if (nodeX < d.minX || nodeX > d.maxX || nodeZ < d.minZ || nodeZ > d.maxZ) return;
+        float fracX = d.x - nodeX;
+        float fracZ = d.z - nodeZ;
+
+        for (int step = 0; step < maxLifetime; step++) {
+            final float height = d.sample(d.x, d.z);
+            final float gradX = d.gradX;
+            final float gradZ = d.gradZ;
+
+            // move downhill, keeping some of the old direction
+            dirX = dirX * inertia - gradX * (1 - inertia);
+            dirZ = dirZ * inertia - gradZ * (1 - inertia);
+            final float len = (float) Math.sqrt(dirX * dirX + dirZ * dirZ);
+            if (len < 1e-6f) break;
+            dirX /= len;
+            dirZ /= len;
+            d.x += dirX;
+            d.z += dirZ;
+
+            final int nextX = (int) d.x;
+            final int nextZ = (int) d.z;
+            if (nextX < d.minX || nextX > d.maxX || nextZ < d.minZ || nextZ > d.maxZ) break;
+
+            final float deltaHeight = d.sample(d.x, d.z) - height;
+            final float maxSediment = Math.max(-deltaHeight * speed * water * capacity, minCapacity);
+
+            if (sediment > maxSediment || deltaHeight > 0) {
+                // uphill: fill the pit. Otherwise drop the surplus.
+                final float amount = deltaHeight > 0 ? Math.min(deltaHeight, sediment)
+                        : (sediment - maxSediment) * deposition;
+                sediment -= amount;
+                deposit(heights, res, nodeX, nodeZ, fracX, fracZ, amount);
+            } else {
+                // never erode more than the height difference, this would dig
+                // holes behind the droplet
+                final float amount = Math.min((maxSediment - sediment) * erosion, -deltaHeight);
+                erode(heights, res, nodeX, nodeZ, amount);
+                sediment += amount;
+            }
+
+            speed = (float) Math.sqrt(Math.max(0, speed * speed - deltaHeight * gravity));
+            water *= 1 - evaporation;
+
+            nodeX = nextX;
+            nodeZ = nextZ;
+            fracX = d.x - nodeX;
+            fracZ = d.z - nodeZ;
+        }
+
+        // the droplet is gone, but the material stays
+        deposit(heights, res, nodeX, nodeZ, fracX, fracZ, sediment);
+    }
+
+    /**
+     * Distributes an amount bilinearly over the 4 vertices of a cell.
+     */
+    private static void deposit(float[] heights, int res, int nodeX, int nodeZ, float fracX, float fracZ,
+            float amount) {
+        final int i = nodeZ * res + nodeX;
+        heights[i] += amount * (1 - fracX) * (1 - fracZ);
+        heights[i + 1] += amount * fracX * (1 - fracZ);
+        heights[i + res] += amount * (1 - fracX) * fracZ;
+        heights[i + res + 1] += amount * fracX * fracZ;
+    }
+
+    /**
+     * Removes an amount from the vertices around a node, weighted by the
+     * brush.
+     */
+    private void erode(float[] heights, int res, int nodeX, int nodeZ, float amount) {
+        final int center = nodeZ * res + nodeX;
+        for (int b = 0; b < brushWeights.length; b++) {
+            heights[center + brushZ[b] * res + brushX[b]] -= amount * brushWeights[b];
+        }
+    }
+
+    /**
+     * Creates a cone shaped brush with weights that sum up to 1.
+     */
+    private void createBrush() {
+        int count = 0;
+        for (int z = -radius; z <= radius; z++) {
+            for (int x = -radius; x <= radius; x++) {
+                if (x * x + z * z < radius * radius) count++;
+            }
+        }
+
+        brushX = new int[count];
+        brushZ = new int[count];
+        brushWeights = new float[count];
+        float sum = 0;
+        int i = 0;
+        for (int z = -radius; z <= radius; z++) {
+            for (int x = -radius; x <= radius; x++) {
+                if (x * x + z * z >= radius * radius) continue;
+                brushX[i] = x;
+                brushZ[i] = z;
+                brushWeights[i] = 1 - (float) Math.sqrt(x * x + z * z) / radius;
+                sum += brushWeights[i];
+                i++;
+            }
+        }
+        for (i = 0; i < count; i++) {
+            brushWeights[i] /= sum;
+        }
+    }
+
+    private static void scale(final float[] heights, final float factor) {
+        ParallelUtils.parallelFor(0, heights.length, 1 << 16, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    heights[i] *= factor;
+                }
+            }
+        });
+    }
+
+    /**
+     * Position & bounds of the droplets of one tile. Also returns the gradient
+     * of the last sample, to avoid allocations.
+     */
+    private static class Droplet {
+        final float[] heights;
+        final int res;
+        int minX, minZ, maxX, maxZ;
+        float x, z;
+        float gradX, gradZ;
+
+        Droplet(float[] heights, int res) {
+            this.heights = heights;
+            this.res = res;
+        }
+
+        /**
+         * Bilinear height at a position. Sets the gradient as a side effect.
+         */
+        float sample(float x, float z) {
+            final int nodeX = (int) x;
+            final int nodeZ = (int) z;
+            final float fx = x - nodeX;
+            final float fz = z - nodeZ;
+
+            final int i = nodeZ * res + nodeX;
+            final float h00 = heights[i];
+            final float h10 = heights[i + 1];
+            final float h01 = heights[i + res];
+            final float h11 = heights[i + res + 1];
+
+            gradX = (h10 - h00) * (1 - fz) + (h11 - h01) * fz;
+            gradZ = (h01 - h00) * (1 - fx) + (h11 - h10) * fx;
+            return h00 * (1 - fx) * (1 - fz) + h10 * fx * (1 - fz) + h01 * (1 - fx) * fz + h11 * fx * fz;
+        }
+    }
+
+}
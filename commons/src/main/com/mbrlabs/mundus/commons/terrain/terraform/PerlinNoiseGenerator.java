@@ -16,24 +16,43 @@
 
 package com.mbrlabs.mundus.commons.terrain.terraform;
 
-import com.badlogic.gdx.math.Interpolation;
 import com.mbrlabs.mundus.commons.terrain.Terrain;
-
-import java.util.Random;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
 
 /**
+ * Fractal gradient noise (fBm), optionally with domain warping.
+ *
+ * Several octaves of {@link SimplexNoise} are summed up. Every octave has
+ * lacunarity times the frequency & gain times the amplitude of the previous
+ * one. Noise coordinates are relative to the terrain, so the result doesn't
+ * depend on the vertex resolution.
+ *
+ * Rows are evaluated in parallel. The same seed & parameters always give the
+ * same heights.
  *
  * @author Marcus Brummer
- * @version 20-06-2016
+ * @version 17-10-2026
  */
 public class PerlinNoiseGenerator extends Generator<PerlinNoiseGenerator> {
 
-    private Random rand = new Random();
+    private static final int ROWS_PER_TASK = 16;
+
+    // decorrelates octaves & the two warp fields
+    private static final float OCTAVE_OFFSET = 19.19f;
+    private static final float WARP_OFFSET_X = 5.2f;
+    private static final float WARP_OFFSET_Z = 1.3f;
+
     private long seed = 0;
     // number of noise functions
-    private int octaves = 1;
+    private int octaves = 6;
+    // noise periods across the whole terrain in the first octave
+    private float frequency = 4;
+    // increase of frequency per octave
+    private float lacunarity = 2;
     // decrease of amplitude per octave
-    private float roughness = 0;
+    private float gain = 0.5f;
+    // strength of the domain warping, in periods of the first octave
+    private float warp = 0;
 
     PerlinNoiseGenerator(Terrain terrain) {
         super(terrain);
@@ -45,72 +64,102 @@ public class PerlinNoiseGenerator extends Generator<PerlinNoiseGenerator> {
     }
 
     public PerlinNoiseGenerator octaves(int octaves) {
-        this.octaves = octaves;
+        this.octaves = Math.max(1, octaves);
         return this;
     }
 
-    public PerlinNoiseGenerator roughness(float roughness) {
-        this.roughness = roughness;
+    public PerlinNoiseGenerator frequency(float frequency) {
+        this.frequency = frequency;
         return this;
     }
 
-    @Override
-    public void terraform() {
-        rand.setSeed(seed);
+    public PerlinNoiseGenerator lacunarity(float lacunarity) {
+        this.lacunarity = lacunarity;
+        return this;
+    }
 
-        // final float d = (float) Math.pow(2, this.octaves);
+    public PerlinNoiseGenerator gain(float gain) {
+        this.gain = gain;
+        return this;
+    }
 
-        for (int i = 0; i < terrain.heightData.length; i++) {
-            int x = i % terrain.vertexResolution;
-            int z = (int) Math.floor((double) i / terrain.vertexResolution);
+    /**
+     * @deprecated use {@link #gain(float)}, which is the same setting
+     */
+    @Deprecated
+    public PerlinNoiseGenerator roughness(float roughness) {
+        return gain(roughness);
+    }
 
-            float height = Interpolation.linear.apply(minHeight, maxHeight, getInterpolatedNoise(x / 4f, z / 4f));
-            height += Interpolation.linear.apply(minHeight / 3f, maxHeight / 3f, getInterpolatedNoise(x / 2f, z / 2f));
+    public PerlinNoiseGenerator warp(float warp) {
+        this.warp = warp;
+        return this;
+    }
 
-            terrain.heightData[z * terrain.vertexResolution + x] = height;
-        }
+    @Override
+    public void terraform() {
+        terrain.dequantize();
+
+        final SimplexNoise noise = new SimplexNoise(seed);
+        final float[] heights = terrain.heightData;
+        final int res = terrain.vertexResolution;
+        final float scale = frequency / Math.max(1, res - 1);
+
+        // normalizes the octave sum to [-1, 1]
+        final float norm = 1f / amplitudeSum();
+
+        ParallelUtils.parallelFor(0, res, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int z = from; z < to; z++) {
+                    final float pz = z * scale;
+                    for (int x = 0; x < res; x++) {
+                        final float px = x * scale;
+                        final float value = warp == 0 ? fbm(noise, px, pz) : warpedFbm(noise, px, pz, norm);
+                        final float t = value * norm * 0.5f + 0.5f;
+                        heights[z * res + x] = minHeight + (maxHeight - minHeight) * t;
+                    }
+                }
+            }
+        });
 
         terrain.update();
     }
 
-    private float interpolate(float a, float b, float blend) {
-        double theta = blend * Math.PI;
-        float f = (float) (1f - Math.cos(theta)) * 0.5f;
-        return a * (1f - f) + b * f;
-    }
-
-    private float getNoise(int x, int z) {
-        rand.setSeed(x * 49632 + z * 325176 + seed);
-        return rand.nextFloat();
+    /**
+     * Warps the sample position by two further fBm fields.
+     */
+    private float warpedFbm(SimplexNoise noise, float x, float z, float norm) {
+        final float strength = warp * norm;
+        final float wx = fbm(noise, x + WARP_OFFSET_X, z + WARP_OFFSET_Z);
+        final float wz = fbm(noise, x + WARP_OFFSET_Z, z + WARP_OFFSET_X);
+        return fbm(noise, x + wx * strength, z + wz * strength);
     }
 
-    private float getInterpolatedNoise(float x, float z) {
-        int intX = (int) x;
-        int intZ = (int) z;
-        float fracX = x - intX;
-        float fracZ = z - intZ;
-
-        float v1 = getSmoothNoise(intX, intZ);
-        float v2 = getSmoothNoise(intX + 1, intZ);
-        float v3 = getSmoothNoise(intX, intZ + 1);
-        float v4 = getSmoothNoise(intX + 1, intZ + 1);
-        float i1 = interpolate(v1, v2, fracX);
-        float i2 = interpolate(v3, v4, fracX);
-        return interpolate(i1, i2, fracZ);
+    /**
+     * @return largest possible absolute value of fbm()
+     */
+    private float amplitudeSum() {
+        float sum = 0;
+        float amplitude = 1;
+        for (int i = 0; i < octaves; i++) {
+            sum += Math.abs(amplitude);
+            amplitude *= gain;
+        }
+        return sum == 0 ? 1 : sum;
     }
 
-    private float getSmoothNoise(int x, int z) {
-        // corner noise
-        float corners = getNoise(x + 1, z - 1) + getNoise(x + 1, z - 1) + getNoise(x - 1, z + 1)
-                + getNoise(x + 1, z + 1);
-        corners /= 16f;
-        // side noise
-        float sides = getNoise(x - 1, z) + getNoise(x + 1, z) + getNoise(x, z - 1) + getNoise(x, z + 1);
-        sides /= 8f;
-        // center noise
-        float center = getNoise(x, z) / 4f;
-
-        return corners + sides + center;
+    private float fbm(SimplexNoise noise, float x, float z) {
+        float sum = 0;
+        float amplitude = 1;
+        float freq = 1;
+        for (int i = 0; i < octaves; i++) {
+            final float offset = i * OCTAVE_OFFSET;
+            sum += amplitude * noise.noise(x * freq + offset, z * freq + offset);
+            freq *= lacunarity;
+            amplitude *= gain;
+        }
+        return sum;
     }
 
 }
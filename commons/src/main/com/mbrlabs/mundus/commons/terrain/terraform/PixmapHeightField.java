@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Height field backed by the first color channel of a RGB888 or RGBA8888
+ * pixmap. Only has 256 height levels, prefer {@link PngHeightField} for
+ * 16 bit images.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class PixmapHeightField implements HeightField {
+
+    private final ByteBuffer pixels;
+    private final int width;
+    private final int height;
+    private final int bytesPerPixel;
+
+    public PixmapHeightField(Pixmap pixmap) {
+        final Pixmap.Format format = pixmap.getFormat();
+        bytesPerPixel = format == Pixmap.Format.RGB888 ? 3 : (format == Pixmap.Format.RGBA8888 ? 4 : 0);
+        if (bytesPerPixel == 0) throw new GdxRuntimeException("Unsupported format, should be either RGB8 or RGBA8");
+
+        this.pixels = pixmap.getPixels();
+        this.width = pixmap.getWidth();
+        this.height = pixmap.getHeight();
+        if (pixels.limit() < width * height * bytesPerPixel) throw new GdxRuntimeException("Incorrect map size");
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public float get(int x, int y) {
+        return (pixels.get((y * width + x) * bytesPerPixel) & 0xFF) / 255f;
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Height field decoded from a PNG image with 8 or 16 bits per channel.
+ *
+ * The image data is inflated & unfiltered row by row while it is read, so
+ * only two rows of raw image data are held in memory besides the decoded
+ * heights. Only the first channel is used, 16 bit grayscale images keep
+ * their full precision. Palette & interlaced images and bit depths below 8
+ * are not supported, they fail with an {@link UnsupportedFormatException}
+ * and can be read with a {@link PixmapHeightField} instead.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class PngHeightField implements HeightField {
+
+    private static final byte[] SIGNATURE = { (byte) 137, 'P', 'N', 'G', 13, 10, 26, 10 };
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+
+    /**
+     * Thrown for valid PNG images this decoder doesn't support.
+     */
+    public static class UnsupportedFormatException extends GdxRuntimeException {
+        public UnsupportedFormatException(String message) {
+            super(message);
+        }
+    }
+
+    private final short[] values;
+    private final int width;
+    private final int height;
+
+    private PngHeightField(short[] values, int width, int height) {
+        this.values = values;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static PngHeightField read(FileHandle file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.read(), 1 << 16));
+            return read(in);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't read heightmap: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+
+    private static PngHeightField read(DataInputStream in) throws IOException {
+        final byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (signature[i] != SIGNATURE[i]) throw new GdxRuntimeException("Not a PNG file");
+        }
+
+        int width = 0;
+        int height = 0;
+        int bitDepth = 0;
+        int channels = 0;
+        while (true) {
+            final int length = in.readInt();
+            final int type = in.readInt();
+            if (type == IHDR) {
+                width = in.readInt();
+                height = in.readInt();
+                bitDepth = in.readUnsignedByte();
+                channels = channels(in.readUnsignedByte());
+                in.skipBytes(2);
+                final int interlace = in.readUnsignedByte();
+                skipFully(in, length - 13 + 4);
+                if (bitDepth != 8 && bitDepth != 16) {
+                    throw new UnsupportedFormatException("Unsupported PNG bit depth: " + bitDepth);
+                }
+                if (interlace != 0) throw new UnsupportedFormatException("Interlaced PNGs are not supported");
+            } else if (type == IDAT) {
+                if (width == 0) throw new GdxRuntimeException("PNG without header");
+                final InputStream data = new InflaterInputStream(new IdatInputStream(in, length), new Inflater(),
+                        1 << 16);
+                return new PngHeightField(decode(data, width, height, bitDepth, channels), width, height);
+            } else {
+                // chunk data & crc
+                skipFully(in, length + 4);
+            }
+        }
+    }
+
+    private static int channels(int colorType) {
+        switch (colorType) {
+        case 0:
+            return 1; // gray
+        case 2:
+            return 3; // rgb
+        case 4:
+            return 2; // gray & alpha
+        case 6:
+            return 4; // rgba
+        default:
+            throw new UnsupportedFormatException("Unsupported PNG color type: " + colorType);
+        }
+    }
+
+    private static short[] decode(InputStream data, int width, int height, int bitDepth, int channels)
+            throws IOException {
+        final int bytesPerSample = bitDepth / 8;
+        final int bpp = channels * bytesPerSample;
+        final int rowBytes = width * bpp;
+
+        byte[] row = new byte[rowBytes];
+        byte[] previous = new byte[rowBytes];
+        final short[] values = new short[width * height];
+
+        for (int y = 0; y < height; y++) {
+            final int filter = data.read();
+            if (filter < 0) throw new EOFException("PNG data ended after " + y + " rows");
+            readFully(data, row);
+            unfilter(filter, row, previous, bpp);
+
+            final int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                final int i = x * bpp;
+                values[offset + x] = bytesPerSample == 2 ? (short) (((row[i] & 0xFF) << 8) | (row[i + 1] & 0xFF))
+                        : (short) ((row[i] & 0xFF) * 257);
+            }
+
+            final byte[] tmp = previous;
+            previous = row;
+            row = tmp;
+        }
+
+        return values;
+    }
+
+    private static void unfilter(int filter, byte[] row, byte[] previous, int bpp) {
+        final int n = row.length;
+        switch (filter) {
+        case 0:
+            break;
+        case 1: // sub
+            for (int i = bpp; i < n; i++) {
+                row[i] += row[i - bpp];
+            }
+            break;
+        case 2: // up
+            for (int i = 0; i < n; i++) {
+                row[i] += previous[i];
+            }
+            break;
+        case 3: // average
+            for (int i = 0; i < n; i++) {
+                final int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                row[i] += (left + (previous[i] & 0xFF)) >>> 1;
+            }
+            break;
+        case 4: // paeth
+            for (int i = 0; i < n; i++) {
+                final int a = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                final int b = previous[i] & 0xFF;
+                final int c = i >= bpp ? previous[i - bpp] & 0xFF : 0;
+                final int p = a + b - c;
+                final int pa = Math.abs(p - a);
+                final int pb = Math.abs(p - b);
+                final int pc = Math.abs(p - c);
+                row[i] += pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+            }
+            break;
+        default:
+            throw new GdxRuntimeException("Invalid PNG filter: " + filter);
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            final int count = in.read(buffer, read, buffer.length - read);
+            if (count < 0) throw new EOFException("Unexpected end of PNG data");
+            read += count;
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        while (count > 0) {
+            final int skipped = in.skipBytes(count);
+            if (skipped <= 0) throw new EOFException();
+            count -= skipped;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public float get(int x, int y) {
+        return (values[y * width + x] & 0xFFFF) / 65535f;
+    }
+
+    /**
+     * Concatenates the data of successive IDAT chunks.
+     */
+    private static class IdatInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private int remaining;
+        private boolean done;
+
+        IdatInputStream(DataInputStream in, int length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        private boolean nextChunk() throws IOException {
+            while (remaining == 0 && !done) {
+                // crc of the current chunk
+                skipFully(in, 4);
+                remaining = in.readInt();
+                done = in.readInt() != IDAT;
+            }
+            return !done;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) return -1;
+            remaining--;
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunk()) return -1;
+            final int count = in.read(b, off, Math.min(len, remaining));
+            if (count < 0) throw new EOFException();
+            remaining -= count;
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Height field read from a headerless file of 16 bit unsigned integers or 32
+ * bit floats, as exported by most terrain & DEM tools.
+ *
+ * Regular files are memory mapped, so only the parts that are actually
+ * sampled are paged in. 16 bit values are normalized by 65535, floats by the
+ * range of the file.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class RawHeightField implements HeightField {
+
+    /**
+     * Type of the values.
+     */
+    public enum Format {
+        UINT16(2), FLOAT32(4);
+
+        public final int bytes;
+
+        Format(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int height;
+    private final Format format;
+
+    // range of float files
+    private float min = 0;
+    private float invRange = 1;
+
+    /**
+     * Opens a square raw file, the size is derived from the file length.
+     *
+     * @param file
+     *            raw file
+     * @param format
+     *            type of the values
+     * @param order
+     *            byte order of the values
+     */
+    public RawHeightField(FileHandle file, Format format, ByteOrder order) {
+        this(file, squareSize(file, format), -1, format, order);
+    }
+
+    /**
+     * @param file
+     *            raw file
+     * @param width
+     *            number of columns
+     * @param height
+     *            number of rows. -1 for the same as width.
+     * @param format
+     *            type of the values
+     * @param order
+     *            byte order of the values
+     */
+    public RawHeightField(FileHandle file, int width, int height, Format format, ByteOrder order) {
+        this.width = width;
+        this.height = height < 0 ? width : height;
+        this.format = format;
+
+        try {
+            this.buffer = open(file).order(order);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't read heightmap: " + file, e);
+        }
+        if ((long) this.width * this.height * format.bytes > buffer.limit()) {
+            throw new GdxRuntimeException("Heightmap is smaller than " + this.width + "x" + this.height + ": " + file);
+        }
+
+        if (format == Format.FLOAT32) {
+            computeRange();
+        }
+    }
+
+    private static int squareSize(FileHandle file, Format format) {
+        final long values = file.length() / format.bytes;
+        final int size = (int) Math.round(Math.sqrt(values));
+        if ((long) size * size != values) {
+            throw new GdxRuntimeException("Heightmap is not square, specify its size: " + file);
+        }
+        return size;
+    }
+
+    private static ByteBuffer open(FileHandle file) throws IOException {
+        File f = null;
+        try {
+            f = file.file();
+        } catch (GdxRuntimeException e) {
+            // not backed by a file
+        }
+
+        if (f != null && f.isFile()) {
+            final RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } finally {
+                raf.close();
+            }
+        }
+
+        return ByteBuffer.wrap(file.readBytes());
+    }
+
+    private void computeRange() {
+        final int rows = height;
+        final float[] rowMin = new float[rows];
+        final float[] rowMax = new float[rows];
+        ParallelUtils.parallelFor(0, rows, 16, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    float lo = Float.MAX_VALUE;
+                    float hi = -Float.MAX_VALUE;
+                    for (int x = 0; x < width; x++) {
+                        final float value = buffer.getFloat((y * width + x) * 4);
+                        if (value < lo) lo = value;
+                        if (value > hi) hi = value;
+                    }
+                    rowMin[y] = lo;
+                    rowMax[y] = hi;
+                }
+            }
+        });
+
+        float lo = Float.MAX_VALUE;
+        float hi = -Float.MAX_VALUE;
+        for (int y = 0; y < rows; y++) {
+            lo = Math.min(lo, rowMin[y]);
+            hi = Math.max(hi, rowMax[y]);
+        }
+        min = lo;
+        invRange = hi > lo ? 1f / (hi - lo) : 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public float get(int x, int y) {
+        final int index = y * width + x;
+        if (format == Format.UINT16) {
+            return (buffer.getShort(index * 2) & 0xFFFF) / 65535f;
+        }
+        return (buffer.getFloat(index * 4) - min) * invRange;
+    }
+
+}
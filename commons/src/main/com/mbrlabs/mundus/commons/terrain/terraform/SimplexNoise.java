@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import java.util.Random;
+
+/**
+ * Seeded 2D simplex noise, based on the reference implementation of Stefan
+ * Gustavson.
+ *
+ * The permutation table is created once from the seed. Sampling doesn't
+ * allocate & only reads the table, so one instance can be sampled from many
+ * threads at once. The same seed always gives the same noise.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class SimplexNoise {
+
+    private static final float F2 = (float) (0.5 * (Math.sqrt(3.0) - 1.0));
+    private static final float G2 = (float) ((3.0 - Math.sqrt(3.0)) / 6.0);
+
+    // the 12 gradients of the reference implementation, projected onto the
+    // xy plane. With these the sum of the corners, scaled by 70, peaks at
+    // about +-0.998.
+    private static final float[] GRAD_X = { 1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0 };
+    private static final float[] GRAD_Y = { 1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1 };
+
+    private final int[] perm = new int[512];
+    private final int[] permMod12 = new int[512];
+
+    public SimplexNoise(long seed) {
+        final int[] p = new int[256];
+        for (int i = 0; i < 256; i++) {
+            p[i] = i;
+        }
+
+        // Fisher-Yates shuffle
+        final Random random = new Random(seed);
+        for (int i = 255; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int tmp = p[i];
+            p[i] = p[j];
+            p[j] = tmp;
+        }
+
+        for (int i = 0; i < 512; i++) {
+            perm[i] = p[i & 255];
+            permMod12[i] = perm[i] % 12;
+        }
+    }
+
+    /**
+     * @return noise at x,y in the range [-1, 1], the extremes come within
+     *         0.3% of +-1
+     */
+    public float noise(float x, float y) {
+        // skew the input space to find the simplex cell
+        final float s = (x + y) * F2;
+        final int i = fastFloor(x + s);
+        final int j = fastFloor(y + s);
+        final float t = (i + j) * G2;
+        final float x0 = x - (i - t);
+        final float y0 = y - (j - t);
+
+        // upper or lower triangle of the cell
+        final int i1 = x0 > y0 ? 1 : 0;
+        final int j1 = 1 - i1;
+
+        final float x1 = x0 - i1 + G2;
+        final float y1 = y0 - j1 + G2;
+        final float x2 = x0 - 1f + 2f * G2;
+        final float y2 = y0 - 1f + 2f * G2;
+
+        final int ii = i & 255;
+        final int jj = j & 255;
+
+        return 70f * (corner(permMod12[ii + perm[jj]], x0, y0)
+                + corner(permMod12[ii + i1 + perm[jj + j1]], x1, y1)
+                + corner(permMod12[ii + 1 + perm[jj + 1]], x2, y2));
+    }
+
+    private static float corner(int gradient, float x, float y) {
+        float t = 0.5f - x * x - y * y;
+        if (t < 0) return 0;
+        t *= t;
+        return t * t * (GRAD_X[gradient] * x + GRAD_Y[gradient] * y);
+    }
+
+    private static int fastFloor(float x) {
+        final int xi = (int) x;
+        return x < xi ? xi - 1 : xi;
+    }
+
+}
@@ -22,7 +22,7 @@ import com.mbrlabs.mundus.commons.terrain.Terrain;
  * Factory class for terraform generators.
  *
  * @author Marcus Brummer
- * @version 20-06-2016
+ * @version 17-10-2026
  */
 public class Terraformer {
 
@@ -34,4 +34,12 @@ public class Terraformer {
         return new HeightMapGenerator(terrain);
     }
 
+    public static HydraulicErosionGenerator hydraulicErosion(Terrain terrain) {
+        return new HydraulicErosionGenerator(terrain);
+    }
+
+    public static ThermalErosionGenerator thermalErosion(Terrain terrain) {
+        return new ThermalErosionGenerator(terrain);
+    }
+
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.terrain.terraform;
+
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
+
+/**
+ * Thermal erosion.
+ *
+ * Material slides down wherever the slope to a neighbour is steeper than the
+ * talus angle, until all slopes are at most that steep.
+ *
+ * Every iteration reads the heights of the previous one & writes into a
+ * second buffer, so rows are processed in parallel & the result doesn't
+ * depend on the processing order. Material is conserved.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class ThermalErosionGenerator extends Generator<ThermalErosionGenerator> {
+
+    private static final int ROWS_PER_TASK = 32;
+
+    // 8 neighbours
+    private static final int[] NEIGHBOUR_X = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    private static final int[] NEIGHBOUR_Z = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+    private int iterations = 50;
+    private float talusAngle = 35;
+    private float strength = 0.25f;
+
+    ThermalErosionGenerator(Terrain terrain) {
+        super(terrain);
+    }
+
+    public ThermalErosionGenerator iterations(int iterations) {
+        this.iterations = Math.max(0, iterations);
+        return this;
+    }
+
+    /**
+     * @param degrees
+     *            steepest stable slope
+     */
+    public ThermalErosionGenerator talusAngle(float degrees) {
+        this.talusAngle = degrees;
+        return this;
+    }
+
+    /**
+     * @param strength
+     *            fraction of the excess height moved per iteration. Clamped
+     *            to 0.5, larger values oscillate.
+     */
+    public ThermalErosionGenerator strength(float strength) {
+        this.strength = Math.max(0, Math.min(0.5f, strength));
+        return this;
+    }
+
+    @Override
+    public void terraform() {
+        terrain.dequantize();
+
+        final int res = terrain.vertexResolution;
+        final float cellSize = terrain.terrainWidth / (float) Math.max(1, res - 1);
+        final float talus = (float) Math.tan(Math.toRadians(talusAngle)) * cellSize;
+
+        // stable height difference per neighbour
+        final float[] thresholds = new float[NEIGHBOUR_X.length];
+        for (int n = 0; n < thresholds.length; n++) {
+            final boolean diagonal = NEIGHBOUR_X[n] != 0 && NEIGHBOUR_Z[n] != 0;
+            thresholds[n] = diagonal ? talus * (float) Math.sqrt(2) : talus;
+        }
+
+        final float[] original = terrain.heightData;
+        final float[] outflow = new float[original.length];
+        final float[] ratio = new float[original.length];
+        float[] src = original;
+        float[] dst = new float[original.length];
+
+        for (int i = 0; i < iterations; i++) {
+            final float[] read = src;
+            final float[] write = dst;
+
+            // how much material leaves every vertex & how it is split up
+            ParallelUtils.parallelFor(0, res, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    for (int z = from; z < to; z++) {
+                        for (int x = 0; x < res; x++) {
+                            computeOutflow(read, res, x, z, thresholds, outflow, ratio);
+                        }
+                    }
+                }
+            });
+
+            // gather the material flowing in from the neighbours
+            ParallelUtils.parallelFor(0, res, ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+                @Override
+                public void run(int from, int to) {
+                    for (int z = from; z < to; z++) {
+                        for (int x = 0; x < res; x++) {
+                            gather(read, write, res, x, z, thresholds, outflow, ratio);
+                        }
+                    }
+                }
+            });
+
+            src = write;
+            dst = read;
+            reportProgress((i + 1) / (float) iterations);
+        }
+
+        if (src != original) {
+            System.arraycopy(src, 0, original, 0, original.length);
+        }
+        terrain.update();
+    }
+
+    private void computeOutflow(float[] heights, int res, int x, int z, float[] thresholds, float[] outflow,
+            float[] ratio) {
+        final int i = z * res + x;
+        final float h = heights[i];
+        float sum = 0;
+        float max = 0;
+        for (int n = 0; n < thresholds.length; n++) {
+            final int nx = x + NEIGHBOUR_X[n];
+            final int nz = z + NEIGHBOUR_Z[n];
+            if (nx < 0 || nz < 0 || nx >= res || nz >= res) continue;
+            final float excess = h - heights[nz * res + nx] - thresholds[n];
+            if (excess > 0) {
+                sum += excess;
+                max = Math.max(max, excess);
+            }
+        }
+
+        // move a part of the largest excess, split up proportionally
+        outflow[i] = max * strength;
+        ratio[i] = sum > 0 ? outflow[i] / sum : 0;
+    }
+
+    private static void gather(float[] read, float[] write, int res, int x, int z, float[] thresholds,
+            float[] outflow, float[] ratio) {
+        final int i = z * res + x;
+        final float h = read[i];
+        float result = h - outflow[i];
+        for (int n = 0; n < thresholds.length; n++) {
+            final int nx = x + NEIGHBOUR_X[n];
+            final int nz = z + NEIGHBOUR_Z[n];
+            if (nx < 0 || nz < 0 || nx >= res || nz >= res) continue;
+            final int j = nz * res + nx;
+            // the threshold from the neighbour back to us is the same
+            final float excess = read[j] - h - thresholds[n];
+            if (excess > 0) {
+                result += excess * ratio[j];
+            }
+        }
+        write[i] = result;
+    }
+
+}
@@ -16,6 +16,16 @@
 
 #ifdef GL_ES
 precision mediump float;
+#ifdef layersFlag
+precision mediump sampler2DArray;
+#endif
+#endif
+
+#ifdef glsl3Flag
+#define varying in
+#define texture2D texture
+out vec4 fragColor;
+#define gl_FragColor fragColor
 #endif
 
 const vec4 COLOR_TURQUOISE = vec4(0,0.714,0.586, 1.0);
@@ -23,6 +33,20 @@ const vec4 COLOR_WHITE = vec4(1,1,1, 1.0);
 const vec4 COLOR_DARK = vec4(0.05,0.05,0.05, 1.0);
 const vec4 COLOR_BRIGHT = vec4(0.8,0.8,0.8, 1.0);
 
+#ifdef layersFlag
+// texture array & weight maps with 4 layers each
+uniform sampler2DArray u_layers;
+uniform sampler2D u_weights0;
+#if layerCount > 4
+uniform sampler2D u_weights1;
+#endif
+#if layerCount > 8
+uniform sampler2D u_weights2;
+#endif
+#if layerCount > 12
+uniform sampler2D u_weights3;
+#endif
+#else
 // splat textures
 uniform sampler2D u_texture_base;
 uniform sampler2D u_texture_r;
@@ -30,8 +54,7 @@ uniform sampler2D u_texture_g;
 uniform sampler2D u_texture_b;
 uniform sampler2D u_texture_a;
 uniform sampler2D u_texture_splat;
-uniform int u_texture_has_splatmap;
-uniform int u_texture_has_diffuse;
+#endif
 
 uniform vec4 u_fogColor;
 
@@ -59,19 +82,79 @@ uniform AmbientLight u_ambientLight;
 uniform DirectionalLight u_directionalLight;
 
 
-void main(void) {
+#ifdef layersFlag
+// blends the sampledLayers layers with the largest weights
+vec4 blendLayers() {
+    vec4 maps[4];
+    maps[0] = texture2D(u_weights0, splatPosition);
+#if layerCount > 4
+    maps[1] = texture2D(u_weights1, splatPosition);
+#endif
+#if layerCount > 8
+    maps[2] = texture2D(u_weights2, splatPosition);
+#endif
+#if layerCount > 12
+    maps[3] = texture2D(u_weights3, splatPosition);
+#endif
 
-    // blend textures
-    if(u_texture_has_diffuse == 1) {
-        gl_FragColor = texture2D(u_texture_base, v_texCoord0);
+    float weights[layerCount];
+    float total = 0.0;
+    for (int i = 0; i < layerCount; i++) {
+        weights[i] = maps[i / 4][i - (i / 4) * 4];
+        total += weights[i];
     }
-    if(u_texture_has_splatmap == 1) {
-        vec4 splat = texture2D(u_texture_splat, splatPosition);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_r, v_texCoord0), splat.r);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_g, v_texCoord0), splat.g);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_b, v_texCoord0), splat.b);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_a, v_texCoord0), splat.a);
+    // the first layer is the base layer
+    weights[0] += max(0.0, 1.0 - total);
+
+    // gradients taken outside of the non-uniform loop below
+    vec2 dx = dFdx(v_texCoord0);
+    vec2 dy = dFdy(v_texCoord0);
+
+    vec4 color = vec4(0.0);
+    total = 0.0;
+    for (int n = 0; n < sampledLayers; n++) {
+        int best = 0;
+        for (int i = 1; i < layerCount; i++) {
+            if (weights[i] > weights[best]) best = i;
+        }
+        float weight = weights[best];
+        if (weight <= 0.0) break;
+
+        color += textureGrad(u_layers, vec3(v_texCoord0, float(best)), dx, dy) * weight;
+        total += weight;
+        weights[best] = 0.0;
     }
+    return color / max(total, 0.0001);
+}
+#endif
+
+void main(void) {
+
+    // blend textures
+#ifdef layersFlag
+    gl_FragColor = blendLayers();
+#else
+#ifdef diffuseTextureFlag
+    gl_FragColor = texture2D(u_texture_base, v_texCoord0);
+#else
+    gl_FragColor = COLOR_WHITE;
+#endif
+#ifdef splatFlag
+    vec4 splat = texture2D(u_texture_splat, splatPosition);
+#ifdef splatRFlag
+    gl_FragColor = mix(gl_FragColor, texture2D(u_texture_r, v_texCoord0), splat.r);
+#endif
+#ifdef splatGFlag
+    gl_FragColor = mix(gl_FragColor, texture2D(u_texture_g, v_texCoord0), splat.g);
+#endif
+#ifdef splatBFlag
+    gl_FragColor = mix(gl_FragColor, texture2D(u_texture_b, v_texCoord0), splat.b);
+#endif
+#ifdef splatAFlag
+    gl_FragColor = mix(gl_FragColor, texture2D(u_texture_a, v_texCoord0), splat.a);
+#endif
+#endif
+#endif
 
     // =================================================================
     //                          Lighting
@@ -14,9 +14,24 @@
  * limitations under the License.
  */
 
+#ifdef glsl3Flag
+#define attribute in
+#define varying out
+#endif
+
+#ifdef compactFlag
+// height & packed vertex: octahedral normal (xy), position in the patch (zw)
+attribute float a_height;
+attribute vec4 a_packed;
+
+uniform vec2 u_gridOffset;
+uniform vec2 u_gridSpacing;
+uniform vec2 u_uvStep;
+#else
 attribute vec3 a_position;
 attribute vec3 a_normal;
 attribute vec2 a_texCoord0;
+#endif
 
 uniform mat4 u_transMatrix;
 uniform mat4 u_projViewMatrix;
@@ -40,7 +55,6 @@ uniform float  u_fogDensity;
 uniform float  u_fogGradient;
 
 uniform vec2 u_terrainSize;
-uniform int u_texture_has_splatmap;
 
 varying vec2 v_texCoord0;
 varying vec2 splatPosition;
@@ -49,16 +63,28 @@ varying vec4 v_lighting;
 varying vec3 v_normal;
 
 void main(void) {
+#ifdef compactFlag
+    vec2 grid = floor(a_packed.zw * 255.0 + 0.5) + u_gridOffset;
+    vec3 position = vec3(grid.x * u_gridSpacing.x, a_height, grid.y * u_gridSpacing.y);
+    vec2 oct = a_packed.xy * 2.0 - 1.0;
+    vec3 normal = vec3(oct.x, 1.0 - abs(oct.x) - abs(oct.y), oct.y);
+    vec2 texCoord = grid * u_uvStep;
+#else
+    vec3 position = a_position;
+    vec3 normal = a_normal;
+    vec2 texCoord = a_texCoord0;
+#endif
+
     // position
-    vec4 worldPos = u_transMatrix * vec4(a_position, 1.0);
+    vec4 worldPos = u_transMatrix * vec4(position, 1.0);
     gl_Position = u_projViewMatrix * worldPos;
 
     // normal for lighting
-    v_normal = normalize((u_transMatrix * vec4(a_normal, 0.0)).xyz);
+    v_normal = normalize((u_transMatrix * vec4(normal, 0.0)).xyz);
 
     // texture stuff
-    v_texCoord0 = a_texCoord0;
-    splatPosition = vec2(a_position.x / u_terrainSize.x, a_position.z / u_terrainSize);
+    v_texCoord0 = texCoord;
+    splatPosition = vec2(position.x / u_terrainSize.x, position.z / u_terrainSize.y);
 
     // fog
     if(u_fogDensity > 0.0 && u_fogGradient > 0.0) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits loops over index ranges across all cores.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class ParallelUtils {
+
+    private static ForkJoinPool pool;
+
+    /**
+     * Work on a range of indices.
+     */
+    public interface RangeTask {
+        /**
+         * @param from
+         *            first index (inclusive)
+         * @param to
+         *            last index (exclusive)
+         */
+        void run(int from, int to);
+    }
+
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    /**
+     * Runs the task for all indices from 'from' to 'to' and blocks until all
+     * of them are done. The range is split in halves until a part is not
+     * larger than grain.
+     *
+     * @param from
+     *            first index (inclusive)
+     * @param to
+     *            last index (exclusive)
+     * @param grain
+     *            maximum number of indices processed by one task
+     * @param task
+     *            the work. Must not touch shared mutable state.
+     */
+    public static void parallelFor(int from, int to, int grain, RangeTask task) {
+        if (to <= from) return;
+        if (to - from <= Math.max(1, grain)) {
+            task.run(from, to);
+            return;
+        }
+        getPool().invoke(new RangeAction(from, to, Math.max(1, grain), task));
+    }
+
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeTask task;
+
+        RangeAction(int from, int to, int grain, RangeTask task) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, mid, grain, task), new RangeAction(mid, to, grain, task));
+        }
+    }
+
+}
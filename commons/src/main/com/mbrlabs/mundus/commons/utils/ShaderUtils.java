@@ -22,7 +22,7 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
 
 /**
  * @author Marcus Brummer
- * @version 23-11-2015
+ * @version 17-10-2026
  */
 public class ShaderUtils {
 
@@ -39,6 +39,46 @@ public class ShaderUtils {
      * @return compiled shader program
      */
     public static ShaderProgram compile(String vertexShader, String fragmentShader, boolean classpath) {
+        return compile(vertexShader, fragmentShader, classpath, "");
+    }
+
+    /**
+     * Compiles and links shader.
+     *
+     * @param vertexShader
+     *            path to vertex shader
+     * @param fragmentShader
+     *            path to fragment shader
+     * @param classpath
+     *            true if shader in classpath false if shader in assets folder
+     * @param prefix
+     *            code put in front of both shaders, e.g. defines
+     *
+     * @return compiled shader program
+     */
+    public static ShaderProgram compile(String vertexShader, String fragmentShader, boolean classpath,
+            String prefix) {
+        return compile(vertexShader, fragmentShader, classpath, prefix, prefix);
+    }
+
+    /**
+     * Compiles and links shader.
+     *
+     * @param vertexShader
+     *            path to vertex shader
+     * @param fragmentShader
+     *            path to fragment shader
+     * @param classpath
+     *            true if shader in classpath false if shader in assets folder
+     * @param vertexPrefix
+     *            code put in front of the vertex shader
+     * @param fragmentPrefix
+     *            code put in front of the fragment shader
+     *
+     * @return compiled shader program
+     */
+    public static ShaderProgram compile(String vertexShader, String fragmentShader, boolean classpath,
+            String vertexPrefix, String fragmentPrefix) {
         String vert;
         String frag;
         if (classpath) {
@@ -49,7 +89,7 @@ public class ShaderUtils {
             frag = Gdx.files.internal(fragmentShader).readString();
         }
 
-        ShaderProgram program = new ShaderProgram(vert, frag);
+        ShaderProgram program = new ShaderProgram(vertexPrefix + vert, fragmentPrefix + frag);
         if (!program.isCompiled()) {
             throw new GdxRuntimeException(program.getLog());
         }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.mbrlabs.mundus.commons.assets.PixmapTextureAsset;
+import com.mbrlabs.mundus.commons.terrain.AutoSplat;
+import com.mbrlabs.mundus.commons.terrain.SplatMap;
+import com.mbrlabs.mundus.commons.terrain.SplatRule;
+import com.mbrlabs.mundus.commons.terrain.SplatTexture;
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class AutoSplatTest {
+
+    @BeforeClass
+    public static void loadNatives() {
+        // pixmaps are native
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void applyingTwiceKeepsPaintedChannels() {
+        final float[] heights = new float[17 * 17];
+        final Random random = new Random(11);
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = random.nextFloat() * 20f;
+        }
+        final Terrain terrain = new Terrain(160, heights);
+
+        final Pixmap pixmap = new Pixmap(32, 32, Pixmap.Format.RGBA8888);
+        final ByteBuffer pixels = pixmap.getPixels();
+        for (int i = 0; i < pixels.capacity(); i += 4) {
+            pixels.put(i, (byte) 0);
+            pixels.put(i + 1, (byte) 127);
+            pixels.put(i + 2, (byte) 0);
+            pixels.put(i + 3, (byte) 0);
+        }
+        final SplatMap splatmap = new SplatMap(new PixmapTextureAsset(null, null) {
+            @Override
+            public Pixmap getPixmap() {
+                return pixmap;
+            }
+        });
+
+        // R everywhere, B on a height band. G is painted & has no rule.
+        final AutoSplat autoSplat = new AutoSplat();
+        autoSplat.addRule(new SplatRule(SplatTexture.Channel.R));
+        autoSplat.addRule(new SplatRule(SplatTexture.Channel.B).height(5, 10, 5));
+
+        autoSplat.apply(terrain, splatmap);
+        final byte[] first = copy(pixels);
+        for (int i = 0; i < first.length; i += 4) {
+            Assert.assertEquals(127, first[i + 1] & 0xFF);
+            final int sum = (first[i] & 0xFF) + (first[i + 1] & 0xFF) + (first[i + 2] & 0xFF)
+                    + (first[i + 3] & 0xFF);
+            Assert.assertTrue(sum <= 255);
+        }
+
+        autoSplat.apply(terrain, splatmap);
+        Assert.assertArrayEquals(first, copy(pixels));
+        autoSplat.apply(terrain, splatmap, 3, 4, 8, 6);
+        Assert.assertArrayEquals(first, copy(pixels));
+
+        pixmap.dispose();
+    }
+
+    private static byte[] copy(ByteBuffer pixels) {
+        final byte[] bytes = new byte[pixels.capacity()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = pixels.get(i);
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+import com.mbrlabs.mundus.commons.terrain.terraform.HeightMapGenerator;
+import com.mbrlabs.mundus.commons.terrain.terraform.RawHeightField;
+import com.mbrlabs.mundus.commons.terrain.terraform.Terraformer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class HeightMapImportTest {
+
+    private static FileHandle writeRaw(ByteBuffer data) throws IOException {
+        final File file = File.createTempFile("heightmap", ".raw");
+        file.deleteOnExit();
+        final FileHandle handle = new FileHandle(file);
+        handle.writeBytes(data.array(), false);
+        return handle;
+    }
+
+    @Test
+    public void rawUint16() throws IOException {
+        final int size = 33;
+        final ByteBuffer data = ByteBuffer.allocate(size * size * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < size * size; i++) {
+            data.putShort((short) (i * 50));
+        }
+
+        final RawHeightField field = new RawHeightField(writeRaw(data), RawHeightField.Format.UINT16,
+                ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(size, field.getWidth());
+        Assert.assertEquals(size, field.getHeight());
+
+        // same size: no resampling
+        final Terrain terrain = new Terrain(100, new float[size * size]);
+        Terraformer.heightMap(terrain).minHeight(-10).maxHeight(100).map(field).terraform();
+        for (int i = 0; i < size * size; i++) {
+            Assert.assertEquals(-10 + 110 * (i * 50) / 65535f, terrain.heightData[i], 1e-3f);
+        }
+    }
+
+    @Test
+    public void rawFloatResampled() throws IOException {
+        final int size = 64;
+        final ByteBuffer data = ByteBuffer.allocate(size * size * 4).order(ByteOrder.BIG_ENDIAN);
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                data.putFloat(1000 + x + z);
+            }
+        }
+        final RawHeightField field = new RawHeightField(writeRaw(data), RawHeightField.Format.FLOAT32,
+                ByteOrder.BIG_ENDIAN);
+
+        for (HeightMapGenerator.Filter filter : HeightMapGenerator.Filter.values()) {
+            final int res = 17;
+            final Terrain terrain = new Terrain(100, new float[res * res]);
+            Terraformer.heightMap(terrain).minHeight(0).maxHeight(126).filter(filter).map(field).terraform();
+
+            // a plane stays a plane, corners map to corners
+            final float step = 126f / (res - 1) / 2f;
+            for (int z = 0; z < res; z++) {
+                for (int x = 0; x < res; x++) {
+                    Assert.assertEquals((x + z) * step, terrain.heightData[z * res + x], 1e-3f);
+                }
+            }
+        }
+    }
+
+}
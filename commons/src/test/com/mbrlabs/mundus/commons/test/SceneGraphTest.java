@@ -16,10 +16,13 @@
 
 package com.mbrlabs.mundus.commons.test;
 
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.GdxNativesLoader;
 import com.mbrlabs.mundus.commons.scene3d.Node;
 import com.mbrlabs.mundus.commons.scene3d.SimpleNode;
 
 import org.junit.Assert;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 /**
@@ -28,6 +31,12 @@ import org.junit.Test;
  */
 public class SceneGraphTest {
 
+    @BeforeClass
+    public static void loadNatives() {
+        // world transforms of child nodes are multiplied natively
+        GdxNativesLoader.load();
+    }
+
     @Test
     public void basicParenting() {
         Node root = new SimpleNode<SimpleNode>(0);
@@ -49,4 +58,81 @@ public class SceneGraphTest {
         Assert.assertNull(c0.getParent());
     }
 
+    @Test
+    public void cachedTransform() {
+        SimpleNode<SimpleNode> node = new SimpleNode<SimpleNode>(0);
+        node.setLocalPosition(1, 2, 3);
+        Assert.assertEquals(new Vector3(1, 2, 3), node.getPosition(new Vector3()));
+
+        // unchanged transform is not recomputed
+        final int version = node.getTransformVersion();
+        node.getTransform();
+        Assert.assertEquals(version, node.getTransformVersion());
+
+        node.translate(0, 0, 5);
+        Assert.assertEquals(new Vector3(1, 2, 8), node.getPosition(new Vector3()));
+        Assert.assertNotEquals(version, node.getTransformVersion());
+    }
+
+    @Test
+    public void childFollowsParent() {
+        SimpleNode<SimpleNode> parent = new SimpleNode<SimpleNode>(0);
+        SimpleNode<SimpleNode> child = new SimpleNode<SimpleNode>(1);
+        parent.addChild(child);
+        parent.setLocalPosition(1, 0, 0);
+        child.setLocalPosition(0, 2, 0);
+        Assert.assertEquals(new Vector3(1, 2, 0), child.getPosition(new Vector3()));
+
+        final int version = child.getTransformVersion();
+        parent.translate(3, 0, 0);
+        Assert.assertEquals(new Vector3(4, 2, 0), child.getPosition(new Vector3()));
+        Assert.assertNotEquals(version, child.getTransformVersion());
+    }
+
+    @Test
+    public void reparentAndRemove() {
+        SimpleNode<SimpleNode> a = new SimpleNode<SimpleNode>(0);
+        SimpleNode<SimpleNode> b = new SimpleNode<SimpleNode>(1);
+        SimpleNode<SimpleNode> child = new SimpleNode<SimpleNode>(2);
+        a.setLocalPosition(1, 0, 0);
+        b.setLocalPosition(0, 0, 5);
+        child.setLocalPosition(0, 1, 0);
+        a.addChild(child);
+        Assert.assertEquals(new Vector3(1, 1, 0), child.getPosition(new Vector3()));
+
+        // reparent
+        child.remove();
+        b.addChild(child);
+        Assert.assertEquals(new Vector3(0, 1, 5), child.getPosition(new Vector3()));
+
+        // remove
+        child.remove();
+        Assert.assertEquals(new Vector3(0, 1, 0), child.getPosition(new Vector3()));
+    }
+
+    @Test
+    public void cleanNodeKeepsVersion() {
+        SimpleNode<SimpleNode> root = new SimpleNode<SimpleNode>(0);
+        SimpleNode<SimpleNode> c0 = new SimpleNode<SimpleNode>(1);
+        SimpleNode<SimpleNode> c1 = new SimpleNode<SimpleNode>(2);
+        root.addChild(c0);
+        root.addChild(c1);
+        root.setLocalPosition(1, 0, 0);
+
+        final int rootVersion = root.getTransformVersion();
+        final int c0Version = c0.getTransformVersion();
+        final int c1Version = c1.getTransformVersion();
+
+        // moving a sibling leaves the other nodes clean
+        c1.translate(0, 0, 2);
+        Assert.assertEquals(rootVersion, root.getTransformVersion());
+        Assert.assertEquals(c0Version, c0.getTransformVersion());
+        Assert.assertNotEquals(c1Version, c1.getTransformVersion());
+
+        // reading a clean node again doesn't recompute it
+        c0.getTransform();
+        c0.getPosition(new Vector3());
+        Assert.assertEquals(c0Version, c0.getTransformVersion());
+    }
+
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.mbrlabs.mundus.commons.terrain.terraform.SimplexNoise;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class SimplexNoiseTest {
+
+    @Test
+    public void deterministic() {
+        final SimplexNoise a = new SimplexNoise(1234);
+        final SimplexNoise b = new SimplexNoise(1234);
+        final SimplexNoise other = new SimplexNoise(4321);
+
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            final float x = i * 0.37f - 50f;
+            final float y = i * 0.11f + 7f;
+            final float value = a.noise(x, y);
+            Assert.assertEquals(value, b.noise(x, y), 0f);
+            Assert.assertTrue(value >= -1f && value <= 1f);
+            if (value != other.noise(x, y)) differs = true;
+        }
+        Assert.assertTrue(differs);
+    }
+
+    @Test
+    public void range() {
+        final SimplexNoise noise = new SimplexNoise(1);
+        float min = 0;
+        float max = 0;
+        for (int z = 0; z < 1000; z++) {
+            for (int x = 0; x < 1000; x++) {
+                final float value = noise.noise(x * 0.0731f, z * 0.0713f);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        Assert.assertTrue(min >= -1f && max <= 1f);
+        // the range is used up
+        Assert.assertTrue(min < -0.95f && max > 0.95f);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.terrain.QuantizedHeights;
+import com.mbrlabs.mundus.commons.terrain.TerraFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerraFileTest {
+
+    private static float[] createHeights(int resolution) {
+        final float[] heights = new float[resolution * resolution];
+        final Random random = new Random(7);
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = random.nextFloat() * 100f - 50f;
+        }
+        return heights;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final float[] heights = createHeights(300);
+        for (TerraFile.Compression compression : TerraFile.Compression.values()) {
+            final File file = File.createTempFile("mundus", ".terra");
+            file.deleteOnExit();
+            TerraFile.write(file, heights, 1200, compression);
+
+            final TerraFile.Header header = new TerraFile.Header();
+            final float[] read = TerraFile.read(new FileHandle(file), header);
+            Assert.assertEquals(TerraFile.VERSION, header.version);
+            Assert.assertEquals(300, header.resolution);
+            Assert.assertEquals(1200, header.size);
+            Assert.assertEquals(compression, header.compression);
+            Assert.assertArrayEquals(heights, read, 0f);
+        }
+    }
+
+    @Test
+    public void quantizedRoundTrip() throws IOException {
+        final float[] heights = createHeights(200);
+        final QuantizedHeights quantized = QuantizedHeights.encode(heights, 0.01f);
+        Assert.assertEquals(0.01f, quantized.getStep(), 0f);
+        Assert.assertTrue(quantized.getError(heights) <= quantized.getMaxError() + 1e-5f);
+
+        final File file = File.createTempFile("mundus", ".terra");
+        file.deleteOnExit();
+        TerraFile.write(file, quantized, 1200, TerraFile.Compression.DEFLATE);
+        Assert.assertTrue(file.length() < heights.length * 2 + 1024);
+
+        final TerraFile.Header header = new TerraFile.Header();
+        final QuantizedHeights read = TerraFile.readQuantized(new FileHandle(file), header);
+        Assert.assertEquals(TerraFile.Format.UINT16, header.format);
+        Assert.assertArrayEquals(quantized.getValues(), read.getValues());
+        Assert.assertArrayEquals(quantized.decode(), TerraFile.read(new FileHandle(file)), 0f);
+    }
+
+    @Test
+    public void readVersion1() throws IOException {
+        final float[] heights = createHeights(50);
+        final File file = File.createTempFile("mundus", ".terra");
+        file.deleteOnExit();
+        final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+        for (float h : heights) {
+            out.writeFloat(h);
+        }
+        out.close();
+
+        final TerraFile.Header header = new TerraFile.Header();
+        final float[] read = TerraFile.read(new FileHandle(file), header);
+        Assert.assertEquals(1, header.version);
+        Assert.assertEquals(50, header.resolution);
+        Assert.assertArrayEquals(heights, read, 0f);
+    }
+
+    @Test(timeout = 10000)
+    public void corruptFilesFail() throws IOException {
+        // offsets in the header, see TerraFile
+        final int resolutionOffset = 8;
+        final int compressionOffset = 24;
+        final int chunkCountOffset = 40;
+        final int firstChunkLengthOffset = 48;
+
+        final File file = File.createTempFile("mundus", ".terra");
+        file.deleteOnExit();
+
+        // truncated deflate chunk
+        TerraFile.write(file, createHeights(100), 1200, TerraFile.Compression.DEFLATE);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(firstChunkLengthOffset);
+        final int length = Integer.reverseBytes(raf.readInt());
+        raf.seek(firstChunkLengthOffset);
+        raf.writeInt(Integer.reverseBytes(length / 2));
+        raf.close();
+        assertReadFails(file);
+
+        // unknown compression
+        TerraFile.write(file, createHeights(100), 1200, TerraFile.Compression.DEFLATE);
+        raf = new RandomAccessFile(file, "rw");
+        raf.seek(compressionOffset);
+        raf.writeInt(Integer.reverseBytes(7));
+        raf.close();
+        assertReadFails(file);
+
+        // chunk count doesn't match the resolution
+        for (int chunkCount : new int[] { 0, 2 }) {
+            TerraFile.write(file, createHeights(100), 1200, TerraFile.Compression.NONE);
+            raf = new RandomAccessFile(file, "rw");
+            raf.seek(chunkCountOffset);
+            raf.writeInt(Integer.reverseBytes(chunkCount));
+            raf.close();
+            assertReadFails(file);
+        }
+
+        // resolution * resolution overflows
+        TerraFile.write(file, createHeights(100), 1200, TerraFile.Compression.NONE);
+        raf = new RandomAccessFile(file, "rw");
+        raf.seek(resolutionOffset);
+        raf.writeInt(Integer.reverseBytes(100000));
+        raf.close();
+        assertReadFails(file);
+    }
+
+    private static void assertReadFails(File file) {
+        try {
+            TerraFile.read(new FileHandle(file));
+            Assert.fail("corrupt file has been read");
+        } catch (GdxRuntimeException expected) {
+        }
+    }
+
+}
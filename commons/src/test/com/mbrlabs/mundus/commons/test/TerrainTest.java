@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.mbrlabs.mundus.commons.assets.TerrainAsset;
+import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain;
+import com.mbrlabs.mundus.commons.terrain.QuantizedHeights;
+import com.mbrlabs.mundus.commons.terrain.TerraFile;
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+import com.mbrlabs.mundus.commons.terrain.TerrainPatch;
+import com.mbrlabs.mundus.commons.terrain.TerrainRaycaster;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class TerrainTest {
+
+    private static Terrain createTerrain(int resolution, int size, long seed) {
+        final float[] heights = new float[resolution * resolution];
+        final Random random = new Random(seed);
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = random.nextFloat() * 20f;
+        }
+        return new Terrain(size, heights);
+    }
+
+    @Test
+    public void rayIntersectionFlat() {
+        final float[] heights = new float[11 * 11];
+        java.util.Arrays.fill(heights, 5);
+        final Terrain terrain = new Terrain(100, heights);
+
+        final TerrainRaycaster.Hit hit = new TerrainRaycaster.Hit();
+        Assert.assertTrue(terrain.getRayIntersection(new Ray(new Vector3(42, 100, 57), new Vector3(0, -1, 0)), hit));
+        Assert.assertEquals(95, hit.distance, 0.0001f);
+        Assert.assertEquals(5, hit.position.y, 0.0001f);
+        Assert.assertEquals(1, hit.normal.y, 0.0001f);
+
+        final Vector3 out = new Vector3(1, 2, 3);
+        Assert.assertNull(terrain.getRayIntersection(out, new Ray(new Vector3(42, 100, 57), new Vector3(0, 1, 0))));
+        Assert.assertEquals(new Vector3(1, 2, 3), out);
+        Assert.assertNull(terrain.getRayIntersection(out, new Ray(new Vector3(-10, 100, 50), new Vector3(-1, -1, 0))));
+    }
+
+    @Test
+    public void rayIntersectionAcceleratedMatchesExhaustive() {
+        final Terrain terrain = createTerrain(65, 640, 7);
+        final Random random = new Random(42);
+        final TerrainRaycaster.Hit accelerated = new TerrainRaycaster.Hit();
+        final TerrainRaycaster.Hit exhaustive = new TerrainRaycaster.Hit();
+
+        int hits = 0;
+        for (int i = 0; i < 500; i++) {
+            final Vector3 origin = new Vector3(random.nextFloat() * 800 - 80, 30 + random.nextFloat() * 100,
+                    random.nextFloat() * 800 - 80);
+            final Vector3 dir = new Vector3(random.nextFloat() * 2 - 1, -random.nextFloat(), random.nextFloat() * 2 - 1);
+            final Ray ray = new Ray(origin, dir);
+
+            terrain.getRaycaster().setAccelerated(true);
+            final boolean a = terrain.getRayIntersection(ray, accelerated);
+            terrain.getRaycaster().setAccelerated(false);
+            final boolean b = terrain.getRayIntersection(ray, exhaustive);
+
+            Assert.assertEquals(b, a);
+            if (a) {
+                hits++;
+                Assert.assertEquals(exhaustive.distance, accelerated.distance, 0.001f);
+                // hit point lies on the surface
+                Assert.assertEquals(terrain.getHeightAtWorldCoord(accelerated.position.x, accelerated.position.z),
+                        accelerated.position.y, 0.001f);
+            }
+        }
+        Assert.assertTrue(hits > 0);
+    }
+
+    @Test
+    public void sampling() {
+        final Terrain terrain = createTerrain(33, 320, 3);
+        terrain.transform.setTranslation(100, 0, -50);
+
+        // vertices are sampled exactly
+        Assert.assertEquals(terrain.heightData[5 * 33 + 7], terrain.getHeightAtWorldCoord(170, 0), 0.0001f);
+        // outside of the terrain
+        Assert.assertEquals(0, terrain.getHeightAtWorldCoord(99, 0), 0);
+        Assert.assertEquals(Vector3.Y, terrain.getNormalAtWorldCoord(99, 0, new Vector3()));
+
+        final Random random = new Random(1);
+        final float[] xs = new float[100];
+        final float[] zs = new float[100];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 90 + random.nextFloat() * 340;
+            zs[i] = -60 + random.nextFloat() * 340;
+        }
+        final float[] heights = new float[100];
+        final float[] normals = new float[300];
+        terrain.sampleHeights(xs, zs, heights);
+        terrain.sampleNormals(xs, zs, normals);
+
+        final Vector3 normal = new Vector3();
+        for (int i = 0; i < xs.length; i++) {
+            Assert.assertEquals(terrain.getHeightAtWorldCoord(xs[i], zs[i]), heights[i], 0);
+            terrain.getNormalAtWorldCoord(xs[i], zs[i], normal);
+            Assert.assertEquals(normal.x, normals[i * 3], 0.0001f);
+            Assert.assertEquals(normal.y, normals[i * 3 + 1], 0.0001f);
+            Assert.assertEquals(normal.z, normals[i * 3 + 2], 0.0001f);
+            Assert.assertEquals(1, normal.len(), 0.0001f);
+        }
+    }
+
+    @Test
+    public void quantizedSampling() {
+        final Terrain terrain = createTerrain(33, 320, 4);
+        final float[] original = terrain.heightData.clone();
+        final float before = terrain.getHeightAtWorldCoord(123.4f, 56.7f);
+
+        final QuantizedHeights quantized = terrain.quantize(0);
+        Assert.assertTrue(terrain.isQuantized());
+        Assert.assertNull(terrain.heightData);
+        Assert.assertEquals(before, terrain.getHeightAtWorldCoord(123.4f, 56.7f), quantized.getMaxError() * 2);
+
+        terrain.dequantize();
+        Assert.assertFalse(terrain.isQuantized());
+        Assert.assertArrayEquals(original, terrain.heightData, quantized.getMaxError() + 1e-5f);
+    }
+
+    @Test
+    public void keepQuantizedLoadsFloatTerrainsExactly() throws IOException {
+        final Terrain source = createTerrain(33, 320, 5);
+        final File file = File.createTempFile("mundus", ".terra");
+        file.deleteOnExit();
+        final Meta meta = new Meta(null);
+        meta.setTerrain(new MetaTerrain());
+        meta.getTerrain().setSize(320);
+
+        // float heights are loaded bit-exact with the runtime default
+        TerraFile.write(file, source.heightData, 320, TerraFile.Compression.DEFLATE);
+        final TerrainAsset asset = new TerrainAsset(meta, new FileHandle(file));
+        asset.setKeepQuantized(true);
+        Terrain loaded = asset.loadAsync();
+        Assert.assertFalse(loaded.isQuantized());
+        Assert.assertArrayEquals(source.heightData, loaded.heightData, 0f);
+
+        // 16 bit heights stay quantized
+        final QuantizedHeights quantized = QuantizedHeights.encode(source.heightData, 0.01f);
+        TerraFile.write(file, quantized, 320, TerraFile.Compression.DEFLATE);
+        loaded = asset.loadAsync();
+        Assert.assertTrue(loaded.isQuantized());
+    }
+
+    @Test
+    public void patchSizeIsChecked() {
+        final float[] heights = new float[11 * 11];
+        new Terrain(100, heights, 1);
+        new Terrain(100, heights, TerrainPatch.MAX_SIZE);
+        for (int patchSize : new int[] { 0, -1, TerrainPatch.MAX_SIZE + 1 }) {
+            try {
+                new Terrain(100, heights, patchSize);
+                Assert.fail("patch size " + patchSize);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+}
@@ -121,6 +121,7 @@ class Editor : Lwjgl3WindowAdapter(), ApplicationListener,
                 batch.end()
             }
 
+            scene.terrainStreamer?.update(scene.cam.position)
             sg.update()
             sg.render()
 
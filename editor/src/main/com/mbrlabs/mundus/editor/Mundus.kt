@@ -52,7 +52,7 @@ import java.io.File
  * Used for dependency injection of core components and as event bus.
  *
  * @author Marcus Brummer
- * @version 08-12-2015
+ * @version 17-10-2026
  */
 object Mundus {
 
@@ -97,7 +97,7 @@ object Mundus {
         freeCamController = FreeCamController()
         commandHistory = CommandHistory(CommandHistory.DEFAULT_LIMIT)
         modelImporter = ModelImporter(registry)
-        projectManager = ProjectManager(kryoManager, registry, modelBatch)
+        projectManager = ProjectManager(kryoManager, registry, modelBatch, commandHistory)
         toolManager = ToolManager(input, projectManager, goPicker, handlePicker, modelBatch, shapeRenderer,
                 commandHistory)
         shortcutController = ShortcutController(registry, projectManager, commandHistory)
@@ -223,6 +223,7 @@ object Mundus {
         modelBatch.dispose()
         goPicker.dispose()
         handlePicker.dispose()
+        commandHistory.dispose()
     }
 
 }
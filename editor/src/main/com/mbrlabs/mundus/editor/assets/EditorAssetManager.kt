@@ -24,12 +24,13 @@ import com.badlogic.gdx.utils.ObjectSet
 import com.mbrlabs.mundus.commons.assets.*
 import com.mbrlabs.mundus.commons.assets.meta.Meta
 import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain
+import com.mbrlabs.mundus.commons.terrain.QuantizedHeights
+import com.mbrlabs.mundus.commons.terrain.TerraFile
 import com.mbrlabs.mundus.editor.utils.Log
 import org.apache.commons.io.FileUtils
 import org.apache.commons.io.FilenameUtils
 import java.io.*
 import java.util.*
-import java.util.zip.GZIPOutputStream
 
 /**
  * @author Marcus Brummer
@@ -50,6 +51,8 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
         if (rootFolder != null && (!rootFolder.exists() || !rootFolder.isDirectory)) {
             Log.fatal(TAG, "Root asset folder is not a directory")
         }
+        // terrains must stay editable
+        keepTerrainsQuantized = false
     }
 
     fun addDirtyAsset(asset: Asset) {
@@ -179,13 +182,7 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
         }
 
         // write terra file
-        val outputStream = DataOutputStream(
-                BufferedOutputStream(GZIPOutputStream(FileOutputStream(terraFile))))
-        for (f in data) {
-            outputStream.writeFloat(f)
-        }
-        outputStream.flush()
-        outputStream.close()
+        TerraFile.write(terraFile, data, size, TerraFile.Compression.NONE)
 
         // load & apply standard chessboard texture
         val asset = TerrainAsset(meta, FileHandle(terraFile))
@@ -318,14 +315,22 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
      */
     @Throws(IOException::class)
     fun saveTerrainAsset(terrain: TerrainAsset) {
-        // save .terra file
-        val outputStream = DataOutputStream(
-                BufferedOutputStream(GZIPOutputStream(FileOutputStream(terrain.file.file()))))
-        for (f in terrain.data) {
-            outputStream.writeFloat(f)
+        // save .terra file. Eviction doesn't save anything: tiles of a
+        // streamed world are only evicted if they are not dirty, see
+        // canUnload() in ProjectManager. So unloaded tiles haven't changed.
+        if (terrain.isLoaded) {
+            val file = terrain.file.file()
+            val size = terrain.meta.terrain.size
+            val precision = terrain.meta.terrain.heightPrecision
+            if (precision > 0) {
+                val quantized = QuantizedHeights.encode(terrain.data, precision)
+                TerraFile.write(file, quantized, size, TerraFile.Compression.NONE)
+                Log.info(TAG, "Saved {} with 16 bit heights, step: {}, max error: {}", terrain, quantized.step,
+                        quantized.getError(terrain.data))
+            } else {
+                TerraFile.write(file, terrain.data, size, TerraFile.Compression.NONE)
+            }
         }
-        outputStream.flush()
-        outputStream.close()
 
         // save splatmap
         val splatmap = terrain.splatmap
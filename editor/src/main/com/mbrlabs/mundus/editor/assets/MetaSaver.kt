@@ -79,6 +79,32 @@ class MetaSaver {
         if (terrain.splatG != null) json.writeValue(MetaTerrain.JSON_SPLAT_G, terrain.splatG)
         if (terrain.splatB != null) json.writeValue(MetaTerrain.JSON_SPLAT_B, terrain.splatB)
         if (terrain.splatA != null) json.writeValue(MetaTerrain.JSON_SPLAT_A, terrain.splatA)
+        if (terrain.heightPrecision > 0) json.writeValue(MetaTerrain.JSON_HEIGHT_PRECISION, terrain.heightPrecision)
+        if (terrain.isTile) {
+            json.writeValue(MetaTerrain.JSON_TILE_X, terrain.tileX)
+            json.writeValue(MetaTerrain.JSON_TILE_Z, terrain.tileZ)
+        }
+        addAutoSplat(terrain, json)
+        json.writeObjectEnd()
+    }
+
+    private fun addAutoSplat(terrain: MetaTerrain, json: Json) {
+        val autoSplat = terrain.autoSplat ?: return
+
+        json.writeObjectStart(MetaTerrain.JSON_AUTO_SPLAT)
+        json.writeValue(MetaTerrain.JSON_AUTO_SPLAT_SCULPT, terrain.isAutoSplatSculpting)
+        json.writeArrayStart(MetaTerrain.JSON_AUTO_SPLAT_RULES)
+        for (rule in autoSplat.rules) {
+            json.writeObjectStart()
+            json.writeValue(MetaTerrain.JSON_RULE_CHANNEL, rule.channel.name)
+            json.writeValue(MetaTerrain.JSON_RULE_STRENGTH, rule.strength)
+            json.writeValue(MetaTerrain.JSON_RULE_HEIGHT, floatArrayOf(rule.minHeight, rule.maxHeight, rule.heightBlend))
+            json.writeValue(MetaTerrain.JSON_RULE_SLOPE, floatArrayOf(rule.minSlope, rule.maxSlope, rule.slopeBlend))
+            json.writeValue(MetaTerrain.JSON_RULE_CURVATURE,
+                    floatArrayOf(rule.minCurvature, rule.maxCurvature, rule.curvatureBlend))
+            json.writeObjectEnd()
+        }
+        json.writeArrayEnd()
         json.writeObjectEnd()
     }
 
@@ -267,7 +267,7 @@ public class DescriptorConverter {
             return null;
         }
 
-        terrain.getTerrain().transform = go.getTransform();
+        terrain.setTransform(go.getTransform());
         TerrainComponent terrainComponent = new TerrainComponent(go);
         terrainComponent.setTerrain(terrain);
 
@@ -27,10 +27,12 @@ import com.mbrlabs.mundus.commons.assets.AssetManager;
 import com.mbrlabs.mundus.commons.assets.AssetNotFoundException;
 import com.mbrlabs.mundus.commons.assets.meta.MetaFileParseException;
 import com.mbrlabs.mundus.commons.assets.ModelAsset;
+import com.mbrlabs.mundus.commons.assets.TerrainAsset;
 import com.mbrlabs.mundus.commons.env.Fog;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 import com.mbrlabs.mundus.commons.scene3d.SceneGraph;
 import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.terrain.TerrainStreamer;
 import com.mbrlabs.mundus.editor.Main;
 import com.mbrlabs.mundus.editor.Mundus;
 import com.mbrlabs.mundus.editor.assets.EditorAssetManager;
@@ -42,6 +44,7 @@ import com.mbrlabs.mundus.editor.core.registry.ProjectRef;
 import com.mbrlabs.mundus.editor.core.registry.Registry;
 import com.mbrlabs.mundus.editor.events.ProjectChangedEvent;
 import com.mbrlabs.mundus.editor.events.SceneChangedEvent;
+import com.mbrlabs.mundus.editor.history.CommandHistory;
 import com.mbrlabs.mundus.editor.scene3d.components.ModelComponent;
 import com.mbrlabs.mundus.editor.scene3d.components.PickableComponent;
 import com.mbrlabs.mundus.editor.scene3d.components.TerrainComponent;
@@ -57,7 +60,7 @@ import java.io.IOException;
  * Manages Mundus projects and scenes.
  *
  * @author Marcus Brummer
- * @version 25-11-2015
+ * @version 17-10-2026
  */
 public class ProjectManager implements Disposable {
 
@@ -73,11 +76,13 @@ public class ProjectManager implements Disposable {
     private Registry registry;
     private KryoManager kryoManager;
     private ModelBatch modelBatch;
+    private CommandHistory history;
 
-    public ProjectManager(KryoManager kryoManager, Registry registry, ModelBatch modelBatch) {
+    public ProjectManager(KryoManager kryoManager, Registry registry, ModelBatch modelBatch, CommandHistory history) {
         this.registry = registry;
         this.kryoManager = kryoManager;
         this.modelBatch = modelBatch;
+        this.history = history;
         currentProject = new ProjectContext(-1);
     }
 
@@ -271,13 +276,15 @@ public class ProjectManager implements Disposable {
     /**
      * Opens a project.
      *
-     * Opens a project. If a project is already open it will be disposed.
+     * Opens a project. If a project is already open it will be disposed,
+     * together with its undo history.
      * 
      * @param context
      *            project context to open
      */
     public void changeProject(ProjectContext context) {
         if (currentProject != null) {
+            history.dispose();
             currentProject.dispose();
         }
 
@@ -349,10 +356,39 @@ public class ProjectManager implements Disposable {
                 scene.terrains.add(((TerrainComponent) c).getTerrain());
             }
         }
+        scene.terrainStreamer = createTerrainStreamer(context, scene.terrains);
 
         return scene;
     }
 
+    /**
+     * Creates a streamer for all terrains of the scene which are tiles of a
+     * streamed world. Modified tiles stay loaded until they have been saved.
+     *
+     * @return terrain streamer or null if the scene contains no tiles
+     */
+    private TerrainStreamer createTerrainStreamer(final ProjectContext context, Array<TerrainAsset> terrains) {
+        final TerrainStreamer streamer = TerrainStreamer.create(terrains);
+        if (streamer != null) {
+            streamer.setListener(new TerrainStreamer.Listener() {
+                @Override
+                public void onLoaded(TerrainAsset tile) {
+                }
+
+                @Override
+                public boolean canUnload(TerrainAsset tile) {
+                    return !context.assetManager.getDirtyAssets().contains(tile);
+                }
+
+                @Override
+                public void onUnload(TerrainAsset tile) {
+                }
+            });
+        }
+
+        return streamer;
+    }
+
     /**
      * Loads and opens scene
      *
@@ -398,7 +434,7 @@ public class ProjectManager implements Disposable {
                 }
             } else if (c.getType() == Component.Type.TERRAIN) {
                 ((TerrainComponent) c).setShader(Shaders.INSTANCE.getTerrainShader());
-                ((TerrainComponent) c).getTerrain().getTerrain().setTransform(go.getTransform());
+                ((TerrainComponent) c).getTerrain().setTransform(go.getTransform());
             }
 
             // encode id for picking
@@ -425,6 +461,7 @@ public class ProjectManager implements Disposable {
 
     @Override
     public void dispose() {
+        history.dispose();
         currentProject.dispose();
     }
 }
@@ -17,18 +17,41 @@
 package com.mbrlabs.mundus.editor.history
 
 import com.badlogic.gdx.utils.Array
+import com.badlogic.gdx.utils.Disposable
+import com.mbrlabs.mundus.editor.utils.Log
+import java.io.IOException
+import java.util.IdentityHashMap
 
 /**
  * Add commands to undo/redo a previously called process.
  *
+ * Besides the number of commands, the history limits the memory retained by
+ * SpillableCommands. If they exceed the memory budget, the commands farthest
+ * away from the current position are written to a temp file journal & read
+ * back right before they are undone or redone.
+ *
+ * Call dispose() when the project is closed, to drop the commands & delete
+ * the journal.
+ *
  * @author Marcus Brummer
- * @version 07-02-2016
+ * @version 17-10-2026
  */
-class CommandHistory(private val limit: Int) {
+class CommandHistory @JvmOverloads constructor(private val limit: Int,
+                                               memoryBudget: Long = DEFAULT_MEMORY_BUDGET) : Disposable {
 
     private var pointer: Int = 0
     private val commands: Array<Command>
 
+    private val journal = CommandJournal()
+    private val spilled = IdentityHashMap<Command, CommandJournal.Entry>()
+
+    /** maximum bytes retained by commands in memory */
+    var memoryBudget: Long = memoryBudget
+        set(value) {
+            field = value
+            enforceBudget()
+        }
+
     init {
         commands = Array<Command>(limit)
         pointer = -1
@@ -38,6 +61,7 @@ class CommandHistory(private val limit: Int) {
         if (size() == 0) {
             commands.add(command)
             pointer++
+            enforceBudget()
             return pointer
         }
 
@@ -55,32 +79,38 @@ class CommandHistory(private val limit: Int) {
             }
         }
 
+        enforceBudget()
         return pointer
     }
 
     private fun removeCommand(index: Int) {
-        val cmd = commands.get(index)
-        if (cmd is DisposableCommand) {
-            cmd.dispose()
-        }
+        release(commands.get(index))
         commands.removeIndex(index)
     }
 
     private fun removeCommands(from: Int, to: Int) {
         for (i in from..to) {
-            val cmd = commands.get(i)
-            if (cmd is DisposableCommand) {
-                cmd.dispose()
-            }
+            release(commands.get(i))
         }
 
         commands.removeRange(from, to)
     }
 
+    private fun release(cmd: Command) {
+        if (cmd is DisposableCommand) {
+            cmd.dispose()
+        }
+        val entry = spilled.remove(cmd)
+        if (entry != null) {
+            journal.release(entry)
+        }
+    }
+
     fun goBack(): Int {
         if (pointer >= 0) {
-            commands.get(pointer).undo()
+            load(commands.get(pointer)).undo()
             pointer--
+            enforceBudget()
         }
 
         return pointer
@@ -89,12 +119,77 @@ class CommandHistory(private val limit: Int) {
     fun goForward(): Int {
         if (pointer < commands.size - 1) {
             pointer++
-            commands.get(pointer).execute()
+            load(commands.get(pointer)).execute()
+            enforceBudget()
         }
 
         return pointer
     }
 
+    /**
+     * Reads a command back from the journal, if it has been spilled.
+     */
+    private fun load(cmd: Command): Command {
+        val entry = spilled.remove(cmd) ?: return cmd
+        journal.read(cmd as SpillableCommand, entry)
+        return cmd
+    }
+
+    /**
+     * Spills commands until the retained memory is within the budget. The
+     * commands farthest away from the pointer go first. The next command to
+     * undo & the next one to redo always stay in memory.
+     */
+    private fun enforceBudget() {
+        var usage = getMemoryUsage()
+        if (usage <= memoryBudget) return
+
+        val order = (0..commands.size - 1).sortedByDescending { Math.abs(it - pointer) }
+        for (i in order) {
+            if (usage <= memoryBudget) break
+            if (i == pointer || i == pointer + 1) continue
+
+            val cmd = commands.get(i)
+            if (cmd !is SpillableCommand || spilled.containsKey(cmd)) continue
+            val bytes = cmd.getMemoryUsage()
+            try {
+                spilled.put(cmd, journal.write(cmd))
+                usage -= bytes
+            } catch (e: IOException) {
+                // keep everything in memory rather than losing history
+                Log.exception(TAG, e)
+                return
+            }
+        }
+    }
+
+    /**
+     * @return bytes retained by the commands in memory
+     */
+    fun getMemoryUsage(): Long {
+        var bytes = 0L
+        for (c in commands) {
+            if (c is SpillableCommand) {
+                bytes += c.getMemoryUsage()
+            }
+        }
+        return bytes
+    }
+
+    /**
+     * @return number of commands written to the journal
+     */
+    fun getSpilledCount(): Int {
+        return spilled.size
+    }
+
+    /**
+     * @return size of the journal file in bytes
+     */
+    fun getJournalSize(): Long {
+        return journal.size()
+    }
+
     fun clear() {
         for (c in commands) {
             if (c is DisposableCommand) {
@@ -102,6 +197,8 @@ class CommandHistory(private val limit: Int) {
             }
         }
         commands.clear()
+        spilled.clear()
+        journal.clear()
         pointer = -1
     }
 
@@ -109,9 +206,23 @@ class CommandHistory(private val limit: Int) {
         return commands.size
     }
 
+    /**
+     * Drops all commands & deletes the journal. The history can still be
+     * used afterwards.
+     */
+    override fun dispose() {
+        clear()
+        journal.dispose()
+    }
+
     companion object {
 
+        private val TAG = CommandHistory::class.java.simpleName
+
         val DEFAULT_LIMIT = 50
+
+        /** 256 MB */
+        val DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024
     }
 
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.history
+
+import com.badlogic.gdx.utils.Array
+import com.badlogic.gdx.utils.Disposable
+import com.mbrlabs.mundus.editor.utils.Log
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+
+/**
+ * Temp file holding spilled commands.
+ *
+ * An entry is released as soon as its command has been read back. Released
+ * slots are reused by later entries that fit into them. If the released
+ * space exceeds the space of live entries, the live entries are compacted
+ * into a new file. So the file stays about as large as the spilled commands,
+ * no matter how often commands are restored & spilled again.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+class CommandJournal : Disposable {
+
+    companion object {
+        private val TAG = CommandJournal::class.java.simpleName
+
+        /** released bytes below this are never compacted */
+        private val MIN_COMPACT_SIZE = 1024 * 1024L
+    }
+
+    /**
+     * Position of a command in the journal. The capacity is the size of the
+     * slot, which can be larger than the command if the slot is reused.
+     */
+    class Entry internal constructor(offset: Long, val length: Int, capacity: Int) {
+        var offset: Long = offset
+            internal set
+        var capacity: Int = capacity
+            internal set
+    }
+
+    private var path: File? = null
+    private var file: RandomAccessFile? = null
+
+    private val live = Array<Entry>(false, 16)
+    private val free = Array<Entry>(false, 16)
+    private var liveBytes = 0L
+
+    /**
+     * Spills a command into the journal.
+     *
+     * @return position of the command in the journal
+     */
+    fun write(command: SpillableCommand): Entry {
+        val bytes = ByteArrayOutputStream()
+        val out = DataOutputStream(bytes)
+        command.spill(out)
+        out.flush()
+
+        val data = bytes.toByteArray()
+        try {
+            val raf = open()
+            val slot = takeFreeSlot(data.size)
+            val entry = Entry(slot?.offset ?: raf.length(), data.size, slot?.capacity ?: data.size)
+            raf.seek(entry.offset)
+            raf.write(data)
+            live.add(entry)
+            liveBytes += entry.capacity
+            return entry
+        } catch (e: IOException) {
+            // the command already released its data
+            command.restore(DataInputStream(ByteArrayInputStream(data)))
+            throw e
+        }
+    }
+
+    /**
+     * Restores a command from the journal & releases its entry.
+     */
+    fun read(command: SpillableCommand, entry: Entry) {
+        val data = ByteArray(entry.length)
+        val raf = open()
+        raf.seek(entry.offset)
+        raf.readFully(data)
+        command.restore(DataInputStream(ByteArrayInputStream(data)))
+        release(entry)
+    }
+
+    /**
+     * Releases an entry without reading it, e.g. because its command has
+     * been removed from the history.
+     */
+    fun release(entry: Entry) {
+        if (!live.removeValue(entry, true)) return
+        liveBytes -= entry.capacity
+
+        if (live.size == 0) {
+            clear()
+            return
+        }
+        free.add(entry)
+
+        val dead = size() - liveBytes
+        if (dead > liveBytes && dead > MIN_COMPACT_SIZE) {
+            try {
+                compact()
+            } catch (e: IOException) {
+                // the old file is still intact
+                Log.exception(TAG, e)
+            }
+        }
+    }
+
+    /**
+     * @return size of the journal file in bytes
+     */
+    fun size(): Long {
+        return file?.length() ?: 0L
+    }
+
+    /**
+     * Drops all entries.
+     */
+    fun clear() {
+        file?.setLength(0)
+        live.clear()
+        free.clear()
+        liveBytes = 0
+    }
+
+    /**
+     * Removes the smallest free slot that can hold the given number of bytes.
+     */
+    private fun takeFreeSlot(length: Int): Entry? {
+        var best = -1
+        for (i in 0..free.size - 1) {
+            val capacity = free.get(i).capacity
+            if (capacity >= length && (best == -1 || capacity < free.get(best).capacity)) {
+                best = i
+            }
+        }
+        return if (best == -1) null else free.removeIndex(best)
+    }
+
+    /**
+     * Copies the live entries into a new file without gaps.
+     */
+    private fun compact() {
+        val old = file!!
+        val tmp = File.createTempFile("mundus-history", ".journal")
+        tmp.deleteOnExit()
+        val raf = RandomAccessFile(tmp, "rw")
+        val offsets = LongArray(live.size)
+        try {
+            var offset = 0L
+            for (i in 0..live.size - 1) {
+                val entry = live.get(i)
+                val data = ByteArray(entry.length)
+                old.seek(entry.offset)
+                old.readFully(data)
+                raf.seek(offset)
+                raf.write(data)
+                offsets[i] = offset
+                offset += data.size
+            }
+        } catch (e: IOException) {
+            raf.close()
+            tmp.delete()
+            throw e
+        }
+
+        liveBytes = 0
+        for (i in 0..live.size - 1) {
+            val entry = live.get(i)
+            entry.offset = offsets[i]
+            entry.capacity = entry.length
+            liveBytes += entry.length
+        }
+        free.clear()
+
+        old.close()
+        path?.delete()
+        path = tmp
+        file = raf
+    }
+
+    private fun open(): RandomAccessFile {
+        if (file == null) {
+            val tmp = File.createTempFile("mundus-history", ".journal")
+            tmp.deleteOnExit()
+            path = tmp
+            file = RandomAccessFile(tmp, "rw")
+        }
+        return file!!
+    }
+
+    /**
+     * Closes & deletes the file. The journal can still be used afterwards,
+     * a new file is created on demand.
+     */
+    override fun dispose() {
+        file?.close()
+        path?.delete()
+        file = null
+        path = null
+        live.clear()
+        free.clear()
+        liveBytes = 0
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.history
+
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * A command that retains a lot of memory, e.g. terrain data.
+ *
+ * The CommandHistory can write it to its disk journal when the history
+ * exceeds its memory budget & read it back before it is executed or undone.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+interface SpillableCommand : Command {
+
+    /**
+     * @return bytes retained by this command, 0 while spilled
+     */
+    fun getMemoryUsage(): Long
+
+    /**
+     * Writes the retained data & releases it.
+     */
+    fun spill(out: DataOutput)
+
+    /**
+     * Reads the data written by spill().
+     */
+    fun restore(input: DataInput)
+
+}
@@ -16,36 +16,211 @@
 
 package com.mbrlabs.mundus.editor.history.commands
 
-import com.mbrlabs.mundus.commons.terrain.Terrain
-import com.mbrlabs.mundus.editor.history.Command
+import com.mbrlabs.mundus.commons.assets.TerrainAsset
+import com.mbrlabs.mundus.editor.history.DisposableCommand
+import com.mbrlabs.mundus.editor.history.SpillableCommand
+import java.io.ByteArrayOutputStream
+import java.io.DataInput
+import java.io.DataOutput
+import java.nio.ByteBuffer
+import java.util.zip.DataFormatException
+import java.util.zip.Deflater
+import java.util.zip.Inflater
 
 /**
+ * Stores only the modified region of the terrain.
+ *
+ * The heights before the change are stored deflated. The heights after the
+ * change are stored as XOR of their bits with the heights before, which is
+ * zero wherever the heights didn't change & deflates to almost nothing.
+ * Both are lossless. Undo & redo only update the region.
+ *
+ * If auto splat rules rewrote splatmap pixels during the change, the
+ * splatmap tiles are kept in a paired paint command, which is undone &
+ * redone together with the heights.
+ *
  * @author Marcus Brummer
- * @version 07-02-2016
+ * @version 17-10-2026
  */
-class TerrainHeightCommand(private var terrain: Terrain?) : Command {
+class TerrainHeightCommand(private var terrainAsset: TerrainAsset?) : DisposableCommand, SpillableCommand {
+
+    companion object {
+        private val TAG = TerrainHeightCommand::class.java.simpleName
+    }
 
-    private var heightDataBefore: FloatArray? = null
-    private var heightDataAfter: FloatArray? = null
+    private val resolution = terrainAsset!!.terrain.vertexResolution
 
-    fun setHeightDataBefore(data: FloatArray) {
-        heightDataBefore = FloatArray(data.size)
-        System.arraycopy(data, 0, heightDataBefore!!, 0, data.size)
+    // region, in vertices
+    private var minX = 0
+    private var minZ = 0
+    private var width = resolution
+    private var depth = resolution
+
+    private var beforeBits: IntArray? = null
+    private var before: ByteArray? = null
+    private var delta: ByteArray? = null
+
+    /** splatmap tiles rewritten by the auto splat rules, or null */
+    var splatCommand: TerrainPaintCommand? = null
+
+    /**
+     * Restricts the command to a region of the terrain. Must be called before
+     * the height data is set. By default the whole terrain is stored.
+     *
+     * @param minX first vertex on the x axis
+     * @param minZ first vertex on the z axis
+     * @param maxX last vertex on the x axis (inclusive)
+     * @param maxZ last vertex on the z axis (inclusive)
+     */
+    fun setRegion(minX: Int, minZ: Int, maxX: Int, maxZ: Int) {
+        this.minX = minX
+        this.minZ = minZ
+        this.width = maxX - minX + 1
+        this.depth = maxZ - minZ + 1
     }
 
+    /**
+     * @param data heights before the change, of the whole terrain or of a
+     * part of it that contains the region
+     * @param dataMinX first vertex of data on the x axis
+     * @param dataMinZ first vertex of data on the z axis
+     * @param stride number of vertices per row of data
+     */
+    @JvmOverloads
+    fun setHeightDataBefore(data: FloatArray, dataMinX: Int = 0, dataMinZ: Int = 0,
+                            stride: Int = resolution) {
+        beforeBits = crop(data, dataMinX, dataMinZ, stride)
+    }
+
+    /**
+     * @param data heights of the whole terrain after the change
+     */
     fun setHeightDataAfter(data: FloatArray) {
-        heightDataAfter = FloatArray(data.size)
-        System.arraycopy(data, 0, heightDataAfter!!, 0, data.size)
+        val beforeBits = this.beforeBits!!
+        val afterBits = crop(data, 0, 0, resolution)
+        for (i in afterBits.indices) {
+            afterBits[i] = afterBits[i] xor beforeBits[i]
+        }
+
+        before = deflate(beforeBits)
+        delta = deflate(afterBits)
+        this.beforeBits = null
+    }
+
+    /**
+     * @return compressed size of the command in bytes
+     */
+    override fun getMemoryUsage(): Long {
+        return (before?.size ?: 0).toLong() + (delta?.size ?: 0).toLong() + (splatCommand?.getMemoryUsage() ?: 0L)
+    }
+
+    override fun spill(out: DataOutput) {
+        writeBytes(out, before!!)
+        writeBytes(out, delta!!)
+        before = null
+        delta = null
+        splatCommand?.spill(out)
+    }
+
+    override fun restore(input: DataInput) {
+        before = readBytes(input)
+        delta = readBytes(input)
+        splatCommand?.restore(input)
+    }
+
+    private fun writeBytes(out: DataOutput, data: ByteArray) {
+        out.writeInt(data.size)
+        out.write(data)
+    }
+
+    private fun readBytes(input: DataInput): ByteArray {
+        val data = ByteArray(input.readInt())
+        input.readFully(data)
+        return data
     }
 
     override fun execute() {
-        terrain!!.heightData = heightDataAfter
-        terrain!!.update()
+        val bits = inflate(before!!)
+        val deltaBits = inflate(delta!!)
+        for (i in bits.indices) {
+            bits[i] = bits[i] xor deltaBits[i]
+        }
+        apply(bits)
+        splatCommand?.execute()
     }
 
     override fun undo() {
-        terrain!!.heightData = heightDataBefore
-        terrain!!.update()
+        apply(inflate(before!!))
+        splatCommand?.undo()
+    }
+
+    private fun apply(bits: IntArray) {
+        val terrain = terrainAsset!!.loadForHistory(TAG) ?: return
+        terrain.dequantize()
+        val res = terrain.vertexResolution
+        for (row in 0 until depth) {
+            val offset = (minZ + row) * res + minX
+            for (x in 0 until width) {
+                terrain.heightData[offset + x] = java.lang.Float.intBitsToFloat(bits[row * width + x])
+            }
+        }
+        terrain.update(minX, minZ, minX + width - 1, minZ + depth - 1)
+    }
+
+    private fun crop(data: FloatArray, dataMinX: Int, dataMinZ: Int, stride: Int): IntArray {
+        val bits = IntArray(width * depth)
+        for (row in 0 until depth) {
+            val offset = (minZ + row - dataMinZ) * stride + minX - dataMinX
+            for (x in 0 until width) {
+                bits[row * width + x] = java.lang.Float.floatToRawIntBits(data[offset + x])
+            }
+        }
+        return bits
+    }
+
+    private fun deflate(bits: IntArray): ByteArray {
+        val bytes = ByteBuffer.allocate(bits.size * 4)
+        bytes.asIntBuffer().put(bits)
+
+        val deflater = Deflater(Deflater.BEST_SPEED)
+        deflater.setInput(bytes.array())
+        deflater.finish()
+        val out = ByteArrayOutputStream()
+        val buffer = ByteArray(8192)
+        while (!deflater.finished()) {
+            val count = deflater.deflate(buffer)
+            out.write(buffer, 0, count)
+        }
+        deflater.end()
+        return out.toByteArray()
+    }
+
+    private fun inflate(data: ByteArray): IntArray {
+        val bytes = ByteArray(width * depth * 4)
+        val inflater = Inflater()
+        var offset = 0
+        try {
+            inflater.setInput(data)
+            while (offset < bytes.size && !inflater.finished()) {
+                val count = inflater.inflate(bytes, offset, bytes.size - offset)
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break
+                offset += count
+            }
+        } catch (e: DataFormatException) {
+            throw IllegalStateException("Corrupted terrain history", e)
+        } finally {
+            inflater.end()
+        }
+        // a truncated entry would flatten the region
+        if (offset != bytes.size) throw IllegalStateException("Corrupted terrain history")
+
+        val bits = IntArray(width * depth)
+        ByteBuffer.wrap(bytes).asIntBuffer().get(bits)
+        return bits
+    }
+
+    override fun dispose() {
+        splatCommand?.dispose()
     }
 
 }
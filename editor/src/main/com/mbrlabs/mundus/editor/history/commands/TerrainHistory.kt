@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.history.commands
+
+import com.mbrlabs.mundus.commons.assets.TerrainAsset
+import com.mbrlabs.mundus.commons.terrain.Terrain
+import com.mbrlabs.mundus.editor.Mundus
+import com.mbrlabs.mundus.editor.core.project.ProjectManager
+import com.mbrlabs.mundus.editor.utils.Log
+
+/**
+ * Returns the terrain an undo or redo of a terrain command modifies.
+ *
+ * Terrain commands keep the terrain asset, not the terrain: a streamed tile
+ * gets a new terrain every time it is loaded. The tile is loaded if it has
+ * been evicted since the change, and marked dirty so that it is not evicted
+ * again before the change has been saved.
+ *
+ * @param tag log tag of the command
+ * @return the loaded terrain or null if it can't be loaded
+ */
+internal fun TerrainAsset.loadForHistory(tag: String): Terrain? {
+    if (!isLoaded) {
+        load()
+    }
+    if (terrain == null) {
+        Log.error(tag, "Failed to load terrain {}", this)
+        return null
+    }
+    Mundus.inject<ProjectManager>().current().assetManager.addDirtyAsset(this)
+    return terrain
+}
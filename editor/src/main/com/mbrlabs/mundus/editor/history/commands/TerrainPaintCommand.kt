@@ -16,48 +16,154 @@
 
 package com.mbrlabs.mundus.editor.history.commands
 
-import com.badlogic.gdx.graphics.Pixmap
-import com.mbrlabs.mundus.commons.terrain.Terrain
+import com.badlogic.gdx.utils.IntMap
+import com.mbrlabs.mundus.commons.assets.TerrainAsset
+import com.mbrlabs.mundus.commons.terrain.SplatMap
 import com.mbrlabs.mundus.editor.history.DisposableCommand
+import com.mbrlabs.mundus.editor.history.SpillableCommand
+import java.io.DataInput
+import java.io.DataOutput
 
 /**
+ * Stores only the splatmap tiles a stroke modified.
+ *
+ * The splatmap is divided into tiles of TILE_SIZE x TILE_SIZE pixels. Call
+ * copyOnWrite() right before pixels are modified: tiles that are touched for
+ * the first time are copied. After the stroke setAfter() copies the same
+ * tiles again. Undo & redo write & upload only these tiles.
+ *
  * @author Marcus Brummer
- * @version 07-02-2016
+ * @version 17-10-2026
  */
-class TerrainPaintCommand(private var terrain: Terrain?) : DisposableCommand {
+class TerrainPaintCommand(private var terrainAsset: TerrainAsset?) : DisposableCommand, SpillableCommand {
 
-    private var after: Pixmap? = null
-    private var before: Pixmap? = null
+    companion object {
+        const val TILE_SIZE = 64
+        private const val BYTES_PER_PIXEL = 4
+        private val TAG = TerrainPaintCommand::class.java.simpleName
+    }
 
-    fun setAfter(data: Pixmap) {
-        after = Pixmap(data.width, data.height, data.format)
-        after!!.drawPixmap(data, 0, 0)
+    private class Tile(val x: Int, val y: Int, val width: Int, val height: Int) {
+        var before: ByteArray? = null
+        var after: ByteArray? = null
     }
 
-    fun setBefore(data: Pixmap) {
-        before = Pixmap(data.width, data.height, data.format)
-        before!!.drawPixmap(data, 0, 0)
+    private val tiles = IntMap<Tile>()
+
+    /**
+     * Copies the tiles overlapping the region, that have not been copied
+     * yet.
+     *
+     * @param minX first modified pixel on the x axis
+     * @param minY first modified pixel on the y axis
+     * @param maxX last modified pixel on the x axis (inclusive)
+     * @param maxY last modified pixel on the y axis (inclusive)
+     */
+    fun copyOnWrite(minX: Int, minY: Int, maxX: Int, maxY: Int) {
+        val sm = terrainAsset!!.terrain?.terrainTexture?.splatmap ?: return
+        val tilesX = (sm.width + TILE_SIZE - 1) / TILE_SIZE
+        for (ty in minY / TILE_SIZE..maxY / TILE_SIZE) {
+            for (tx in minX / TILE_SIZE..maxX / TILE_SIZE) {
+                val key = ty * tilesX + tx
+                if (tiles.containsKey(key)) continue
+
+                val x = tx * TILE_SIZE
+                val y = ty * TILE_SIZE
+                val tile = Tile(x, y, Math.min(TILE_SIZE, sm.width - x), Math.min(TILE_SIZE, sm.height - y))
+                tile.before = read(sm, tile)
+                tiles.put(key, tile)
+            }
+        }
     }
 
-    override fun execute() {
-        val sm = terrain!!.terrainTexture.splatmap
-        if (sm != null) {
-            sm.pixmap.drawPixmap(after!!, 0, 0)
-            sm.updateTexture()
+    /**
+     * Copies the modified tiles after the stroke.
+     */
+    fun setAfter() {
+        val sm = terrainAsset!!.terrain?.terrainTexture?.splatmap ?: return
+        for (tile in tiles.values()) {
+            tile.after = read(sm, tile)
+        }
+    }
+
+    fun isEmpty(): Boolean {
+        return tiles.size == 0
+    }
+
+    /**
+     * @return size of the stored tiles in bytes
+     */
+    override fun getMemoryUsage(): Long {
+        var bytes = 0L
+        for (tile in tiles.values()) {
+            bytes += (tile.before?.size ?: 0) + (tile.after?.size ?: 0)
+        }
+        return bytes
+    }
+
+    override fun spill(out: DataOutput) {
+        out.writeInt(tiles.size)
+        for (entry in tiles.entries()) {
+            out.writeInt(entry.key)
+            out.write(entry.value.before!!)
+            out.write(entry.value.after!!)
+            entry.value.before = null
+            entry.value.after = null
         }
     }
 
+    override fun restore(input: DataInput) {
+        for (i in 0 until input.readInt()) {
+            val tile = tiles.get(input.readInt())
+            val before = ByteArray(tile.width * tile.height * BYTES_PER_PIXEL)
+            val after = ByteArray(before.size)
+            input.readFully(before)
+            input.readFully(after)
+            tile.before = before
+            tile.after = after
+        }
+    }
+
+    override fun execute() {
+        restore(true)
+    }
+
     override fun undo() {
-        val sm = terrain!!.terrainTexture.splatmap
-        if (sm != null) {
-            sm.pixmap.drawPixmap(before!!, 0, 0)
-            sm.updateTexture()
+        restore(false)
+    }
+
+    private fun restore(after: Boolean) {
+        val terrain = terrainAsset!!.loadForHistory(TAG) ?: return
+        val sm = terrain.terrainTexture.splatmap ?: return
+        for (tile in tiles.values()) {
+            write(sm, tile, if (after) tile.after!! else tile.before!!)
+            sm.markDirty(tile.x, tile.y, tile.width, tile.height)
+            sm.updateDirtyRegion()
+        }
+    }
+
+    private fun read(sm: SplatMap, tile: Tile): ByteArray {
+        val pixels = sm.pixmap.pixels.duplicate()
+        val rowBytes = tile.width * BYTES_PER_PIXEL
+        val data = ByteArray(rowBytes * tile.height)
+        for (row in 0 until tile.height) {
+            pixels.position(((tile.y + row) * sm.width + tile.x) * BYTES_PER_PIXEL)
+            pixels.get(data, row * rowBytes, rowBytes)
+        }
+        return data
+    }
+
+    private fun write(sm: SplatMap, tile: Tile, data: ByteArray) {
+        val pixels = sm.pixmap.pixels.duplicate()
+        val rowBytes = tile.width * BYTES_PER_PIXEL
+        for (row in 0 until tile.height) {
+            pixels.position(((tile.y + row) * sm.width + tile.x) * BYTES_PER_PIXEL)
+            pixels.put(data, row * rowBytes, rowBytes)
         }
     }
 
     override fun dispose() {
-        after!!.dispose()
-        before!!.dispose()
+        tiles.clear()
     }
 
 }
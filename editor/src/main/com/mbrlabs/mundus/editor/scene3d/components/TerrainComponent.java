@@ -35,6 +35,7 @@ public class TerrainComponent extends PickableComponent {
 
     private TerrainAsset terrain;
     private Shader shader;
+    private PickerIDAttribute pickerID;
 
     public TerrainComponent(GameObject go) {
         super(go);
@@ -43,12 +44,19 @@ public class TerrainComponent extends PickableComponent {
 
     @Override
     public void encodeRaypickColorId() {
-        PickerIDAttribute goIDa = PickerColorEncoder.encodeRaypickColorId(gameObject);
-        terrain.getTerrain().modelInstance.materials.first().set(goIDa);
+        pickerID = PickerColorEncoder.encodeRaypickColorId(gameObject);
+        if (terrain.isLoaded()) {
+            terrain.getTerrain().getMaterial().set(pickerID);
+        }
     }
 
     @Override
     public void renderPick() {
+        if (!terrain.isLoaded()) return;
+        // streamed terrains get a new material every time they are loaded
+        if (pickerID != null) {
+            terrain.getTerrain().getMaterial().set(pickerID);
+        }
         gameObject.sceneGraph.batch.render(terrain.getTerrain(), Shaders.INSTANCE.getPickerShader());
     }
 
@@ -70,6 +78,8 @@ public class TerrainComponent extends PickableComponent {
 
     @Override
     public void render(float delta) {
+        if (!terrain.isLoaded()) return;
+        terrain.getTerrain().setCamera(gameObject.sceneGraph.scene.cam);
         gameObject.sceneGraph.batch.render(terrain.getTerrain(), gameObject.sceneGraph.scene.environment, shader);
     }
 
@@ -82,7 +82,7 @@ public class SelectionTool extends Tool {
 
                 // terrainAsset component
                 TerrainComponent tc = (TerrainComponent) go.findComponentByType(Component.Type.TERRAIN);
-                if (tc != null) {
+                if (tc != null && tc.getTerrain().isLoaded()) {
                     getBatch().render(tc.getTerrain().getTerrain(), getShader());
                 }
             }
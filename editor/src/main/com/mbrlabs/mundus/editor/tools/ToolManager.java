@@ -24,6 +24,7 @@ import com.badlogic.gdx.utils.Disposable;
 import com.mbrlabs.mundus.editor.core.project.ProjectManager;
 import com.mbrlabs.mundus.editor.history.CommandHistory;
 import com.mbrlabs.mundus.editor.input.InputManager;
+import com.mbrlabs.mundus.editor.tools.brushes.BrushEngine;
 import com.mbrlabs.mundus.editor.tools.brushes.CircleBrush;
 import com.mbrlabs.mundus.editor.tools.brushes.ConfettiBrush;
 import com.mbrlabs.mundus.editor.tools.brushes.SmoothCircleBrush;
@@ -34,7 +35,7 @@ import com.mbrlabs.mundus.editor.tools.picker.ToolHandlePicker;
 
 /**
  * @author Marcus Brummer
- * @version 25-12-2015
+ * @version 17-10-2026
  */
 public class ToolManager extends InputAdapter implements Disposable {
 
@@ -43,6 +44,7 @@ public class ToolManager extends InputAdapter implements Disposable {
     private Tool activeTool;
 
     public Array<TerrainBrush> terrainBrushes;
+    private BrushEngine brushEngine;
 
     public ModelPlacementTool modelPlacementTool;
     public SelectionTool selectionTool;
@@ -58,11 +60,12 @@ public class ToolManager extends InputAdapter implements Disposable {
         this.inputManager = inputManager;
         this.activeTool = null;
 
+        brushEngine = new BrushEngine();
         terrainBrushes = new Array<>();
-        terrainBrushes.add(new SmoothCircleBrush(projectManager, modelBatch, history));
-        terrainBrushes.add(new CircleBrush(projectManager, modelBatch, history));
-        terrainBrushes.add(new StarBrush(projectManager, modelBatch, history));
-        terrainBrushes.add(new ConfettiBrush(projectManager, modelBatch, history));
+        terrainBrushes.add(new SmoothCircleBrush(projectManager, modelBatch, history, brushEngine));
+        terrainBrushes.add(new CircleBrush(projectManager, modelBatch, history, brushEngine));
+        terrainBrushes.add(new StarBrush(projectManager, modelBatch, history, brushEngine));
+        terrainBrushes.add(new ConfettiBrush(projectManager, modelBatch, history, brushEngine));
 
         modelPlacementTool = new ModelPlacementTool(projectManager, modelBatch, history);
         selectionTool = new SelectionTool(projectManager, goPicker, modelBatch, history);
@@ -126,6 +129,7 @@ public class ToolManager extends InputAdapter implements Disposable {
         for (TerrainBrush brush : terrainBrushes) {
             brush.dispose();
         }
+        brushEngine.dispose();
         translateTool.dispose();
         modelPlacementTool.dispose();
         selectionTool.dispose();
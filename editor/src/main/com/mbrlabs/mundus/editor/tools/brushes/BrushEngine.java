@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.tools.brushes;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.mbrlabs.mundus.commons.assets.TerrainAsset;
+import com.mbrlabs.mundus.commons.terrain.AutoSplat;
+import com.mbrlabs.mundus.commons.terrain.SplatMap;
+import com.mbrlabs.mundus.commons.terrain.SplatTexture;
+import com.mbrlabs.mundus.commons.terrain.Terrain;
+import com.mbrlabs.mundus.editor.utils.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Applies brush steps on a worker thread.
+ *
+ * The heights (or splatmap pixels) a stroke touches are copied into a back
+ * buffer. The buffer only covers the region reached by the dabs so far & grows
+ * on the worker as new dabs arrive, so short strokes on large terrains copy
+ * little data. Steps queued with {@link #submit(Step)} modify only the back
+ * buffer. After every step the modified region is copied out & published to
+ * the render thread, which writes it into the terrain & uploads it in
+ * {@link #publish()}. Input & rendering keep their frame rate even if the
+ * worker falls behind a heavy brush. The back buffer is released when the
+ * stroke is finished.
+ *
+ * One engine is shared by all brushes, each stroke brings its own
+ * {@link Operation}.
+ *
+ * A step holds all dabs of one frame. Steps submitted while the worker is
+ * busy are merged into the step waiting in the queue, so the worker applies
+ * everything that piled up in one batch with one published region.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class BrushEngine implements Disposable {
+
+    private static final String TAG = BrushEngine.class.getSimpleName();
+
+    // splatmaps are RGBA8888
+    private static final int BYTES_PER_PIXEL = 4;
+    // minimum growth of the back buffer on each side, in vertices or pixels
+    private static final int MIN_GROWTH = 32;
+
+    /**
+     * Applies one step to the back buffer. Called on the worker thread.
+     */
+    public interface Operation {
+        /**
+         * Computes the region a dab reads or writes. The engine makes sure it
+         * is in the back buffer before the dab is applied.
+         *
+         * @param out
+         *            region in vertices or splatmap pixels, may exceed the
+         *            terrain
+         */
+        void reach(BrushEngine engine, Step step, Dab dab, GridRegion out);
+
+        /**
+         * @param engine
+         *            engine holding the back buffer, see
+         *            {@link BrushEngine#getHeights()},
+         *            {@link BrushEngine#getPixels()} &
+         *            {@link BrushEngine#index(int, int)}
+         * @param step
+         *            the brush step
+         * @param dab
+         *            the dab of the step to apply
+         * @param modified
+         *            region the step modified, in vertices or splatmap
+         *            pixels
+         */
+        void apply(BrushEngine engine, Step step, Dab dab, GridRegion modified);
+    }
+
+    /**
+     * Informs about the progress of a stroke. Called on the render thread.
+     */
+    public interface StrokeListener {
+        /**
+         * Called before a region is written into the terrain. Region in
+         * vertices or splatmap pixels, bounds inclusive.
+         */
+        void beforeWrite(int minX, int minZ, int maxX, int maxZ);
+
+        /**
+         * Called before the auto splat rules of the terrain rewrite splatmap
+         * pixels after heights have been written. Region in splatmap pixels,
+         * bounds inclusive.
+         */
+        void beforeAutoSplat(int minX, int minY, int maxX, int maxY);
+
+        /**
+         * Called by {@link BrushEngine#finishStroke()} after the last region
+         * has been written & before the back buffer is released.
+         */
+        void strokeFinished(BrushEngine engine);
+    }
+
+    /**
+     * One brush sample, in local terrain coordinates.
+     */
+    public static class Dab {
+        public float x;
+        public float y;
+        public float z;
+        public float radius;
+    }
+
+    /**
+     * Dabs of a stroke sharing the same brush settings.
+     */
+    public static class Step {
+        private static final int FLOATS_PER_DAB = 4;
+
+        public TerrainBrush.BrushMode mode;
+        public float strength;
+        /** 1 for the primary action, -1 for the secondary */
+        public float direction;
+        /** target height of the flatten mode */
+        public float height;
+        /** painted channel */
+        public SplatTexture.Channel channel;
+
+        private float[] dabs = new float[FLOATS_PER_DAB * 8];
+        private int dabCount;
+
+        public void addDab(float x, float y, float z, float radius) {
+            if (dabs.length < (dabCount + 1) * FLOATS_PER_DAB) {
+                dabs = Arrays.copyOf(dabs, dabs.length * 2);
+            }
+            final int i = dabCount++ * FLOATS_PER_DAB;
+            dabs[i] = x;
+            dabs[i + 1] = y;
+            dabs[i + 2] = z;
+            dabs[i + 3] = radius;
+        }
+
+        public Dab getDab(int index, Dab out) {
+            final int i = index * FLOATS_PER_DAB;
+            out.x = dabs[i];
+            out.y = dabs[i + 1];
+            out.z = dabs[i + 2];
+            out.radius = dabs[i + 3];
+            return out;
+        }
+
+        public int getDabCount() {
+            return dabCount;
+        }
+
+        boolean canMerge(Step other) {
+            return mode == other.mode && strength == other.strength && direction == other.direction
+                    && height == other.height && channel == other.channel;
+        }
+
+        void merge(Step other) {
+            for (int i = 0; i < other.dabCount * FLOATS_PER_DAB; i += FLOATS_PER_DAB) {
+                addDab(other.dabs[i], other.dabs[i + 1], other.dabs[i + 2], other.dabs[i + 3]);
+            }
+        }
+    }
+
+    /**
+     * A modified region of the back buffer, copied for the render thread.
+     */
+    private static class Patch {
+        final GridRegion region;
+        final float[] heights;
+        final byte[] pixels;
+
+        Patch(GridRegion region, float[] heights, byte[] pixels) {
+            this.region = region;
+            this.heights = heights;
+            this.pixels = pixels;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Patch> patches = new ConcurrentLinkedQueue<Patch>();
+    // steps waiting for the worker
+    private final ArrayDeque<Step> pending = new ArrayDeque<Step>();
+    private boolean drainScheduled;
+    private final Dab dab = new Dab();
+    private final GridRegion reach = new GridRegion();
+    private final GridRegion published = new GridRegion();
+    // everything published during the current stroke
+    private final GridRegion strokeRegion = new GridRegion();
+    private final int[] autoSplatRegion = new int[4];
+
+    // current stroke. Only changed by the render thread while the worker is
+    // idle.
+    private TerrainAsset terrainAsset;
+    private Terrain terrain;
+    private boolean painting;
+    private Operation operation;
+    private StrokeListener listener;
+
+    // back buffers, owned by the worker during a stroke. They cover the
+    // window, a region of the terrain in vertices or splatmap pixels.
+    private final GridRegion window = new GridRegion();
+    private float[] heights;
+    private ByteBuffer pixels;
+    // heights at the beginning of the stroke
+    private float[] original;
+
+    public BrushEngine() {
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts a stroke. Finishes the previous stroke first. Must be called on
+     * the render thread.
+     *
+     * @param terrainAsset
+     *            painted terrain
+     * @param paint
+     *            true to modify the splatmap, false to modify the heights
+     * @param operation
+     *            applies the steps of this stroke
+     * @param listener
+     *            informed about the stroke, may be null
+     */
+    public void beginStroke(TerrainAsset terrainAsset, boolean paint, Operation operation, StrokeListener listener) {
+        finishStroke();
+        final Terrain terrain = terrainAsset.getTerrain();
+        if (paint && terrain.getTerrainTexture().getSplatmap() == null) return;
+        if (!paint) {
+            // the worker reads heights outside of the back buffer directly
+            terrain.dequantize();
+        }
+
+        window.reset();
+        strokeRegion.reset();
+        this.terrainAsset = terrainAsset;
+        this.terrain = terrain;
+        this.painting = paint;
+        this.operation = operation;
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a step of the current stroke. Ignored if there is no stroke.
+     * The step is merged into the last queued step, if the worker didn't
+     * start it yet & both have the same settings.
+     */
+    public void submit(Step step) {
+        if (terrainAsset == null || step.getDabCount() == 0) return;
+        synchronized (pending) {
+            final Step last = pending.peekLast();
+            if (last != null && last.canMerge(step)) {
+                last.merge(step);
+            } else {
+                pending.add(step);
+            }
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+        executor.execute(drain);
+    }
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                final Step step;
+                synchronized (pending) {
+                    step = pending.poll();
+                    if (step == null) {
+                        drainScheduled = false;
+                        return;
+                    }
+                }
+                apply(step);
+            }
+        }
+    };
+
+    private void apply(Step step) {
+        try {
+            final GridRegion modified = new GridRegion();
+            for (int i = 0; i < step.getDabCount(); i++) {
+                step.getDab(i, dab);
+                reach.reset();
+                operation.reach(this, step, dab, reach);
+                if (!grow(reach)) continue;
+                operation.apply(this, step, dab, modified);
+            }
+            if (!modified.isEmpty()) {
+                patches.add(copy(modified));
+            }
+        } catch (Exception e) {
+            Log.exception(TAG, e);
+        }
+    }
+
+    /**
+     * Makes sure the back buffer covers a region. If it doesn't, the buffer
+     * is replaced by a bigger one. The part of the old buffer is copied over,
+     * the rest is read from the terrain, which doesn't change there during
+     * the stroke. The buffer grows by at least half its size, so that a long
+     * stroke reallocates only a few times.
+     *
+     * @return false if the region is outside of the terrain
+     */
+    private boolean grow(GridRegion region) {
+        final int maxX, maxZ;
+        if (painting) {
+            maxX = getSplatmap().getWidth() - 1;
+            maxZ = getSplatmap().getHeight() - 1;
+        } else {
+            maxX = maxZ = terrain.vertexResolution - 1;
+        }
+        region.minX = Math.max(0, region.minX);
+        region.minZ = Math.max(0, region.minZ);
+        region.maxX = Math.min(maxX, region.maxX);
+        region.maxZ = Math.min(maxZ, region.maxZ);
+        if (region.isEmpty()) return false;
+
+        if (!window.isEmpty() && region.minX >= window.minX && region.minZ >= window.minZ
+                && region.maxX <= window.maxX && region.maxZ <= window.maxZ) {
+            return true;
+        }
+
+        // grow towards the sides the stroke is heading to
+        final GridRegion grown = new GridRegion();
+        grown.add(window);
+        grown.add(region);
+        final boolean first = window.isEmpty();
+        final int growX = first ? MIN_GROWTH : Math.max(MIN_GROWTH, window.getWidth() / 2);
+        final int growZ = first ? MIN_GROWTH : Math.max(MIN_GROWTH, window.getDepth() / 2);
+        if (first || region.minX < window.minX) grown.minX = Math.max(0, grown.minX - growX);
+        if (first || region.minZ < window.minZ) grown.minZ = Math.max(0, grown.minZ - growZ);
+        if (first || region.maxX > window.maxX) grown.maxX = Math.min(maxX, grown.maxX + growX);
+        if (first || region.maxZ > window.maxZ) grown.maxZ = Math.min(maxZ, grown.maxZ + growZ);
+
+        if (painting) {
+            pixels = growPixels(grown);
+        } else {
+            heights = growHeights(heights, grown, terrain.heightData);
+            original = growHeights(original, grown, terrain.heightData);
+        }
+        window.minX = grown.minX;
+        window.minZ = grown.minZ;
+        window.maxX = grown.maxX;
+        window.maxZ = grown.maxZ;
+        return true;
+    }
+
+    private float[] growHeights(float[] old, GridRegion grown, float[] terrainHeights) {
+        final int res = terrain.vertexResolution;
+        final int width = grown.getWidth();
+        final float[] out = new float[width * grown.getDepth()];
+        for (int z = grown.minZ; z <= grown.maxZ; z++) {
+            final int row = (z - grown.minZ) * width;
+            if (old != null && z >= window.minZ && z <= window.maxZ) {
+                // left of the old buffer, the old buffer, right of it
+                final int oldRow = (z - window.minZ) * window.getWidth();
+                System.arraycopy(terrainHeights, z * res + grown.minX, out, row, window.minX - grown.minX);
+                System.arraycopy(old, oldRow, out, row + window.minX - grown.minX, window.getWidth());
+                System.arraycopy(terrainHeights, z * res + window.maxX + 1, out, row + window.maxX + 1 - grown.minX,
+                        grown.maxX - window.maxX);
+            } else {
+                System.arraycopy(terrainHeights, z * res + grown.minX, out, row, width);
+            }
+        }
+        return out;
+    }
+
+    private ByteBuffer growPixels(GridRegion grown) {
+        final int mapWidth = getSplatmap().getWidth();
+        final int width = grown.getWidth() * BYTES_PER_PIXEL;
+        final ByteBuffer out = ByteBuffer.allocate(width * grown.getDepth());
+        final ByteBuffer src = getSplatmap().getPixmap().getPixels().duplicate();
+        for (int z = grown.minZ; z <= grown.maxZ; z++) {
+            src.limit(src.capacity());
+            src.position((z * mapWidth + grown.minX) * BYTES_PER_PIXEL);
+            src.limit(src.position() + width);
+            out.put(src);
+        }
+        if (pixels != null) {
+            // modified part of the old buffer
+            final int oldWidth = window.getWidth() * BYTES_PER_PIXEL;
+            final ByteBuffer old = pixels.duplicate();
+            for (int z = window.minZ; z <= window.maxZ; z++) {
+                old.limit((z - window.minZ + 1) * oldWidth);
+                old.position((z - window.minZ) * oldWidth);
+                out.position((z - grown.minZ) * width + (window.minX - grown.minX) * BYTES_PER_PIXEL);
+                out.put(old);
+            }
+        }
+        out.clear();
+        return out;
+    }
+
+    private Patch copy(GridRegion region) {
+        final int width = region.getWidth();
+        final int depth = region.getDepth();
+        if (painting) {
+            final byte[] out = new byte[width * depth * BYTES_PER_PIXEL];
+            final ByteBuffer src = pixels.duplicate();
+            for (int row = 0; row < depth; row++) {
+                src.position(index(region.minX, region.minZ + row) * BYTES_PER_PIXEL);
+                src.get(out, row * width * BYTES_PER_PIXEL, width * BYTES_PER_PIXEL);
+            }
+            return new Patch(region, null, out);
+        }
+
+        final float[] out = new float[width * depth];
+        for (int row = 0; row < depth; row++) {
+            System.arraycopy(heights, index(region.minX, region.minZ + row), out, row * width, width);
+        }
+        return new Patch(region, out, null);
+    }
+
+    /**
+     * Writes the regions finished by the worker into the terrain & uploads
+     * them. Must be called on the render thread, usually once per frame.
+     *
+     * @return true if the terrain has been modified
+     */
+    public boolean publish() {
+        if (patches.isEmpty()) return false;
+        if (terrainAsset == null || terrainAsset.getTerrain() != terrain) {
+            // a streamed terrain can be evicted while the stroke is running
+            patches.clear();
+            return false;
+        }
+
+        final SplatMap sm = terrain.getTerrainTexture().getSplatmap();
+        published.reset();
+
+        Patch patch;
+        while ((patch = patches.poll()) != null) {
+            final GridRegion region = patch.region;
+            final int width = region.getWidth();
+            if (listener != null) {
+                listener.beforeWrite(region.minX, region.minZ, region.maxX, region.maxZ);
+            }
+            if (patch.pixels != null) {
+                final ByteBuffer dst = sm.getPixmap().getPixels().duplicate();
+                for (int row = 0; row < region.getDepth(); row++) {
+                    dst.position(((region.minZ + row) * sm.getWidth() + region.minX) * BYTES_PER_PIXEL);
+                    dst.put(patch.pixels, row * width * BYTES_PER_PIXEL, width * BYTES_PER_PIXEL);
+                }
+            } else {
+                for (int row = 0; row < region.getDepth(); row++) {
+                    System.arraycopy(patch.heights, row * width, terrain.heightData,
+                            (region.minZ + row) * terrain.vertexResolution + region.minX, width);
+                }
+            }
+            published.add(region);
+        }
+        strokeRegion.add(published);
+
+        if (painting) {
+            sm.markDirty(published.minX, published.minZ, published.getWidth(), published.getDepth());
+        } else {
+            terrain.update(published.minX, published.minZ, published.maxX, published.maxZ);
+            final AutoSplat autoSplat = terrain.getTerrainTexture().getAutoSplat();
+            if (autoSplat != null && sm != null && autoSplat.getAffectedPixels(terrain, sm, published.minX,
+                    published.minZ, published.maxX, published.maxZ, autoSplatRegion)) {
+                if (listener != null) {
+                    listener.beforeAutoSplat(autoSplatRegion[0], autoSplatRegion[1], autoSplatRegion[2],
+                            autoSplatRegion[3]);
+                }
+                autoSplat.apply(terrain, sm, published.minX, published.minZ, published.maxX, published.maxZ);
+            }
+        }
+        if (sm != null) {
+            sm.updateDirtyRegion();
+        }
+
+        return true;
+    }
+
+    /**
+     * Waits until the worker applied all queued steps, publishes them &
+     * releases the back buffer. Must be called on the render thread.
+     *
+     * @return true if the terrain has been modified
+     */
+    public boolean finishStroke() {
+        if (terrainAsset == null) return false;
+        try {
+            // the executor runs tasks in order, so all steps are done once
+            // this one ran. Steps can't be submitted meanwhile, since both
+            // happen on the render thread.
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.exception(TAG, e);
+        }
+
+        final boolean modified = publish();
+        if (listener != null) {
+            listener.strokeFinished(this);
+        }
+        release();
+        return modified;
+    }
+
+    private void release() {
+        terrainAsset = null;
+        terrain = null;
+        operation = null;
+        listener = null;
+        heights = null;
+        original = null;
+        pixels = null;
+        window.reset();
+    }
+
+    /**
+     * @return region modified by the current or last stroke, in vertices or
+     *         splatmap pixels
+     */
+    GridRegion getStrokeRegion() {
+        return strokeRegion;
+    }
+
+    /**
+     * @return region of the terrain covered by the back buffer, in vertices
+     *         or splatmap pixels
+     */
+    GridRegion getWindow() {
+        return window;
+    }
+
+    /**
+     * @return index of a vertex or pixel in the back buffer. The index of a
+     *         pixel has to be multiplied with the bytes per pixel.
+     */
+    public int index(int x, int z) {
+        return (z - window.minZ) * (window.maxX - window.minX + 1) + x - window.minX;
+    }
+
+    /**
+     * @return heights at the beginning of the stroke, laid out like
+     *         {@link #getHeights()}. Only valid for strokes modifying the
+     *         heights, until the stroke is finished.
+     */
+    public float[] getOriginalHeights() {
+        return original;
+    }
+
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    public SplatMap getSplatmap() {
+        return terrain.getTerrainTexture().getSplatmap();
+    }
+
+    /**
+     * @return back buffer of the terrain heights, only valid for strokes
+     *         modifying the heights. Use {@link #index(int, int)} to access
+     *         it.
+     */
+    public float[] getHeights() {
+        return heights;
+    }
+
+    /**
+     * @return back buffer of the splatmap pixels, only valid for strokes
+     *         modifying the splatmap. Use {@link #index(int, int)} to access
+     *         it.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        synchronized (pending) {
+            pending.clear();
+        }
+        patches.clear();
+        release();
+    }
+
+}
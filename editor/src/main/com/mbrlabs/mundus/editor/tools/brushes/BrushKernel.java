@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.tools.brushes;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+
+/**
+ * Falloff of a brush, stored as a square grid of floats.
+ *
+ * The falloff is read once from the red channel of the brush image. For
+ * sampling it is resampled to a resolution close to the number of grid
+ * points the brush covers, so that large brush images are filtered down
+ * instead of being point sampled. Lookups are bilinear on a primitive array &
+ * don't allocate.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class BrushKernel {
+
+    private final float[] source;
+    private final int sourceSize;
+
+    private float[] kernel;
+    private int size;
+
+    /**
+     * @param source
+     *            falloff values from 0 to 1, row by row
+     * @param sourceSize
+     *            width & height of the source
+     */
+    public BrushKernel(float[] source, int sourceSize) {
+        if (sourceSize < 2 || source.length < sourceSize * sourceSize) {
+            throw new IllegalArgumentException("Invalid kernel size: " + sourceSize);
+        }
+        this.source = source;
+        this.sourceSize = sourceSize;
+        this.kernel = source;
+        this.size = sourceSize;
+    }
+
+    /**
+     * Reads the falloff from the red channel of a square brush image.
+     */
+    public static BrushKernel fromPixmap(Pixmap pixmap) {
+        final int size = Math.min(pixmap.getWidth(), pixmap.getHeight());
+        final float[] values = new float[size * size];
+        final Color color = new Color();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Color.rgba8888ToColor(color, pixmap.getPixel(x, y));
+                values[y * size + x] = color.r;
+            }
+        }
+        return new BrushKernel(values, size);
+    }
+
+    /**
+     * Resamples the kernel, if the resolution changed. Resolutions above the
+     * resolution of the source use the source directly.
+     *
+     * @param resolution
+     *            number of samples along one side of the brush
+     */
+    public void setResolution(int resolution) {
+        resolution = Math.max(2, Math.min(sourceSize, resolution));
+        if (resolution == size) return;
+
+        size = resolution;
+        if (resolution == sourceSize) {
+            kernel = source;
+            return;
+        }
+
+        // box filter: every kernel sample is the average of the source
+        // pixels it covers
+        kernel = new float[resolution * resolution];
+        final float scale = (float) sourceSize / resolution;
+        for (int y = 0; y < resolution; y++) {
+            final int y0 = (int) (y * scale);
+            final int y1 = Math.max(y0 + 1, (int) ((y + 1) * scale));
+            for (int x = 0; x < resolution; x++) {
+                final int x0 = (int) (x * scale);
+                final int x1 = Math.max(x0 + 1, (int) ((x + 1) * scale));
+                float sum = 0;
+                for (int sy = y0; sy < y1; sy++) {
+                    for (int sx = x0; sx < x1; sx++) {
+                        sum += source[sy * sourceSize + sx];
+                    }
+                }
+                kernel[y * resolution + x] = sum / ((y1 - y0) * (x1 - x0));
+            }
+        }
+    }
+
+    public int getResolution() {
+        return size;
+    }
+
+    /**
+     * Samples the falloff with bilinear filtering.
+     *
+     * @param u
+     *            offset from the brush center on the x axis, from -1 to 1
+     * @param v
+     *            offset from the brush center on the z axis, from -1 to 1
+     * @return falloff from 0 to 1
+     */
+    public float sample(float u, float v) {
+        final int last = size - 1;
+        final float fx = Math.max(0, Math.min(last, (u + 1f) * 0.5f * last));
+        final float fy = Math.max(0, Math.min(last, (v + 1f) * 0.5f * last));
+
+        final int x0 = Math.min((int) fx, last - 1);
+        final int y0 = Math.min((int) fy, last - 1);
+        final float tx = fx - x0;
+        final float ty = fy - y0;
+
+        final int i = y0 * size + x0;
+        final float top = kernel[i] + (kernel[i + 1] - kernel[i]) * tx;
+        final float bottom = kernel[i + size] + (kernel[i + size + 1] - kernel[i + size]) * tx;
+        return top + (bottom - top) * ty;
+    }
+
+}
@@ -25,12 +25,13 @@ import com.mbrlabs.mundus.editor.utils.Fa;
 
 /**
  * @author Marcus Brummer
- * @version 05-02-2016
+ * @version 17-10-2026
  */
 public class CircleBrush extends TerrainBrush {
 
-    public CircleBrush(ProjectManager projectManager, ModelBatch batch, CommandHistory history) {
-        super(projectManager, batch, history, Gdx.files.internal("brushes/circle.png"));
+    public CircleBrush(ProjectManager projectManager, ModelBatch batch, CommandHistory history,
+            BrushEngine engine) {
+        super(projectManager, batch, history, engine, Gdx.files.internal("brushes/circle.png"));
     }
 
     @Override
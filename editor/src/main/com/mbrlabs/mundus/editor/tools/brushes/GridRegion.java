@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.tools.brushes;
+
+/**
+ * Bounding rectangle of modified terrain vertices or splatmap pixels.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+class GridRegion {
+
+    int minX, minZ, maxX, maxZ;
+
+    GridRegion() {
+        reset();
+    }
+
+    void reset() {
+        minX = minZ = Integer.MAX_VALUE;
+        maxX = maxZ = Integer.MIN_VALUE;
+    }
+
+    void add(int x, int z) {
+        minX = Math.min(minX, x);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxZ = Math.max(maxZ, z);
+    }
+
+    void add(GridRegion region) {
+        if (region.isEmpty()) return;
+        add(region.minX, region.minZ);
+        add(region.maxX, region.maxZ);
+    }
+
+    boolean isEmpty() {
+        return minX > maxX || minZ > maxZ;
+    }
+
+    int getWidth() {
+        return maxX - minX + 1;
+    }
+
+    int getDepth() {
+        return maxZ - minZ + 1;
+    }
+
+}
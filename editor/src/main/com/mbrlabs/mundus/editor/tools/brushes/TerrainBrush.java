@@ -19,7 +19,6 @@ package com.mbrlabs.mundus.editor.tools.brushes;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g3d.Material;
@@ -27,7 +26,6 @@ import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
 import com.badlogic.gdx.graphics.g3d.ModelInstance;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.math.collision.Ray;
@@ -36,6 +34,7 @@ import com.mbrlabs.mundus.commons.terrain.SplatMap;
 import com.mbrlabs.mundus.commons.terrain.SplatTexture;
 import com.mbrlabs.mundus.commons.terrain.Terrain;
 import com.mbrlabs.mundus.commons.utils.MathUtils;
+import com.mbrlabs.mundus.commons.utils.ParallelUtils;
 import com.mbrlabs.mundus.editor.Mundus;
 import com.mbrlabs.mundus.editor.core.project.ProjectManager;
 import com.mbrlabs.mundus.editor.events.GlobalBrushSettingsChangedEvent;
@@ -44,6 +43,8 @@ import com.mbrlabs.mundus.editor.history.commands.TerrainHeightCommand;
 import com.mbrlabs.mundus.editor.history.commands.TerrainPaintCommand;
 import com.mbrlabs.mundus.editor.tools.Tool;
 
+import java.nio.ByteBuffer;
+
 /**
  * A Terrain Brush can modify the terrainAsset in various ways (BrushMode).
  *
@@ -51,7 +52,7 @@ import com.mbrlabs.mundus.editor.tools.Tool;
  * splatmap.
  *
  * @author Marcus Brummer
- * @version 30-01-2016
+ * @version 17-10-2026
  */
 public abstract class TerrainBrush extends Tool {
 
@@ -63,7 +64,7 @@ public abstract class TerrainBrush extends Tool {
         RAISE_LOWER,
         /** Sets all vertices of the selection to a specified height. */
         FLATTEN,
-        /** TBD */
+        /** Blurs the terrainAsset height. */
         SMOOTH,
         /** Paints on the splatmap of the terrainAsset. */
         PAINT
@@ -98,11 +99,16 @@ public abstract class TerrainBrush extends Tool {
         }
     }
 
+    // smooth filter: 5 tap binomial approximation of a gaussian
+    private static final float[] SMOOTH_WEIGHTS = { 1 / 16f, 4 / 16f, 6 / 16f, 4 / 16f, 1 / 16f };
+    private static final int SMOOTH_RADIUS = SMOOTH_WEIGHTS.length / 2;
+    private static final int SMOOTH_ROWS_PER_TASK = 16;
+
+    // distance between two dabs of a stroke, relative to the radius
+    private static final float DAB_SPACING = 0.25f;
+    private static final int MAX_DABS_PER_FRAME = 32;
+
     // used for calculations
-    protected static final Vector2 c = new Vector2();
-    protected static final Vector2 p = new Vector2();
-    protected static final Vector2 v = new Vector2();
-    protected static final Color c0 = new Color();
     protected static final Vector3 tVec0 = new Vector3();
     protected static final Vector3 tVec1 = new Vector3();
 
@@ -123,21 +129,78 @@ public abstract class TerrainBrush extends Tool {
     private Model sphereModel;
     private ModelInstance sphereModelInstance;
     private final BoundingBox boundingBox = new BoundingBox();
-    private int lastMousePosIndicator = 0;
 
-    // the pixmap brush
-    private Pixmap brushPixmap;
-    private int pixmapCenter;
+    // grid region covered by the brush, used by the worker
+    private final GridRegion footprint = new GridRegion();
+
+    // falloff of the brush image, used by the worker
+    private final BrushKernel kernel;
+
+    // horizontally filtered rows of the smooth brush
+    private float[] smoothRows = new float[0];
+
+    // applies brush steps in the background, shared by all brushes
+    private final BrushEngine engine;
+    private final BrushEngine.Operation operation = new BrushEngine.Operation() {
+        @Override
+        public void reach(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion out) {
+            TerrainBrush.this.reach(engine, step, dab, out);
+        }
+
+        @Override
+        public void apply(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+            TerrainBrush.this.apply(engine, step, dab, modified);
+        }
+    };
+    private final BrushEngine.StrokeListener strokeListener = new BrushEngine.StrokeListener() {
+        @Override
+        public void beforeWrite(int minX, int minZ, int maxX, int maxZ) {
+            // keep the splatmap tiles as they were before the stroke
+            if (paintCommand != null) {
+                paintCommand.copyOnWrite(minX, minZ, maxX, maxZ);
+            }
+        }
+
+        @Override
+        public void beforeAutoSplat(int minX, int minY, int maxX, int maxY) {
+            // splatmap tiles the auto splat rules rewrite while sculpting
+            if (autoSplatCommand == null) {
+                autoSplatCommand = new TerrainPaintCommand(terrainAsset);
+            }
+            autoSplatCommand.copyOnWrite(minX, minY, maxX, maxY);
+        }
+
+        @Override
+        public void strokeFinished(BrushEngine engine) {
+            // the back buffer holding the original heights is released
+            // after this, only the region of the stroke is stored
+            final GridRegion region = engine.getStrokeRegion();
+            if (heightCommand == null || region.isEmpty()) return;
+            final GridRegion window = engine.getWindow();
+            heightCommand.setRegion(region.minX, region.minZ, region.maxX, region.maxZ);
+            heightCommand.setHeightDataBefore(engine.getOriginalHeights(), window.minX, window.minZ,
+                    window.getWidth());
+            heightCommand.setHeightDataAfter(engine.getTerrain().heightData);
+            heightRecorded = true;
+        }
+    };
+
+    // position of the last dab of the stroke, in local terrain coordinates
+    private final Vector3 lastDab = new Vector3();
+    private boolean strokeStarted = false;
 
     // undo/redo system
     private TerrainHeightCommand heightCommand = null;
     private TerrainPaintCommand paintCommand = null;
+    private TerrainPaintCommand autoSplatCommand = null;
+    private boolean heightRecorded = false;
     private boolean terrainHeightModified = false;
     private boolean splatmapModified = false;
 
-    public TerrainBrush(ProjectManager projectManager, ModelBatch batch, CommandHistory history,
+    public TerrainBrush(ProjectManager projectManager, ModelBatch batch, CommandHistory history, BrushEngine engine,
             FileHandle pixmapBrush) {
         super(projectManager, batch, history);
+        this.engine = engine;
 
         ModelBuilder modelBuilder = new ModelBuilder();
         sphereModel = modelBuilder.createSphere(1, 1, 1, 30, 30, new Material(), VertexAttributes.Usage.Position);
@@ -145,14 +208,20 @@ public abstract class TerrainBrush extends Tool {
         sphereModelInstance.calculateBoundingBox(boundingBox);
         scale(15);
 
-        brushPixmap = new Pixmap(pixmapBrush);
-        pixmapCenter = brushPixmap.getWidth() / 2;
+        final Pixmap brushPixmap = new Pixmap(pixmapBrush);
+        kernel = BrushKernel.fromPixmap(brushPixmap);
+        brushPixmap.dispose();
     }
 
     @Override
     public void act() {
+        // upload the regions finished by the brush worker
+        if (engine.publish()) {
+            markModified();
+        }
+
         if (action == null) return;
-        if (terrainAsset == null) return;
+        if (terrainAsset == null || !terrainAsset.isLoaded()) return;
 
         // sample height
         if (action == BrushAction.SECONDARY && mode == BrushMode.FLATTEN) {
@@ -160,132 +229,308 @@ public abstract class TerrainBrush extends Tool {
             return;
         }
 
-        // only act if mouse has been moved
-        if (lastMousePosIndicator == Gdx.input.getX() + Gdx.input.getY()) return;
+        final Vector3 terPos = terrainAsset.getTerrain().getPosition(tVec1);
+        final BrushEngine.Step step = new BrushEngine.Step();
+        step.mode = mode;
+        step.strength = strength;
+        step.direction = (action == BrushAction.PRIMARY) ? 1 : -1;
+        step.height = heightSample - terPos.y;
+        step.channel = paintChannel;
+        addDabs(step, tVec0.set(brushPos).sub(terPos));
+        engine.submit(step);
+    }
 
+    /**
+     * Resamples the path from the last dab to the brush position at a fixed
+     * spacing relative to the radius. The remainder shorter than the spacing
+     * is carried over to the next frame, so dabs are evenly spaced no matter
+     * how fast the mouse moves. If the path needs more than
+     * {@link #MAX_DABS_PER_FRAME} dabs, the spacing is widened instead.
+     *
+     * @param step
+     *            step the dabs are added to
+     * @param pos
+     *            brush position in local terrain coordinates
+     */
+    private void addDabs(BrushEngine.Step step, Vector3 pos) {
+        if (!strokeStarted) {
+            strokeStarted = true;
+            lastDab.set(pos);
+            step.addDab(pos.x, pos.y, pos.z, radius);
+            return;
+        }
+
+        final float distance = MathUtils.dst(lastDab.x, lastDab.z, pos.x, pos.z);
+        float spacing = Math.max(radius * DAB_SPACING, 0.0001f);
+        int dabs = (int) (distance / spacing);
+        if (dabs == 0) return;
+        if (dabs > MAX_DABS_PER_FRAME) {
+            dabs = MAX_DABS_PER_FRAME;
+            spacing = distance / dabs;
+        }
+
+        final float dx = (pos.x - lastDab.x) / distance * spacing;
+        final float dy = (pos.y - lastDab.y) / distance * spacing;
+        final float dz = (pos.z - lastDab.z) / distance * spacing;
+        for (int i = 0; i < dabs; i++) {
+            lastDab.add(dx, dy, dz);
+            step.addDab(lastDab.x, lastDab.y, lastDab.z, radius);
+        }
+    }
+
+    private void markModified() {
         if (mode == BrushMode.PAINT) {
-            paint();
-        } else if (mode == BrushMode.RAISE_LOWER) {
-            raiseLower(action);
-        } else if (mode == BrushMode.FLATTEN) {
-            flatten();
+            splatmapModified = true;
+        } else {
+            terrainHeightModified = true;
         }
+        getProjectManager().current().assetManager.addDirtyAsset(terrainAsset);
     }
 
-    private void paint() {
-        Terrain terrain = terrainAsset.getTerrain();
-        SplatMap sm = terrain.getTerrainTexture().getSplatmap();
-        if (sm == null) return;
+    /**
+     * Computes the region of the back buffer a dab reads or writes. Runs on
+     * the brush worker thread.
+     */
+    private void reach(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion out) {
+        final Terrain terrain = engine.getTerrain();
+        if (step.mode == BrushMode.PAINT) {
+            final SplatMap sm = engine.getSplatmap();
+            final float splatX = (dab.x / (float) terrain.terrainWidth) * sm.getWidth();
+            final float splatY = (dab.z / (float) terrain.terrainDepth) * sm.getHeight();
+            final float splatRad = (dab.radius / terrain.terrainWidth) * sm.getWidth();
+            out.add((int) Math.floor(splatX - splatRad), (int) Math.floor(splatY - splatRad));
+            out.add((int) Math.ceil(splatX + splatRad), (int) Math.ceil(splatY + splatRad));
+            return;
+        }
 
-        Vector3 terrainPos = terrain.getPosition(tVec1);
-        final float splatX = ((brushPos.x - terrainPos.x) / (float) terrain.terrainWidth) * sm.getWidth();
-        final float splatY = ((brushPos.z - terrainPos.z) / (float) terrain.terrainDepth) * sm.getHeight();
-        final float splatRad = (radius / terrain.terrainWidth) * sm.getWidth();
-        final Pixmap pixmap = sm.getPixmap();
+        computeFootprint(terrain, dab, out);
+        if (step.mode == BrushMode.SMOOTH && !out.isEmpty()) {
+            // the filter reads the neighbours of the footprint
+            out.add(out.minX - SMOOTH_RADIUS, out.minZ - SMOOTH_RADIUS);
+            out.add(out.maxX + SMOOTH_RADIUS, out.maxZ + SMOOTH_RADIUS);
+        }
+    }
 
-        for (int smX = 0; smX < pixmap.getWidth(); smX++) {
-            for (int smY = 0; smY < pixmap.getHeight(); smY++) {
+    /**
+     * Applies a step to the back buffer of the engine. Runs on the brush
+     * worker thread.
+     */
+    private void apply(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+        if (step.mode == BrushMode.PAINT) {
+            paint(engine, step, dab, modified);
+        } else if (step.mode == BrushMode.RAISE_LOWER) {
+            raiseLower(engine, step, dab, modified);
+        } else if (step.mode == BrushMode.FLATTEN) {
+            flatten(engine, step, dab, modified);
+        } else if (step.mode == BrushMode.SMOOTH) {
+            smooth(engine, step, dab, modified);
+        }
+    }
+
+    private void paint(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+        final Terrain terrain = engine.getTerrain();
+        final SplatMap sm = engine.getSplatmap();
+        final ByteBuffer pixels = engine.getPixels();
+        final GridRegion window = engine.getWindow();
+        final float splatX = (dab.x / (float) terrain.terrainWidth) * sm.getWidth();
+        final float splatY = (dab.z / (float) terrain.terrainDepth) * sm.getHeight();
+        final float splatRad = (dab.radius / terrain.terrainWidth) * sm.getWidth();
+
+        // only visit the pixels under the brush
+        final int minX = Math.max(0, (int) Math.floor(splatX - splatRad));
+        final int minY = Math.max(0, (int) Math.floor(splatY - splatRad));
+        final int maxX = Math.min(sm.getWidth() - 1, (int) Math.ceil(splatX + splatRad));
+        final int maxY = Math.min(sm.getHeight() - 1, (int) Math.ceil(splatY + splatRad));
+        kernel.setResolution(2 * (int) Math.ceil(splatRad) + 1);
+
+        for (int smX = minX; smX <= maxX; smX++) {
+            for (int smY = minY; smY <= maxY; smY++) {
                 final float dst = MathUtils.dst(splatX, splatY, smX, smY);
                 if (dst <= splatRad) {
-                    final float opacity = getValueOfBrushPixmap(splatX, splatY, smX, smY, splatRad) * 0.5f * strength;
-                    int newPixelColor = sm.additiveBlend(pixmap.getPixel(smX, smY), paintChannel, opacity);
-                    pixmap.drawPixel(smX, smY, newPixelColor);
+                    final float opacity = getBrushFalloff(splatX, splatY, smX, smY, splatRad) * 0.5f * step.strength;
+                    SplatMap.additiveBlend(pixels, window.getWidth(), smX - window.minX, smY - window.minZ,
+                            step.channel, opacity);
+                    modified.add(smX, smY);
                 }
             }
         }
-
-        sm.updateTexture();
-        splatmapModified = true;
-        getProjectManager().current().assetManager.addDirtyAsset(terrainAsset);
     }
 
-    private void flatten() {
-        Terrain terrain = terrainAsset.getTerrain();
-        final Vector3 terPos = terrain.getPosition(tVec1);
-        for (int x = 0; x < terrain.vertexResolution; x++) {
-            for (int z = 0; z < terrain.vertexResolution; z++) {
-                final Vector3 vertexPos = terrain.getVertexPosition(tVec0, x, z);
-                vertexPos.x += terPos.x;
-                vertexPos.z += terPos.z;
-                float distance = vertexPos.dst(brushPos);
-
-                if (distance <= radius) {
-                    final int index = z * terrain.vertexResolution + x;
-                    final float diff = Math.abs(terrain.heightData[index] - heightSample);
-                    if (diff <= 1f) {
-                        terrain.heightData[index] = heightSample;
-                    } else if (diff > 1f) {
-                        final float elevation = getValueOfBrushPixmap(brushPos.x, brushPos.z, vertexPos.x, vertexPos.z,
-                                radius);
-                        final float newHeight = heightSample * elevation;
-                        if (Math.abs(heightSample - newHeight) < Math.abs(heightSample - terrain.heightData[index])) {
-                            terrain.heightData[index] = newHeight;
-                        }
+    private void flatten(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+        final Terrain terrain = engine.getTerrain();
+        final float[] heights = engine.getHeights();
+        setFootprint(terrain, dab);
+        for (int x = footprint.minX; x <= footprint.maxX; x++) {
+            for (int z = footprint.minZ; z <= footprint.maxZ; z++) {
+                final int index = engine.index(x, z);
+                if (distance(terrain, heights[index], dab, x, z) > dab.radius) continue;
+
+                modified.add(x, z);
+                final float diff = Math.abs(heights[index] - step.height);
+                if (diff <= 1f) {
+                    heights[index] = step.height;
+                } else if (diff > 1f) {
+                    final float elevation = getBrushFalloff(dab.x, dab.z, vertexX(terrain, x), vertexZ(terrain, z),
+                            dab.radius);
+                    final float newHeight = step.height * elevation;
+                    if (Math.abs(step.height - newHeight) < Math.abs(step.height - heights[index])) {
+                        heights[index] = newHeight;
                     }
                 }
             }
         }
+    }
 
-        terrain.update();
-        terrainHeightModified = true;
-        getProjectManager().current().assetManager.addDirtyAsset(terrainAsset);
+    private void raiseLower(BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+        final Terrain terrain = engine.getTerrain();
+        final float[] heights = engine.getHeights();
+        setFootprint(terrain, dab);
+        for (int x = footprint.minX; x <= footprint.maxX; x++) {
+            for (int z = footprint.minZ; z <= footprint.maxZ; z++) {
+                final int index = engine.index(x, z);
+                if (distance(terrain, heights[index], dab, x, z) > dab.radius) continue;
+
+                modified.add(x, z);
+                float elevation = getBrushFalloff(dab.x, dab.z, vertexX(terrain, x), vertexZ(terrain, z),
+                        dab.radius);
+                heights[index] += step.direction * elevation * step.strength;
+            }
+        }
     }
 
-    private void raiseLower(BrushAction action) {
-        Terrain terrain = terrainAsset.getTerrain();
-        final Vector3 terPos = terrain.getPosition(tVec1);
-        float dir = (action == BrushAction.PRIMARY) ? 1 : -1;
-        for (int x = 0; x < terrain.vertexResolution; x++) {
-            for (int z = 0; z < terrain.vertexResolution; z++) {
-                final Vector3 vertexPos = terrain.getVertexPosition(tVec0, x, z);
-                vertexPos.x += terPos.x;
-                vertexPos.z += terPos.z;
-                float distance = vertexPos.dst(brushPos);
-
-                if (distance <= radius) {
-                    float elevation = getValueOfBrushPixmap(brushPos.x, brushPos.z, vertexPos.x, vertexPos.z, radius);
-                    terrain.heightData[z * terrain.vertexResolution + x] += dir * elevation * strength;
+    /**
+     * Blurs the heights within the brush radius with a separable filter.
+     *
+     * The first pass filters the rows of the footprint into a separate
+     * buffer, the second pass filters its columns & blends the result into
+     * the height data, weighted by brush falloff & strength. Since each pass
+     * only reads data the other pass doesn't write, the result doesn't
+     * depend on the order rows are processed in, which allows to filter
+     * large footprints in parallel.
+     */
+    private void smooth(final BrushEngine engine, BrushEngine.Step step, BrushEngine.Dab dab, GridRegion modified) {
+        final Terrain terrain = engine.getTerrain();
+        final float[] heights = engine.getHeights();
+        setFootprint(terrain, dab);
+        if (footprint.isEmpty()) return;
+
+        final int res = terrain.vertexResolution;
+        final int minX = footprint.minX;
+        final int maxX = footprint.maxX;
+        final int width = maxX - minX + 1;
+
+        // the column pass needs filtered rows above & below the footprint
+        final int rowMinZ = Math.max(0, footprint.minZ - SMOOTH_RADIUS);
+        final int rowMaxZ = Math.min(res - 1, footprint.maxZ + SMOOTH_RADIUS);
+        if (smoothRows.length < (rowMaxZ - rowMinZ + 1) * width) {
+            smoothRows = new float[(rowMaxZ - rowMinZ + 1) * width];
+        }
+        final float[] rows = smoothRows;
+
+        ParallelUtils.parallelFor(rowMinZ, rowMaxZ + 1, SMOOTH_ROWS_PER_TASK, new ParallelUtils.RangeTask() {
+            @Override
+            public void run(int from, int to) {
+                for (int z = from; z < to; z++) {
+                    final int row = engine.index(0, z);
+                    final int out = (z - rowMinZ) * width - minX;
+                    for (int x = minX; x <= maxX; x++) {
+                        float sum = 0;
+                        for (int k = -SMOOTH_RADIUS; k <= SMOOTH_RADIUS; k++) {
+                            final int sx = Math.max(0, Math.min(res - 1, x + k));
+                            sum += SMOOTH_WEIGHTS[k + SMOOTH_RADIUS] * heights[row + sx];
+                        }
+                        rows[out + x] = sum;
+                    }
                 }
             }
-        }
+        });
+
+        final float cellWidth = terrain.terrainWidth / (float) (res - 1);
+        final float cellDepth = terrain.terrainDepth / (float) (res - 1);
+        final float localX = dab.x;
+        final float localZ = dab.z;
+        final float radius = dab.radius;
+        final float amount = step.strength;
+
+        ParallelUtils.parallelFor(footprint.minZ, footprint.maxZ + 1, SMOOTH_ROWS_PER_TASK,
+                new ParallelUtils.RangeTask() {
+                    @Override
+                    public void run(int from, int to) {
+                        for (int z = from; z < to; z++) {
+                            final float vertexZ = z * cellDepth;
+                            for (int x = minX; x <= maxX; x++) {
+                                final float vertexX = x * cellWidth;
+                                if (MathUtils.dst(localX, localZ, vertexX, vertexZ) > radius) continue;
+
+                                float sum = 0;
+                                for (int k = -SMOOTH_RADIUS; k <= SMOOTH_RADIUS; k++) {
+                                    final int sz = Math.max(0, Math.min(res - 1, z + k));
+                                    sum += SMOOTH_WEIGHTS[k + SMOOTH_RADIUS] * rows[(sz - rowMinZ) * width + x - minX];
+                                }
+
+                                final int index = engine.index(x, z);
+                                final float falloff = getBrushFalloff(localX, localZ, vertexX, vertexZ, radius);
+                                heights[index] += (sum - heights[index]) * Math.min(1f, falloff * amount);
+                            }
+                        }
+                    }
+                });
 
-        terrain.update();
-        terrainHeightModified = true;
-        getProjectManager().current().assetManager.addDirtyAsset(terrainAsset);
+        modified.add(footprint);
+    }
+
+    private static float vertexX(Terrain terrain, int x) {
+        return x / (float) (terrain.vertexResolution - 1) * terrain.terrainWidth;
+    }
+
+    private static float vertexZ(Terrain terrain, int z) {
+        return z / (float) (terrain.vertexResolution - 1) * terrain.terrainDepth;
     }
 
     /**
-     * Interpolates the brush texture in the range of centerX - radius to
-     * centerX + radius and centerZ - radius to centerZ + radius. PointZ &
-     * pointX lies between these ranges.
-     *
-     * Interpolation is necessary, since the brush pixmap is fixed sized,
-     * whereas the input values can scale. (Input points can be vertices or
-     * splatmap texture coordinates)
-     *
-     * @param centerX
-     * @param centerZ
-     * @param pointX
-     * @param pointZ
-     * @param radius
-     *
-     * @return the interpolated r-channel value of brush pixmap at pointX,
-     *         pointZ, which can be interpreted as terrainAsset height
-     *         (raise/lower) or opacity (paint)
+     * Distance between the brush center & a vertex of the back buffer.
      */
-    private float getValueOfBrushPixmap(float centerX, float centerZ, float pointX, float pointZ, float radius) {
-        c.set(centerX, centerZ);
-        p.set(pointX, pointZ);
-        v.set(p.sub(c));
+    private static float distance(Terrain terrain, float height, BrushEngine.Dab dab, int x, int z) {
+        final float dx = vertexX(terrain, x) - dab.x;
+        final float dy = height - dab.y;
+        final float dz = vertexZ(terrain, z) - dab.z;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
 
-        final float progress = v.len() / radius;
-        v.nor().scl(pixmapCenter * progress);
+    /**
+     * Sets the footprint to the vertices within the brush radius on the xz
+     * plane, clamped to the terrain. Vertices outside of it can't be reached
+     * by the brush.
+     */
+    private void setFootprint(Terrain terrain, BrushEngine.Dab dab) {
+        computeFootprint(terrain, dab, footprint);
 
-        final float mapX = pixmapCenter + (int) v.x;
-        final float mapY = pixmapCenter + (int) v.y;
-        c0.set(brushPixmap.getPixel((int) mapX, (int) mapY));
+        // one kernel sample per vertex
+        final int quads = terrain.vertexResolution - 1;
+        final float cellSize = Math.min(terrain.terrainWidth, terrain.terrainDepth) / (float) quads;
+        kernel.setResolution(2 * (int) Math.ceil(dab.radius / cellSize) + 1);
+    }
 
-        return c0.r;
+    private static void computeFootprint(Terrain terrain, BrushEngine.Dab dab, GridRegion out) {
+        final int quads = terrain.vertexResolution - 1;
+        final float cellWidth = terrain.terrainWidth / (float) quads;
+        final float cellDepth = terrain.terrainDepth / (float) quads;
+
+        out.minX = Math.max(0, (int) Math.floor((dab.x - dab.radius) / cellWidth));
+        out.minZ = Math.max(0, (int) Math.floor((dab.z - dab.radius) / cellDepth));
+        out.maxX = Math.min(quads, (int) Math.ceil((dab.x + dab.radius) / cellWidth));
+        out.maxZ = Math.min(quads, (int) Math.ceil((dab.z + dab.radius) / cellDepth));
+    }
+
+    /**
+     * Samples the brush falloff at a point within the radius around the
+     * center. Input points can be vertices or splatmap texture coordinates.
+     *
+     * @return the falloff at pointX, pointZ, which can be interpreted as
+     *         terrainAsset height (raise/lower) or opacity (paint)
+     */
+    private float getBrushFalloff(float centerX, float centerZ, float pointX, float pointZ, float radius) {
+        return kernel.sample((pointX - centerX) / radius, (pointZ - centerZ) / radius);
     }
 
     public void scale(float amount) {
@@ -343,6 +588,7 @@ public abstract class TerrainBrush extends Tool {
         switch (mode) {
         case RAISE_LOWER:
         case FLATTEN:
+        case SMOOTH:
         case PAINT:
             return true;
         }
@@ -352,7 +598,7 @@ public abstract class TerrainBrush extends Tool {
 
     @Override
     public void render() {
-        if (terrainAsset.getTerrain().isOnTerrain(brushPos.x, brushPos.z)) {
+        if (terrainAsset.isLoaded() && terrainAsset.getTerrain().isOnTerrain(brushPos.x, brushPos.z)) {
             getBatch().begin(getProjectManager().current().currScene.cam);
             getBatch().render(sphereModelInstance, getShader());
             getBatch().end();
@@ -361,24 +607,37 @@ public abstract class TerrainBrush extends Tool {
 
     @Override
     public void dispose() {
-        brushPixmap.dispose();
+        sphereModel.dispose();
     }
 
     @Override
     public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-        if (terrainHeightModified && heightCommand != null) {
-            heightCommand.setHeightDataAfter(terrainAsset.getTerrain().heightData);
+        if (engine.finishStroke()) {
+            markModified();
+        }
+
+        // a streamed terrain can be evicted while the mouse button is down
+        if (!terrainAsset.isLoaded()) {
+            terrainHeightModified = false;
+            splatmapModified = false;
+        }
+        if (terrainHeightModified && heightRecorded) {
+            if (autoSplatCommand != null && !autoSplatCommand.isEmpty()) {
+                autoSplatCommand.setAfter();
+                heightCommand.setSplatCommand(autoSplatCommand);
+            }
             getHistory().add(heightCommand);
         }
-        if (splatmapModified && paintCommand != null) {
-            final SplatMap sm = terrainAsset.getTerrain().getTerrainTexture().getSplatmap();
-            paintCommand.setAfter(sm.getPixmap());
+        if (splatmapModified && paintCommand != null && !paintCommand.isEmpty()) {
+            paintCommand.setAfter();
             getHistory().add(paintCommand);
         }
         splatmapModified = false;
         terrainHeightModified = false;
+        heightRecorded = false;
         heightCommand = null;
         paintCommand = null;
+        autoSplatCommand = null;
 
         action = null;
 
@@ -411,15 +670,18 @@ public abstract class TerrainBrush extends Tool {
         } else {
             action = null;
         }
+        if (!terrainAsset.isLoaded()) return false;
+        engine.beginStroke(terrainAsset, mode == BrushMode.PAINT, operation, strokeListener);
+        strokeStarted = false;
+        heightRecorded = false;
+        autoSplatCommand = null;
 
         if (mode == BrushMode.FLATTEN || mode == BrushMode.RAISE_LOWER || mode == BrushMode.SMOOTH) {
-            heightCommand = new TerrainHeightCommand(terrainAsset.getTerrain());
-            heightCommand.setHeightDataBefore(terrainAsset.getTerrain().heightData);
+            heightCommand = new TerrainHeightCommand(terrainAsset);
         } else if (mode == BrushMode.PAINT) {
             final SplatMap sm = terrainAsset.getTerrain().getTerrainTexture().getSplatmap();
             if (sm != null) {
-                paintCommand = new TerrainPaintCommand(terrainAsset.getTerrain());
-                paintCommand.setBefore(sm.getPixmap());
+                paintCommand = new TerrainPaintCommand(terrainAsset);
             }
         }
 
@@ -428,12 +690,11 @@ public abstract class TerrainBrush extends Tool {
 
     @Override
     public boolean mouseMoved(int screenX, int screenY) {
-        if (terrainAsset != null) {
+        if (terrainAsset != null && terrainAsset.isLoaded()) {
             Ray ray = getProjectManager().current().currScene.viewport.getPickRay(screenX, screenY);
             terrainAsset.getTerrain().getRayIntersection(brushPos, ray);
         }
 
-        lastMousePosIndicator = screenX + screenY;
         sphereModelInstance.transform.setTranslation(brushPos);
 
         return false;
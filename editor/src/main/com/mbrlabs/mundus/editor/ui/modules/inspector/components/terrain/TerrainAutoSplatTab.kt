@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.ui.modules.inspector.components.terrain
+
+import com.badlogic.gdx.scenes.scene2d.Actor
+import com.badlogic.gdx.scenes.scene2d.InputEvent
+import com.badlogic.gdx.scenes.scene2d.ui.Table
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener
+import com.badlogic.gdx.utils.Align
+import com.kotcrab.vis.ui.util.dialog.Dialogs
+import com.kotcrab.vis.ui.widget.VisCheckBox
+import com.kotcrab.vis.ui.widget.VisLabel
+import com.kotcrab.vis.ui.widget.VisSelectBox
+import com.kotcrab.vis.ui.widget.VisTable
+import com.kotcrab.vis.ui.widget.VisTextButton
+import com.kotcrab.vis.ui.widget.tabbedpane.Tab
+import com.mbrlabs.mundus.commons.terrain.AutoSplat
+import com.mbrlabs.mundus.commons.terrain.SplatRule
+import com.mbrlabs.mundus.commons.terrain.SplatTexture
+import com.mbrlabs.mundus.editor.Mundus
+import com.mbrlabs.mundus.editor.core.project.ProjectManager
+import com.mbrlabs.mundus.editor.history.CommandHistory
+import com.mbrlabs.mundus.editor.history.commands.TerrainPaintCommand
+import com.mbrlabs.mundus.editor.ui.UI
+import com.mbrlabs.mundus.editor.ui.widgets.FloatFieldWithLabel
+
+/**
+ * Rules that fill the splat channels from height, slope & curvature of the terrain.
+ *
+ * The rules can be applied to the whole splatmap & optionally be re-applied
+ * to the sculpted region while sculpting. Rules & the sculpting flag are
+ * stored in the terrain meta, so they are saved with the terrain asset.
+ *
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+class TerrainAutoSplatTab(private val parent: TerrainComponentWidget) : Tab(false, false) {
+
+    private val root = VisTable()
+
+    private val channel = VisSelectBox<SplatTexture.Channel>()
+    private val minHeight = FloatFieldWithLabel("Min height", -1, true)
+    private val maxHeight = FloatFieldWithLabel("Max height", -1, true)
+    private val heightBlend = FloatFieldWithLabel("Height blend", -1, false)
+    private val minSlope = FloatFieldWithLabel("Min slope", -1, false)
+    private val maxSlope = FloatFieldWithLabel("Max slope", -1, false)
+    private val slopeBlend = FloatFieldWithLabel("Slope blend", -1, false)
+    private val minCurvature = FloatFieldWithLabel("Min curvature", -1, true)
+    private val maxCurvature = FloatFieldWithLabel("Max curvature", -1, true)
+    private val curvatureBlend = FloatFieldWithLabel("Curvature blend", -1, false)
+    private val addRuleBtn = VisTextButton("Add rule")
+
+    private val rulesTable = VisTable()
+    private val whileSculpting = VisCheckBox("Update while sculpting")
+    private val applyBtn = VisTextButton("Apply to splatmap")
+
+    private val autoSplat: AutoSplat
+
+    private val projectManager: ProjectManager = Mundus.inject()
+    private val history: CommandHistory = Mundus.inject()
+
+    init {
+        val meta = parent.component.terrain.meta.terrain
+        if (meta.autoSplat == null) {
+            meta.autoSplat = AutoSplat()
+        }
+        autoSplat = meta.autoSplat
+        whileSculpting.isChecked = meta.isAutoSplatSculpting
+
+        channel.setItems(SplatTexture.Channel.R, SplatTexture.Channel.G, SplatTexture.Channel.B,
+                SplatTexture.Channel.A)
+        minHeight.setText("0")
+        maxHeight.setText("100")
+        heightBlend.setText("0")
+        minSlope.setText("0")
+        maxSlope.setText("90")
+        slopeBlend.setText("0")
+        minCurvature.setText("-100")
+        maxCurvature.setText("100")
+        curvatureBlend.setText("0")
+
+        root.align(Align.left)
+
+        root.add(VisLabel("New rule")).pad(5f).left().row()
+        val channelTable = VisTable()
+        channelTable.add(VisLabel("Channel")).padRight(5f).left()
+        channelTable.add(channel).left()
+        root.add(channelTable).pad(5f).left().row()
+        root.add(minHeight).pad(5f).left().fillX().expandX().row()
+        root.add(maxHeight).pad(5f).left().fillX().expandX().row()
+        root.add(heightBlend).pad(5f).left().fillX().expandX().row()
+        root.add(minSlope).pad(5f).left().fillX().expandX().row()
+        root.add(maxSlope).pad(5f).left().fillX().expandX().row()
+        root.add(slopeBlend).pad(5f).left().fillX().expandX().row()
+        root.add(minCurvature).pad(5f).left().fillX().expandX().row()
+        root.add(maxCurvature).pad(5f).left().fillX().expandX().row()
+        root.add(curvatureBlend).pad(5f).left().fillX().expandX().row()
+        root.add(addRuleBtn).pad(5f).left().row()
+
+        root.add(VisLabel("Rules")).pad(5f).padTop(10f).left().row()
+        root.add(rulesTable).pad(5f).left().fillX().expandX().row()
+        root.add(whileSculpting).pad(5f).left().row()
+        root.add(applyBtn).pad(5f).left().row()
+
+        setupListeners()
+        updateRules()
+    }
+
+    private fun setupListeners() {
+        addRuleBtn.addListener(object : ClickListener() {
+            override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                val rule = SplatRule(channel.selected)
+                        .height(minHeight.float, maxHeight.float, heightBlend.float)
+                        .slope(minSlope.float, maxSlope.float, slopeBlend.float)
+                        .curvature(minCurvature.float, maxCurvature.float, curvatureBlend.float)
+                autoSplat.addRule(rule)
+                updateRules()
+                rulesChanged()
+            }
+        })
+
+        whileSculpting.addListener(object : ChangeListener() {
+            override fun changed(event: ChangeListener.ChangeEvent, actor: Actor) {
+                parent.component.terrain.meta.terrain.isAutoSplatSculpting = whileSculpting.isChecked
+                rulesChanged()
+            }
+        })
+
+        applyBtn.addListener(object : ClickListener() {
+            override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                applyRules()
+            }
+        })
+    }
+
+    private fun updateRules() {
+        rulesTable.clearChildren()
+        for (rule in autoSplat.rules) {
+            val text = String.format("%s: height %.1f - %.1f, slope %.0f - %.0f, curvature %.1f - %.1f",
+                    rule.channel, rule.minHeight, rule.maxHeight, rule.minSlope, rule.maxSlope, rule.minCurvature,
+                    rule.maxCurvature)
+            val removeBtn = VisTextButton("Remove")
+            removeBtn.addListener(object : ClickListener() {
+                override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                    autoSplat.removeRule(rule)
+                    updateRules()
+                    rulesChanged()
+                }
+            })
+            rulesTable.add(VisLabel(text)).left().expandX()
+            rulesTable.add(removeBtn).padLeft(5f).right().row()
+        }
+    }
+
+    /**
+     * Updates the terrain texture & marks the asset dirty, so the rules are
+     * written to the meta file on the next save.
+     */
+    private fun rulesChanged() {
+        val terrainAsset = parent.component.terrain
+        val terrainTexture = parent.loadTerrain()?.terrainTexture ?: return
+        terrainTexture.autoSplat = if (whileSculpting.isChecked) autoSplat else null
+        projectManager.current().assetManager.addDirtyAsset(terrainAsset)
+    }
+
+    private fun applyRules() {
+        val terrainAsset = parent.component.terrain
+        val terrain = parent.loadTerrain() ?: return
+        val sm = terrain.terrainTexture.splatmap
+        if (sm == null) {
+            Dialogs.showErrorDialog(UI, "Please add a second texture first, it creates the splatmap")
+            return
+        }
+        if (autoSplat.rules.size == 0) {
+            Dialogs.showErrorDialog(UI, "Please add a rule first")
+            return
+        }
+
+        val command = TerrainPaintCommand(terrainAsset)
+        command.copyOnWrite(0, 0, sm.width - 1, sm.height - 1)
+        autoSplat.apply(terrain, sm)
+        sm.updateDirtyRegion()
+        command.setAfter()
+        history.add(command)
+        projectManager.current().assetManager.addDirtyAsset(terrainAsset)
+    }
+
+    override fun getTabTitle(): String {
+        return "Auto"
+    }
+
+    override fun getContentTable(): Table {
+        return root
+    }
+
+}
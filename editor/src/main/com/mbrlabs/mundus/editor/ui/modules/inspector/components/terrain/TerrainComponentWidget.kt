@@ -22,12 +22,13 @@ import com.kotcrab.vis.ui.widget.tabbedpane.TabbedPane
 import com.kotcrab.vis.ui.widget.tabbedpane.TabbedPaneListener
 import com.mbrlabs.mundus.commons.scene3d.GameObject
 import com.mbrlabs.mundus.commons.scene3d.components.Component
+import com.mbrlabs.mundus.commons.terrain.Terrain
 import com.mbrlabs.mundus.editor.scene3d.components.TerrainComponent
 import com.mbrlabs.mundus.editor.ui.modules.inspector.components.ComponentWidget
 
 /**
  * @author Marcus Brummer
- * @version 29-01-2016
+ * @version 17-10-2026
  */
 class TerrainComponentWidget(terrainComponent: TerrainComponent) :
         ComponentWidget<TerrainComponent>("Terrain Component", terrainComponent), TabbedPaneListener {
@@ -37,16 +38,20 @@ class TerrainComponentWidget(terrainComponent: TerrainComponent) :
 
     private val raiseLowerTab = TerrainUpDownTab(this)
     private val flattenTab = TerrainFlattenTab(this)
+    private val smoothTab = TerrainSmoothTab(this)
     private val paintTab = TerrainPaintTab(this)
+    private val autoSplatTab = TerrainAutoSplatTab(this)
     private val genTab = TerrainGenTab(this)
-    private val settingsTab = TerrainSettingsTab()
+    private val settingsTab = TerrainSettingsTab(this)
 
     init {
         tabbedPane.addListener(this)
 
         tabbedPane.add(raiseLowerTab)
         tabbedPane.add(flattenTab)
+        tabbedPane.add(smoothTab)
         tabbedPane.add(paintTab)
+        tabbedPane.add(autoSplatTab)
         tabbedPane.add(genTab)
         tabbedPane.add(settingsTab)
 
@@ -55,6 +60,20 @@ class TerrainComponentWidget(terrainComponent: TerrainComponent) :
         tabbedPane.switchTab(0)
     }
 
+    /**
+     * A streamed tile can be evicted while it is selected. It is loaded
+     * again, so that it can be edited.
+     *
+     * @return terrain of the component or null if it failed to load
+     */
+    fun loadTerrain(): Terrain? {
+        val terrainAsset = component.terrain
+        if (!terrainAsset.isLoaded) {
+            terrainAsset.load()
+        }
+        return terrainAsset.terrain
+    }
+
     override fun setValues(go: GameObject) {
         val c = go.findComponentByType(Component.Type.TERRAIN)
         if (c != null) {
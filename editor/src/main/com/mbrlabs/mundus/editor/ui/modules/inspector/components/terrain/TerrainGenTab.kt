@@ -18,6 +18,7 @@ package com.mbrlabs.mundus.editor.ui.modules.inspector.components.terrain
 
 import com.badlogic.gdx.files.FileHandle
 import com.badlogic.gdx.graphics.Pixmap
+import com.badlogic.gdx.utils.GdxRuntimeException
 import com.badlogic.gdx.scenes.scene2d.InputEvent
 import com.badlogic.gdx.scenes.scene2d.ui.Table
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener
@@ -27,6 +28,11 @@ import com.kotcrab.vis.ui.widget.VisLabel
 import com.kotcrab.vis.ui.widget.VisTable
 import com.kotcrab.vis.ui.widget.VisTextButton
 import com.kotcrab.vis.ui.widget.tabbedpane.Tab
+import com.mbrlabs.mundus.commons.terrain.terraform.HeightField
+import com.mbrlabs.mundus.commons.terrain.terraform.HeightMapGenerator
+import com.mbrlabs.mundus.commons.terrain.terraform.PixmapHeightField
+import com.mbrlabs.mundus.commons.terrain.terraform.PngHeightField
+import com.mbrlabs.mundus.commons.terrain.terraform.RawHeightField
 import com.mbrlabs.mundus.commons.terrain.terraform.Terraformer
 import com.mbrlabs.mundus.editor.Mundus
 import com.mbrlabs.mundus.editor.history.CommandHistory
@@ -35,11 +41,15 @@ import com.mbrlabs.mundus.editor.ui.UI
 import com.mbrlabs.mundus.editor.ui.widgets.FileChooserField
 import com.mbrlabs.mundus.editor.ui.widgets.FloatFieldWithLabel
 import com.mbrlabs.mundus.editor.ui.widgets.IntegerFieldWithLabel
+import com.mbrlabs.mundus.editor.utils.FORMAT_HEIGHTMAP_R32
 import com.mbrlabs.mundus.editor.utils.isImage
+import com.mbrlabs.mundus.editor.utils.isPNG
+import com.mbrlabs.mundus.editor.utils.isRawHeightMap
+import java.nio.ByteOrder
 
 /**
  * @author Marcus Brummer
- * @version 04-03-2016
+ * @version 17-10-2026
  */
 class TerrainGenTab(private val parent: TerrainComponentWidget) : Tab(false, false) {
     private val root = VisTable()
@@ -74,7 +84,7 @@ class TerrainGenTab(private val parent: TerrainComponentWidget) : Tab(false, fal
         loadHeightMapBtn.addListener(object : ClickListener() {
             override fun clicked(event: InputEvent?, x: Float, y: Float) {
                 val hm = hmInput.file
-                if (hm != null && hm.exists() && isImage(hm)) {
+                if (hm != null && hm.exists() && (isImage(hm) || isRawHeightMap(hm))) {
                     loadHeightMap(hm)
                 } else {
                     Dialogs.showErrorDialog(UI, "Please select a heightmap image")
@@ -93,25 +103,42 @@ class TerrainGenTab(private val parent: TerrainComponentWidget) : Tab(false, fal
     }
 
     private fun loadHeightMap(heightMap: FileHandle) {
-        val terrain = parent.component.terrain.terrain
-        val command = TerrainHeightCommand(terrain)
+        val terrain = parent.loadTerrain() ?: return
+        val command = TerrainHeightCommand(parent.component.terrain)
         command.setHeightDataBefore(terrain.heightData)
 
-        val originalMap = Pixmap(heightMap)
-
-        // scale pixmap if it doesn't fit the terrainAsset
-        if (originalMap.width != terrain.vertexResolution || originalMap.height != terrain.vertexResolution) {
-            val scaledPixmap = Pixmap(terrain.vertexResolution, terrain.vertexResolution,
-                    originalMap.format)
-            scaledPixmap.drawPixmap(originalMap, 0, 0, originalMap.width, originalMap.height, 0, 0,
-                    scaledPixmap.width, scaledPixmap.height)
-
-            originalMap.dispose()
-            Terraformer.heightMap(terrain).maxHeight(terrain.terrainWidth * 0.17f).map(scaledPixmap).terraform()
-            scaledPixmap.dispose()
-        } else {
-            Terraformer.heightMap(terrain).maxHeight(terrain.terrainWidth * 0.17f).map(originalMap).terraform()
-            originalMap.dispose()
+        var pixmap: Pixmap? = null
+        fun readPixmap(): HeightField {
+            val image = Pixmap(heightMap)
+            pixmap = image
+            return PixmapHeightField(image)
+        }
+
+        try {
+            val field: HeightField = when {
+                isRawHeightMap(heightMap) -> {
+                    val format = if (heightMap.extension().toLowerCase() == FORMAT_HEIGHTMAP_R32)
+                        RawHeightField.Format.FLOAT32 else RawHeightField.Format.UINT16
+                    RawHeightField(heightMap, format, ByteOrder.LITTLE_ENDIAN)
+                }
+                isPNG(heightMap) -> {
+                    try {
+                        PngHeightField.read(heightMap)
+                    } catch (e: PngHeightField.UnsupportedFormatException) {
+                        // palette, interlaced or less than 8 bit
+                        readPixmap()
+                    }
+                }
+                else -> readPixmap()
+            }
+
+            Terraformer.heightMap(terrain).maxHeight(terrain.terrainWidth * 0.17f)
+                    .filter(HeightMapGenerator.Filter.BICUBIC).map(field).terraform()
+        } catch (e: GdxRuntimeException) {
+            Dialogs.showErrorDialog(UI, "Failed to load heightmap: " + e.message)
+            return
+        } finally {
+            pixmap?.dispose()
         }
 
         command.setHeightDataAfter(terrain.heightData)
@@ -119,8 +146,8 @@ class TerrainGenTab(private val parent: TerrainComponentWidget) : Tab(false, fal
     }
 
     private fun generatePerlinNoise(seed: Int, min: Float, max: Float) {
-        val terrain = parent.component.terrain.terrain
-        val command = TerrainHeightCommand(terrain)
+        val terrain = parent.loadTerrain() ?: return
+        val command = TerrainHeightCommand(parent.component.terrain)
         command.setHeightDataBefore(terrain.heightData)
 
         Terraformer.perlin(terrain).minHeight(min).maxHeight(max).seed(seed.toLong()).terraform()
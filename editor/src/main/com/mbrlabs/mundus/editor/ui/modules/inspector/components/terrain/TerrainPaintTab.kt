@@ -43,7 +43,7 @@ import java.io.IOException
 
 /**
  * @author Marcus Brummer
- * @version 30-01-2016
+ * @version 17-10-2026
  */
 class TerrainPaintTab(private val parentWidget: TerrainComponentWidget) : Tab(false, false) {
 
@@ -100,7 +100,7 @@ class TerrainPaintTab(private val parentWidget: TerrainComponentWidget) : Tab(fa
         val assetManager = projectManager.current().assetManager
 
         val terrainAsset = this@TerrainPaintTab.parentWidget.component.terrain
-        val terrainTexture = terrainAsset.terrain.terrainTexture
+        val terrainTexture = parentWidget.loadTerrain()?.terrainTexture ?: return
 
         assetManager.addDirtyAsset(terrainAsset)
 
@@ -178,7 +178,7 @@ class TerrainPaintTab(private val parentWidget: TerrainComponentWidget) : Tab(fa
 
     private fun setTexturesInUiGrid() {
         textureGrid.removeTextures()
-        val terrainTexture = parentWidget.component.terrain.terrain.terrainTexture
+        val terrainTexture = parentWidget.loadTerrain()?.terrainTexture ?: return
         if (terrainTexture.getTexture(SplatTexture.Channel.BASE) != null) {
             textureGrid.addTexture(terrainTexture.getTexture(SplatTexture.Channel.BASE))
         }
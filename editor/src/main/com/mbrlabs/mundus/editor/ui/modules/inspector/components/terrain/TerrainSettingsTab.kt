@@ -16,23 +16,113 @@
 
 package com.mbrlabs.mundus.editor.ui.modules.inspector.components.terrain
 
+import com.badlogic.gdx.scenes.scene2d.InputEvent
 import com.badlogic.gdx.scenes.scene2d.ui.Table
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener
 import com.badlogic.gdx.utils.Align
+import com.kotcrab.vis.ui.widget.VisCheckBox
 import com.kotcrab.vis.ui.widget.VisLabel
 import com.kotcrab.vis.ui.widget.VisTable
+import com.kotcrab.vis.ui.widget.VisTextButton
 import com.kotcrab.vis.ui.widget.tabbedpane.Tab
+import com.mbrlabs.mundus.commons.terrain.QuantizedHeights
+import com.mbrlabs.mundus.editor.Mundus
+import com.mbrlabs.mundus.editor.assets.MetaSaver
+import com.mbrlabs.mundus.editor.core.project.ProjectManager
+import com.mbrlabs.mundus.editor.ui.UI
+import com.mbrlabs.mundus.editor.ui.widgets.FloatFieldWithLabel
+import com.mbrlabs.mundus.editor.ui.widgets.IntegerFieldWithLabel
 
 /**
  * @author Marcus Brummer
- * @version 30-01-2016
+ * @version 17-10-2026
  */
-class TerrainSettingsTab : Tab(false, false) {
+class TerrainSettingsTab(private val parent: TerrainComponentWidget) : Tab(false, false) {
 
     private val table = VisTable()
 
+    // position in the tile grid of a streamed world
+    private val tile = VisCheckBox("Tile of a streamed world")
+    private val tileX = IntegerFieldWithLabel("Tile x", -1, true)
+    private val tileZ = IntegerFieldWithLabel("Tile z", -1, true)
+    private val saveTileBtn = VisTextButton("Save")
+
+    // quantization step of the saved heights, 0 for float heights
+    private val heightPrecision = FloatFieldWithLabel("Height precision", -1, false)
+    private val heightError = VisLabel()
+    private val applyPrecisionBtn = VisTextButton("Apply")
+
+    private val metaSaver: MetaSaver = Mundus.inject()
+    private val projectManager: ProjectManager = Mundus.inject()
+
     init {
         table.align(Align.left)
-        table.add(VisLabel("Settings"))
+        table.add(VisLabel("Settings")).pad(5f).left().row()
+
+        val meta = parent.component.terrain.meta.terrain
+        tile.isChecked = meta.isTile
+        tileX.setText(meta.tileX.toString())
+        tileZ.setText(meta.tileZ.toString())
+
+        table.add(tile).pad(5f).left().row()
+        table.add(tileX).pad(5f).left().fillX().expandX().row()
+        table.add(tileZ).pad(5f).left().fillX().expandX().row()
+        table.add(saveTileBtn).pad(5f).left().row()
+
+        heightPrecision.setText(meta.heightPrecision.toString())
+        table.add(heightPrecision).pad(5f).left().fillX().expandX().row()
+        table.add(heightError).pad(5f).left().row()
+        table.add(applyPrecisionBtn).pad(5f).left().row()
+        updateHeightError()
+
+        saveTileBtn.addListener(object : ClickListener() {
+            override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                saveTile()
+            }
+        })
+        applyPrecisionBtn.addListener(object : ClickListener() {
+            override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                applyHeightPrecision()
+            }
+        })
+    }
+
+    private fun applyHeightPrecision() {
+        val terrainAsset = parent.component.terrain
+        terrainAsset.meta.terrain.heightPrecision = Math.max(0f, heightPrecision.float)
+        // the heights are quantized when the terrain is saved
+        projectManager.current().assetManager.addDirtyAsset(terrainAsset)
+        updateHeightError()
+    }
+
+    /**
+     * Shows the error the height precision causes when the terrain is saved.
+     */
+    private fun updateHeightError() {
+        val precision = parent.component.terrain.meta.terrain.heightPrecision
+        val data = parent.component.terrain.data
+        if (precision <= 0) {
+            heightError.setText("Max error: 0 (32 bit heights)")
+        } else if (data == null) {
+            heightError.setText("Max error: terrain not loaded")
+        } else {
+            val quantized = QuantizedHeights.encode(data, precision)
+            heightError.setText("Max error: " + quantized.getError(data) + " (16 bit heights, step: "
+                    + quantized.step + ")")
+        }
+    }
+
+    private fun saveTile() {
+        val terrainAsset = parent.component.terrain
+        val meta = terrainAsset.meta.terrain
+        if (tile.isChecked) {
+            meta.setTile(tileX.int, tileZ.int)
+        } else {
+            meta.clearTile()
+        }
+        metaSaver.save(terrainAsset.meta)
+        // the streamer is created when the scene is loaded
+        UI.toaster.success("Saved. Streaming starts when the scene is opened again")
     }
 
     override fun getTabTitle(): String {
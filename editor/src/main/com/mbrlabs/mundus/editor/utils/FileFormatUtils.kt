@@ -30,6 +30,10 @@ const val FORMAT_IMG_JPG = "jpg"
 const val FORMAT_IMG_JPEG = "jpeg"
 const val FORMAT_IMG_TGA = "tga"
 
+const val FORMAT_HEIGHTMAP_RAW = "raw"
+const val FORMAT_HEIGHTMAP_R16 = "r16"
+const val FORMAT_HEIGHTMAP_R32 = "r32"
+
 fun isG3DB(filename: String) = filename.toLowerCase().endsWith(FORMAT_3D_G3DB)
 fun isG3DB(file: FileHandle) = isG3DB(file.name())
 fun isWavefont(filename: String) = filename.toLowerCase().endsWith(FORMAT_3D_WAVEFONT)
@@ -45,6 +49,8 @@ fun isPNG(filename: String) = filename.toLowerCase().endsWith(FORMAT_IMG_PNG)
 fun isJPG(file: FileHandle) = isJPG(file.name())
 fun isTGA(filename: String) = filename.toLowerCase().endsWith(FORMAT_IMG_TGA)
 fun isTGA(file: FileHandle) = isTGA(file.name())
+fun isRawHeightMap(file: FileHandle) = file.extension().toLowerCase() in
+        arrayOf(FORMAT_HEIGHTMAP_RAW, FORMAT_HEIGHTMAP_R16, FORMAT_HEIGHTMAP_R32)
 fun is3DFormat(file: FileHandle) = is3DFormat(file.name())
 fun isImage(file: FileHandle) = isImage(file.name())
 
@@ -25,17 +25,20 @@ import com.badlogic.gdx.utils.Array
 import com.mbrlabs.mundus.commons.assets.TerrainAsset
 import com.mbrlabs.mundus.commons.scene3d.GameObject
 import com.mbrlabs.mundus.commons.scene3d.SceneGraph
+import com.mbrlabs.mundus.commons.terrain.TerrainRaycaster
 import com.mbrlabs.mundus.commons.terrain.TerrainShader
 import com.mbrlabs.mundus.editor.scene3d.components.TerrainComponent
 
 private var tempVI = VertexInfo()
+private var tempHit = TerrainRaycaster.Hit()
+private var nearestHit = TerrainRaycaster.Hit()
 
 fun createTerrainGO(sg: SceneGraph, shader: TerrainShader, goID: Int, goName: String,
                     terrain: TerrainAsset): GameObject {
     val terrainGO = GameObject(sg, null, goID)
     terrainGO.name = goName
 
-    terrain.terrain.setTransform(terrainGO.transform)
+    terrain.setTransform(terrainGO.transform)
     val terrainComponent = TerrainComponent(terrainGO)
     terrainComponent.terrain = terrain
     terrainGO.components.add(terrainComponent)
@@ -46,25 +49,34 @@ fun createTerrainGO(sg: SceneGraph, shader: TerrainShader, goID: Int, goName: St
 }
 
 fun getRayIntersection(terrains: Array<TerrainAsset>, ray: Ray, out: Vector3): Vector3? {
-    for (terrain in terrains) {
-        val terr = terrain.terrain
-        terr.getRayIntersection(out, ray)
-        if (terr.isOnTerrain(out.x, out.z)) {
-            return out
-        }
+    if (getNearestIntersection(terrains, ray)) {
+        return out.set(nearestHit.position)
     }
     return null
 }
 
 fun getRayIntersectionAndUp(terrains: Array<TerrainAsset>, ray: Ray): VertexInfo? {
-    for (terrain in terrains) {
-        val terr = terrain.terrain
-        terr.getRayIntersection(tempVI.position, ray)
-        if (terr.isOnTerrain(tempVI.position.x, tempVI.position.z)) {
-            tempVI.normal.set(terr.getNormalAtWordCoordinate(tempVI.position.x, tempVI.position.z))
-            return tempVI
-        }
+    if (getNearestIntersection(terrains, ray)) {
+        tempVI.position.set(nearestHit.position)
+        tempVI.normal.set(nearestHit.normal)
+        return tempVI
     }
     return null
 }
 
+/**
+ * Intersects the ray with all terrains and stores the nearest hit in nearestHit.
+ */
+private fun getNearestIntersection(terrains: Array<TerrainAsset>, ray: Ray): Boolean {
+    var found = false
+    for (terrain in terrains) {
+        if (!terrain.isLoaded) continue
+        if (terrain.terrain.getRayIntersection(ray, tempHit) && (!found || tempHit.distance < nearestHit.distance)) {
+            nearestHit.distance = tempHit.distance
+            nearestHit.position.set(tempHit.position)
+            nearestHit.normal.set(tempHit.normal)
+            found = true
+        }
+    }
+    return found
+}
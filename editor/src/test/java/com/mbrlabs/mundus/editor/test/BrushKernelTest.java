@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.test;
+
+import com.mbrlabs.mundus.editor.tools.brushes.BrushKernel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Marcus Brummer
+ * @version 17-10-2026
+ */
+public class BrushKernelTest {
+
+    private static BrushKernel gradient(int size) {
+        // falloff increases from left to right
+        final float[] values = new float[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                values[y * size + x] = x / (float) (size - 1);
+            }
+        }
+        return new BrushKernel(values, size);
+    }
+
+    @Test
+    public void sampleInterpolatesBilinear() {
+        final BrushKernel kernel = gradient(5);
+        assertEquals(0f, kernel.sample(-1, 0), 1e-6f);
+        assertEquals(1f, kernel.sample(1, 0), 1e-6f);
+        assertEquals(0.5f, kernel.sample(0, -1), 1e-6f);
+        assertEquals(0.625f, kernel.sample(0.25f, 0.3f), 1e-6f);
+    }
+
+    @Test
+    public void sampleClampsOutsideOfBrush() {
+        final BrushKernel kernel = gradient(5);
+        assertEquals(0f, kernel.sample(-2, 5), 1e-6f);
+        assertEquals(1f, kernel.sample(3, -5), 1e-6f);
+    }
+
+    @Test
+    public void resampleAveragesSource() {
+        final float[] values = new float[16];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 4) < 2 ? 0 : 1;
+        }
+        final BrushKernel kernel = new BrushKernel(values, 4);
+        kernel.setResolution(2);
+        assertEquals(2, kernel.getResolution());
+        assertEquals(0f, kernel.sample(-1, -1), 1e-6f);
+        assertEquals(1f, kernel.sample(1, 1), 1e-6f);
+
+        // resolutions above the source resolution use the source
+        kernel.setResolution(100);
+        assertEquals(4, kernel.getResolution());
+        assertEquals(0f, kernel.sample(-1f / 3f, 0), 1e-6f);
+    }
+
+}
@@ -18,10 +18,16 @@ package com.mbrlabs.mundus.editor.test;
 
 import com.mbrlabs.mundus.editor.history.Command;
 import com.mbrlabs.mundus.editor.history.CommandHistory;
+import com.mbrlabs.mundus.editor.history.SpillableCommand;
 
 import org.junit.Test;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Marcus Brummer
@@ -84,6 +90,100 @@ public class HistoryTest {
         assertEquals(2, history.size());
     }
 
+    @Test
+    public void spillOverMemoryBudget() {
+        CommandHistory history = new CommandHistory(CommandHistory.Companion.getDEFAULT_LIMIT(), 100);
+        MockSpillableCommand first = new MockSpillableCommand();
+        history.add(first);
+        history.add(new MockSpillableCommand());
+        assertEquals(0, history.getSpilledCount());
+
+        // the oldest command is farthest away from the pointer
+        history.add(new MockSpillableCommand());
+        assertEquals(1, history.getSpilledCount());
+        assertEquals(null, first.data);
+        assertTrue(history.getMemoryUsage() <= 100);
+
+        // undoing reads it back from the journal
+        history.goBack();
+        history.goBack();
+        history.goBack();
+        assertEquals(0, first.undone);
+        assertEquals(MockSpillableCommand.SIZE, first.data.length);
+        assertEquals(7, first.data[MockSpillableCommand.SIZE - 1]);
+    }
+
+    @Test
+    public void respillReusesJournal() {
+        CommandHistory history = new CommandHistory(CommandHistory.Companion.getDEFAULT_LIMIT(), 100);
+        MockSpillableCommand[] commands = new MockSpillableCommand[6];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new MockSpillableCommand();
+            history.add(commands[i]);
+        }
+        assertEquals(4, history.getSpilledCount());
+
+        // commands are restored & spilled again over and over
+        for (int i = 0; i < 20; i++) {
+            while (history.goBack() >= 0);
+            while (history.goForward() < commands.length - 1);
+        }
+        assertTrue(history.getJournalSize() <= commands.length * MockSpillableCommand.SIZE);
+
+        while (history.goBack() >= 0);
+        for (MockSpillableCommand command : commands) {
+            assertEquals(0, command.undone);
+        }
+
+        history.dispose();
+        assertEquals(0, history.getJournalSize());
+    }
+
+    private class MockSpillableCommand implements SpillableCommand {
+        static final int SIZE = 40;
+
+        byte[] data = new byte[SIZE];
+        int undone = -1;
+
+        MockSpillableCommand() {
+            data[SIZE - 1] = 7;
+        }
+
+        @Override
+        public void execute() {
+        }
+
+        @Override
+        public void undo() {
+            undone = data == null ? -1 : 0;
+        }
+
+        @Override
+        public long getMemoryUsage() {
+            return data == null ? 0 : data.length;
+        }
+
+        @Override
+        public void spill(DataOutput out) {
+            try {
+                out.write(data);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            data = null;
+        }
+
+        @Override
+        public void restore(DataInput in) {
+            data = new byte[SIZE];
+            try {
+                in.readFully(data);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private class MockCommand implements Command {
         @Override
         public void execute() {
@@ -17,37 +17,16 @@
 package com.mbrlabs.mundus.runtime;
 
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.utils.FloatArray;
-
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
+import com.mbrlabs.mundus.commons.terrain.TerraFile;
 
 /**
  * @author Marcus Brummer
- * @version 31-01-2016
+ * @version 17-10-2026
  */
 public class TerraLoader {
 
     public static float[] readTerraFile(FileHandle terra) {
-        FloatArray floatArray = new FloatArray();
-
-        DataInputStream is = null;
-        try {
-            is = new DataInputStream(new BufferedInputStream(new GZIPInputStream(terra.read())));
-            while (is.available() > 0) {
-                floatArray.add(is.readFloat());
-            }
-            is.close();
-        } catch (EOFException e) {
-            // e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return floatArray.toArray();
+        return TerraFile.read(terra);
     }
 
 }